@@ -0,0 +1,58 @@
+package org.psnbtech;
+
+import java.util.Random;
+
+/**
+ * The {@code BenchmarkBoards} class fills boards with stacks that look like
+ * the ones found in real games, so that the benchmarks don't only measure
+ * an empty board.
+ * @author Brendan Jones
+ *
+ */
+final class BenchmarkBoards {
+
+	/**
+	 * The number of rows that are visible to the player.
+	 */
+	private static final int VISIBLE_ROW_COUNT = 20;
+
+	/**
+	 * The tile types, indexed by ordinal.
+	 */
+	private static final TileType[] TYPES = TileType.values();
+
+	private BenchmarkBoards() {
+	}
+
+	/**
+	 * Fills the bottom of a board. Every filled row is left with at least
+	 * one hole so it can't be cleared, except for the bottom
+	 * {@code iFullRows} rows which are completely full.
+	 * @param brdBoard The board to fill.
+	 * @param iFillPercent How much of the visible board the stack covers.
+	 * @param iFullRows The number of full rows at the bottom.
+	 * @param lSeed The seed used to place the tiles.
+	 */
+	static void fill(Board brdBoard, int iFillPercent, int iFullRows,
+		long lSeed) {
+
+		Random rndRandom = new Random(lSeed);
+		brdBoard.clear();
+		int iHeight = Math.max(iFullRows,
+			VISIBLE_ROW_COUNT * iFillPercent / 100);
+		for(int iI = 0; iI < iHeight; iI++) {
+			int iRow = Board.ROW_COUNT - 1 - iI;
+			int iHole = rndRandom.nextInt(Board.COL_COUNT);
+			for(int iCol = 0; iCol < Board.COL_COUNT; iCol++) {
+				boolean isFull = iI < iFullRows;
+				if(isFull || (iCol != iHole &&
+					rndRandom.nextInt(100) < 80)) {
+
+					brdBoard.setTile(iCol, iRow,
+						TYPES[rndRandom.nextInt(TYPES.length)]);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package org.psnbtech;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code Board.isValidAndEmpty}, which the game engine calls for
+ * every move and rotation, and {@code Board.getDropDistance}, which it calls
+ * for every gravity step.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+	/**
+	 * How much of the visible board is covered by the stack.
+	 */
+	@Param({"0", "25", "50", "75"})
+	private int iFill;
+
+	private Board brdBoard;
+
+	private TileType[] tilTypes;
+
+	@Setup
+	public void setup() {
+		brdBoard = new Board();
+		BenchmarkBoards.fill(brdBoard, iFill, 0, 1L);
+		tilTypes = TileType.values();
+	}
+
+	/**
+	 * Tests every type and rotation at every column and row, including
+	 * positions that are out of bounds.
+	 * @return The number of valid positions.
+	 */
+	@Benchmark
+	public int sweepAllPositions() {
+		int iValid = 0;
+		for(TileType tilType : tilTypes) {
+			for(int iRotation = 0; iRotation < 4; iRotation++) {
+				for(int iRow = -1; iRow < Board.ROW_COUNT; iRow++) {
+					for(int iCol = -2; iCol < Board.COL_COUNT;
+						iCol++) {
+
+						if(brdBoard.isValidAndEmpty(tilType, iCol,
+							iRow, iRotation)) {
+							iValid++;
+						}
+					}
+				}
+			}
+		}
+		return iValid;
+	}
+
+	/**
+	 * Drops an I piece down the middle of the board one row at a time,
+	 * the same way the ghost piece used to be found.
+	 * @return The row the piece lands on.
+	 */
+	@Benchmark
+	public int dropOneRowAtATime() {
+		TileType tilType = TileType.TypeI;
+		int iRow = tilType.getSpawnRow();
+		while(brdBoard.isValidAndEmpty(tilType, 3, iRow + 1, 0)) {
+			iRow++;
+		}
+		return iRow;
+	}
+
+	/**
+	 * Finds where the same I piece lands with a single drop distance
+	 * query, the way gravity and the ghost piece are found now.
+	 * @return The row the piece lands on.
+	 */
+	@Benchmark
+	public int dropDistance() {
+		TileType tilType = TileType.TypeI;
+		int iRow = tilType.getSpawnRow();
+		return iRow + brdBoard.getDropDistance(tilType, 3, iRow, 0);
+	}
+
+}
@@ -0,0 +1,67 @@
+package org.psnbtech;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code Board.checkLines}, which runs every time a piece is
+ * locked. The board is restored from a template before every clear, so
+ * {@code restoreOnly} is the baseline to subtract.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineClearBenchmark {
+
+	/**
+	 * How much of the visible board is covered by the stack.
+	 */
+	@Param({"25", "50", "75"})
+	private int iFill;
+
+	/**
+	 * The number of full rows at the bottom of the stack.
+	 */
+	@Param({"0", "1", "4"})
+	private int iFullRows;
+
+	private Board brdTemplate;
+
+	private Board brdBoard;
+
+	@Setup
+	public void setup() {
+		brdTemplate = new Board();
+		brdBoard = new Board();
+		BenchmarkBoards.fill(brdTemplate, iFill, iFullRows, 2L);
+	}
+
+	@Benchmark
+	public Board restoreOnly() {
+		brdBoard.copyFrom(brdTemplate);
+		return brdBoard;
+	}
+
+	@Benchmark
+	public int restoreAndCheckLines() {
+		brdBoard.copyFrom(brdTemplate);
+		return brdBoard.checkLines();
+	}
+
+}
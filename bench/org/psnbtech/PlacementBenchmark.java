@@ -0,0 +1,88 @@
+package org.psnbtech;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code PlacementFinder.find}, which the search runs for every
+ * board it places a piece on, and {@code PlacementFinder.findPaths}, which
+ * the search player runs once a piece to find the keys to press. Every type
+ * is searched from where it spawns.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark {
+
+	/**
+	 * How much of the visible board is covered by the stack.
+	 */
+	@Param({"0", "50", "75"})
+	private int iFill;
+
+	private BitBoard bbdBoard;
+
+	private PlacementFinder pfnFinder;
+
+	private int[] iPlacements;
+
+	private TileType[] tilTypes;
+
+	@Setup
+	public void setup() {
+		Board brdBoard = new Board();
+		BenchmarkBoards.fill(brdBoard, iFill, 0, 9L);
+		bbdBoard = new BitBoard();
+		bbdBoard.copyFrom(brdBoard);
+		pfnFinder = new PlacementFinder();
+		iPlacements = new int[PlacementFinder.MAX_PLACEMENTS];
+		tilTypes = TileType.values();
+	}
+
+	/**
+	 * Finds the placements of every type.
+	 * @return The number of placements.
+	 */
+	@Benchmark
+	public int find() {
+		int iCount = 0;
+		for(TileType tilType : tilTypes) {
+			iCount += pfnFinder.find(bbdBoard, tilType,
+				tilType.getSpawnColumn(), tilType.getSpawnRow(), 0,
+				iPlacements);
+		}
+		return iCount;
+	}
+
+	/**
+	 * Finds the placements of every type, with the shortest path to each.
+	 * @return The number of placements.
+	 */
+	@Benchmark
+	public int findPaths() {
+		int iCount = 0;
+		for(TileType tilType : tilTypes) {
+			iCount += pfnFinder.findPaths(bbdBoard, tilType,
+				tilType.getSpawnColumn(), tilType.getSpawnRow(), 0,
+				iPlacements);
+		}
+		return iCount;
+	}
+
+}
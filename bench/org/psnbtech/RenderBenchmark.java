@@ -0,0 +1,89 @@
+package org.psnbtech;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code BoardPanel.paintComponent} and
+ * {@code SidePanel.paintComponent} drawing a game in progress into an
+ * offscreen image.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+	/**
+	 * How much of the visible board is covered by the stack.
+	 */
+	@Param({"0", "25", "50", "75"})
+	private int iFill;
+
+	private BoardPanel bplBoardPanel;
+
+	private SidePanel splSidePanel;
+
+	private BufferedImage imgBoard;
+
+	private BufferedImage imgSide;
+
+	@Setup
+	public void setup() {
+		GameEngine gamEngine = new GameEngine(4L);
+		gamEngine.resetGame();
+		BenchmarkBoards.fill(gamEngine.getBoard(), iFill, 0, 4L);
+		gamEngine.publishFrame();
+
+		bplBoardPanel = new BoardPanel(gamEngine);
+		bplBoardPanel.setSize(bplBoardPanel.getPreferredSize());
+		splSidePanel = new SidePanel(gamEngine);
+		splSidePanel.setSize(splSidePanel.getPreferredSize());
+
+		imgBoard = new BufferedImage(bplBoardPanel.getWidth(),
+			bplBoardPanel.getHeight(), BufferedImage.TYPE_INT_RGB);
+		imgSide = new BufferedImage(splSidePanel.getWidth(),
+			splSidePanel.getHeight(), BufferedImage.TYPE_INT_RGB);
+	}
+
+	@TearDown
+	public void tearDown() {
+		imgBoard.flush();
+		imgSide.flush();
+	}
+
+	@Benchmark
+	public BufferedImage paintBoard() {
+		Graphics graGraphics = imgBoard.createGraphics();
+		bplBoardPanel.paintComponent(graGraphics);
+		graGraphics.dispose();
+		return imgBoard;
+	}
+
+	@Benchmark
+	public BufferedImage paintSide() {
+		Graphics graGraphics = imgSide.createGraphics();
+		splSidePanel.paintComponent(graGraphics);
+		graGraphics.dispose();
+		return imgSide;
+	}
+
+}
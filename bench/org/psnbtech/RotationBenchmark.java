@@ -0,0 +1,103 @@
+package org.psnbtech;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code GameEngine.rotatePiece}, including the kicks that are
+ * tried when a piece doesn't fit where it's rotated. Every type is rotated
+ * from every rotation at every column it fits in, so a large share of the
+ * cases are against a wall.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RotationBenchmark {
+
+	/**
+	 * How much of the visible board is covered by the stack.
+	 */
+	@Param({"0", "50", "75"})
+	private int iFill;
+
+	private GameEngine gamEngine;
+
+	private TileType[] tilCaseTypes;
+
+	private int[] iCaseCols;
+
+	private int[] iCaseRows;
+
+	private int[] iCaseRotations;
+
+	private int iCases;
+
+	@Setup
+	public void setup() {
+		gamEngine = new GameEngine(3L);
+		gamEngine.resetGame();
+		Board brdBoard = gamEngine.getBoard();
+		BenchmarkBoards.fill(brdBoard, iFill, 0, 3L);
+
+		/*
+		 * Collect every valid position of every piece, four rows above
+		 * the stack, as the cases to rotate from.
+		 */
+		int iMax = TileType.values().length * 4 * (Board.COL_COUNT + 4);
+		tilCaseTypes = new TileType[iMax];
+		iCaseCols = new int[iMax];
+		iCaseRows = new int[iMax];
+		iCaseRotations = new int[iMax];
+		int iRow = Math.max(0,
+			Board.ROW_COUNT - 8 - 20 * iFill / 100);
+		for(TileType tilType : TileType.values()) {
+			for(int iRotation = 0; iRotation < 4; iRotation++) {
+				for(int iCol = -2; iCol < Board.COL_COUNT; iCol++) {
+					if(brdBoard.isValidAndEmpty(tilType, iCol, iRow,
+						iRotation)) {
+
+						tilCaseTypes[iCases] = tilType;
+						iCaseCols[iCases] = iCol;
+						iCaseRows[iCases] = iRow;
+						iCaseRotations[iCases] = iRotation;
+						iCases++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rotates every case clockwise once.
+	 * @return The sum of the resulting positions.
+	 */
+	@Benchmark
+	public int rotateAllCases() {
+		int iSum = 0;
+		for(int iI = 0; iI < iCases; iI++) {
+			gamEngine.setPiece(tilCaseTypes[iI], iCaseCols[iI],
+				iCaseRows[iI], iCaseRotations[iI]);
+			gamEngine.rotateClockwise();
+			iSum += gamEngine.getPieceCol() + gamEngine.getPieceRow()
+				+ gamEngine.getPieceRotation();
+		}
+		return iSum;
+	}
+
+}
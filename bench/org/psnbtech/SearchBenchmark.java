@@ -0,0 +1,82 @@
+package org.psnbtech;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code SearchPlayer.plan}, the search for where to place the
+ * current piece given the next one. Every invocation starts with an empty
+ * transposition table, so nothing is carried over from the last search.
+ * The search runs either on the benchmark thread or on the common fork join
+ * pool.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+	/**
+	 * How much of the visible board is covered by the stack.
+	 */
+	@Param({"0", "50"})
+	private int iFill;
+
+	/**
+	 * The number of pieces searched.
+	 */
+	@Param({"1", "2", "3"})
+	private int iDepth;
+
+	/**
+	 * Whether the search is spread over the common pool.
+	 */
+	@Param({"false", "true"})
+	private boolean isParallel;
+
+	private GameEngine gamEngine;
+
+	private SearchPlayer srpPlayer;
+
+	@Setup
+	public void setup() {
+		gamEngine = new GameEngine(5L);
+		gamEngine.resetGame();
+		BenchmarkBoards.fill(gamEngine.getBoard(), iFill, 0, 5L);
+	}
+
+	@Setup(Level.Invocation)
+	public void createPlayer() {
+		srpPlayer = new SearchPlayer(Heuristic.DEFAULT, iDepth,
+			SearchPlayer.DEFAULT_TABLE_BITS,
+			isParallel ? ForkJoinPool.commonPool() : null);
+	}
+
+	/**
+	 * Searches every placement of the current piece, and of the pieces
+	 * after it as deep as the search goes.
+	 * @return Whether a placement was found.
+	 */
+	@Benchmark
+	public boolean plan() {
+		return srpPlayer.plan(gamEngine);
+	}
+
+}
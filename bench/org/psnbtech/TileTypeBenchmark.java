@@ -0,0 +1,55 @@
+package org.psnbtech;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@code TileType} inset queries used by rotation, collision
+ * and the next piece preview.
+ * @author Brendan Jones
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TileTypeBenchmark {
+
+	private TileType[] tilTypes;
+
+	@Setup
+	public void setup() {
+		tilTypes = TileType.values();
+	}
+
+	/**
+	 * Queries all four insets of every type and rotation.
+	 * @return The sum of the insets.
+	 */
+	@Benchmark
+	public int allInsets() {
+		int iSum = 0;
+		for(TileType tilType : tilTypes) {
+			for(int iRotation = 0; iRotation < 4; iRotation++) {
+				iSum += tilType.getLeftInset(iRotation)
+					+ tilType.getRightInset(iRotation)
+					+ tilType.getTopInset(iRotation)
+					+ tilType.getBottomInset(iRotation);
+			}
+		}
+		return iSum;
+	}
+
+}
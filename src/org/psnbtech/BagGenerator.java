@@ -0,0 +1,48 @@
+package org.psnbtech;
+
+/**
+ * The {@code BagGenerator} class deals every type once, in a random order,
+ * before dealing any type again, like drawing pieces from a bag that is
+ * refilled when it's empty. A type is never more than twelve pieces away.
+ * @author Brendan Jones
+ *
+ */
+public class BagGenerator extends PieceGenerator {
+
+	/**
+	 * The bag, shuffled in place every time it's refilled.
+	 */
+	private final TileType[] tilBag;
+
+	/**
+	 * The index of the next piece to take from the bag.
+	 */
+	private int iNext;
+
+	/**
+	 * Creates a new BagGenerator.
+	 * @param lSeed The seed of the random number generator.
+	 * @param iLookahead The number of upcoming pieces that can be looked at.
+	 */
+	public BagGenerator(long lSeed, int iLookahead) {
+		super(lSeed, iLookahead);
+		this.tilBag = TYPES.clone();
+		this.iNext = tilBag.length;
+	}
+
+	@Override
+	protected TileType pick() {
+		if(iNext == tilBag.length) {
+			//Refill the bag with a Fisher-Yates shuffle.
+			for(int iI = tilBag.length - 1; iI > 0; iI--) {
+				int iJ = rndRandom.nextInt(iI + 1);
+				TileType tilSwap = tilBag[iI];
+				tilBag[iI] = tilBag[iJ];
+				tilBag[iJ] = tilSwap;
+			}
+			iNext = 0;
+		}
+		return tilBag[iNext++];
+	}
+
+}
@@ -0,0 +1,235 @@
+package org.psnbtech;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/**
+ * The {@code BatchSimulation} class plays a large number of independent
+ * games headless, spread over a fixed pool of threads, and adds up their
+ * results. Every game gets it's own seed, derived from a master seed, so a
+ * batch can be reproduced exactly.
+ * @author Brendan Jones
+ *
+ */
+public class BatchSimulation {
+
+	/**
+	 * The number of games to play when none is given on the command line.
+	 */
+	private static final int DEFAULT_GAMES = 10000;
+
+	/**
+	 * The maximum number of pieces to play per game when none is given on
+	 * the command line.
+	 */
+	private static final int DEFAULT_MAX_PIECES = 100000;
+
+	/**
+	 * The number of games to play.
+	 */
+	private final int iGames;
+
+	/**
+	 * The number of threads to play the games on.
+	 */
+	private final int iThreads;
+
+	/**
+	 * The master seed that every game's seed is derived from.
+	 */
+	private final long lSeed;
+
+	/**
+	 * The number of pieces after which a game is stopped, even if it's
+	 * not over yet.
+	 */
+	private final int iMaxPieces;
+
+	/**
+	 * Creates the player of a game from the game's seed.
+	 */
+	private final LongFunction<Player> fncPlayers;
+
+	/**
+	 * The name of the strategy the games' pieces are dealt with.
+	 */
+	private final String sGenerator;
+
+	/**
+	 * Creates a new BatchSimulation.
+	 * @param iGames The number of games to play.
+	 * @param iThreads The number of threads to play the games on.
+	 * @param lSeed The master seed that every game's seed is derived from.
+	 * @param iMaxPieces The number of pieces after which a game is stopped.
+	 * @param fncPlayers Creates the player of a game from the game's seed.
+	 */
+	public BatchSimulation(int iGames, int iThreads, long lSeed,
+		int iMaxPieces, LongFunction<Player> fncPlayers) {
+
+		this(iGames, iThreads, lSeed, iMaxPieces, fncPlayers, "uniform");
+	}
+
+	/**
+	 * Creates a new BatchSimulation that deals pieces with the given
+	 * strategy.
+	 * @param iGames The number of games to play.
+	 * @param iThreads The number of threads to play the games on.
+	 * @param lSeed The master seed that every game's seed is derived from.
+	 * @param iMaxPieces The number of pieces after which a game is stopped.
+	 * @param fncPlayers Creates the player of a game from the game's seed.
+	 * @param sGenerator The name of the piece generator strategy, as
+	 * taken by {@code PieceGenerator.create}.
+	 */
+	public BatchSimulation(int iGames, int iThreads, long lSeed,
+		int iMaxPieces, LongFunction<Player> fncPlayers, String sGenerator) {
+
+		//Fail now, rather than on every thread.
+		PieceGenerator.create(sGenerator, 0L, 1);
+
+		this.iGames = iGames;
+		this.iThreads = Math.max(1, Math.min(iThreads, iGames));
+		this.lSeed = lSeed;
+		this.iMaxPieces = iMaxPieces;
+		this.fncPlayers = fncPlayers;
+		this.sGenerator = sGenerator;
+	}
+
+	/**
+	 * Plays every game and waits for them to finish.
+	 * @return The combined results of the games.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public SimulationStats run() throws InterruptedException {
+		/*
+		 * Derive the seed of every game up front, so the results do
+		 * not depend on which thread ends up playing which game.
+		 */
+		final long[] lSeeds = new long[iGames];
+		SplittableRandom rndSeeds = new SplittableRandom(lSeed);
+		for(int iI = 0; iI < iGames; iI++) {
+			lSeeds[iI] = rndSeeds.nextLong();
+		}
+
+		/*
+		 * Each thread plays every iThreads'th game and keeps it's own
+		 * totals, so the threads never have to share anything until
+		 * they are done.
+		 */
+		ExecutorService excPool = Executors.newFixedThreadPool(iThreads);
+		long lStart = System.nanoTime();
+		SimulationStats staTotal = new SimulationStats();
+		try {
+			List<Future<SimulationStats>> lstResults =
+				new ArrayList<Future<SimulationStats>>(iThreads);
+			for(int iT = 0; iT < iThreads; iT++) {
+				final int iFirst = iT;
+				lstResults.add(excPool.submit(
+					new Callable<SimulationStats>() {
+
+					@Override
+					public SimulationStats call() {
+						SimulationStats staStats =
+							new SimulationStats();
+						for(int iI = iFirst; iI < iGames;
+							iI += iThreads) {
+
+							staStats.add(playGame(lSeeds[iI]));
+						}
+						return staStats;
+					}
+				}));
+			}
+			for(Future<SimulationStats> futResult : lstResults) {
+				staTotal.merge(futResult.get());
+			}
+		} catch(ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			excPool.shutdownNow();
+		}
+		staTotal.setElapsedNanos(System.nanoTime() - lStart);
+		return staTotal;
+	}
+
+	/**
+	 * Plays a single game until it's over or the piece limit is reached.
+	 * @param lGameSeed The seed of the game.
+	 * @return The finished game.
+	 */
+	private GameEngine playGame(long lGameSeed) {
+		return playGame(sGenerator, lGameSeed, fncPlayers.apply(lGameSeed),
+			iMaxPieces);
+	}
+
+	/**
+	 * Plays a single game headless until it's over or the piece limit is
+	 * reached. The player moves before every step of the game, and the
+	 * game is scored by the engine the same as an interactive one.
+	 * @param sGenerator The name of the piece generator strategy.
+	 * @param lGameSeed The seed of the game.
+	 * @param plaPlayer The player.
+	 * @param iMaxPieces The number of pieces after which the game is
+	 * stopped.
+	 * @return The finished game.
+	 */
+	static GameEngine playGame(String sGenerator, long lGameSeed,
+		Player plaPlayer, int iMaxPieces) {
+
+		GameEngine gamEngine = new GameEngine(PieceGenerator.create(
+			sGenerator, lGameSeed, GameEngine.LOOKAHEAD));
+		gamEngine.resetGame();
+		while(!gamEngine.isGameOver() &&
+			gamEngine.getPieceCount() < iMaxPieces) {
+
+			plaPlayer.move(gamEngine);
+			gamEngine.updateGame();
+		}
+		return gamEngine;
+	}
+
+	/**
+	 * Plays a batch of games and prints the results.
+	 * @param args The number of games, the number of threads, the master
+	 * seed, the piece limit per game, the piece generator strategy and the
+	 * player ("random" or "search"), all optional.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int iGames = (args.length > 0) ? Integer.parseInt(args[0])
+			: DEFAULT_GAMES;
+		int iThreads = (args.length > 1) ? Integer.parseInt(args[1])
+			: Runtime.getRuntime().availableProcessors();
+		long lSeed = (args.length > 2) ? Long.parseLong(args[2])
+			: System.nanoTime();
+		int iMaxPieces = (args.length > 3) ? Integer.parseInt(args[3])
+			: DEFAULT_MAX_PIECES;
+		String sGenerator = (args.length > 4) ? args[4] : "uniform";
+		final String sPlayer = (args.length > 5) ? args[5] : "random";
+		if(!sPlayer.equals("random") && !sPlayer.equals("search")) {
+			throw new IllegalArgumentException("Unknown player: " + sPlayer);
+		}
+
+		System.out.printf("Playing %d games on %d threads (seed %d, %s, %s)%n",
+			iGames, iThreads, lSeed, sGenerator, sPlayer);
+		BatchSimulation simBatch = new BatchSimulation(iGames, iThreads,
+			lSeed, iMaxPieces, new LongFunction<Player>() {
+
+			@Override
+			public Player apply(long lGameSeed) {
+				if(sPlayer.equals("search")) {
+					return new SearchPlayer();
+				}
+				return new RandomPlayer(~lGameSeed);
+			}
+		}, sGenerator);
+		simBatch.run().print(System.out);
+	}
+
+}
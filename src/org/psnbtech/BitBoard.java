@@ -0,0 +1,215 @@
+package org.psnbtech;
+
+import java.util.SplittableRandom;
+
+/**
+ * The {@code BitBoard} class is a stripped down {@link Board} for searching
+ * ahead. It only holds which tiles are occupied, as one bitmask per row, so
+ * copying a board is a single array copy and a search can try out thousands
+ * of placements a second without allocating.
+ * <p>
+ * Boards are hashed with Zobrist hashing, by rows: every possible mask of
+ * every row has a random key, and the hash of a board is the exclusive or
+ * of the keys of it's rows. Equal boards always hash the same, and different
+ * boards almost never do.
+ * @author Brendan Jones
+ *
+ */
+public final class BitBoard {
+
+	/**
+	 * The number of columns on the board.
+	 */
+	public static final int COL_COUNT = Board.COL_COUNT;
+
+	/**
+	 * The number of rows on the board.
+	 */
+	public static final int ROW_COUNT = Board.ROW_COUNT;
+
+	/**
+	 * The random key of every mask of every row.
+	 */
+	private static final long[][] ROW_KEYS = createKeys();
+
+	/**
+	 * The occupied columns of every row. Bit {@code n} of a row is set
+	 * when column {@code n} holds a tile.
+	 */
+	private final int[] iRowMasks;
+
+	/**
+	 * Creates a new, empty BitBoard.
+	 */
+	public BitBoard() {
+		this.iRowMasks = new int[ROW_COUNT];
+	}
+
+	/**
+	 * Creates the random keys of the rows, from a fixed seed so that hashes
+	 * are the same from one run to the next.
+	 * @return The keys, indexed by row then mask.
+	 */
+	private static long[][] createKeys() {
+		SplittableRandom rndKeys = new SplittableRandom(0x5EED5EEDL);
+		long[][] lKeys = new long[ROW_COUNT][1 << COL_COUNT];
+		for(int iY = 0; iY < ROW_COUNT; iY++) {
+			//An empty row adds nothing to the hash.
+			for(int iMask = 1; iMask < lKeys[iY].length; iMask++) {
+				lKeys[iY][iMask] = rndKeys.nextLong();
+			}
+		}
+		return lKeys;
+	}
+
+	/**
+	 * Copies the occupied tiles of a game board onto this one.
+	 * @param brdOther The board to copy.
+	 */
+	public void copyFrom(Board brdOther) {
+		for(int iY = 0; iY < ROW_COUNT; iY++) {
+			iRowMasks[iY] = brdOther.getRowMask(iY);
+		}
+	}
+
+	/**
+	 * Copies another board onto this one.
+	 * @param bbdOther The board to copy.
+	 */
+	public void copyFrom(BitBoard bbdOther) {
+		System.arraycopy(bbdOther.iRowMasks, 0, iRowMasks, 0, ROW_COUNT);
+	}
+
+	/**
+	 * Copies a board out of an array that holds the rows of boards back to
+	 * back.
+	 * @param iBoards The rows of the boards.
+	 * @param iOffset The index of the board's first row.
+	 */
+	public void copyFrom(int[] iBoards, int iOffset) {
+		System.arraycopy(iBoards, iOffset, iRowMasks, 0, ROW_COUNT);
+	}
+
+	/**
+	 * Copies this board into an array that holds the rows of boards back
+	 * to back.
+	 * @param iBoards The rows of the boards.
+	 * @param iOffset The index to copy the board's first row to.
+	 */
+	public void copyTo(int[] iBoards, int iOffset) {
+		System.arraycopy(iRowMasks, 0, iBoards, iOffset, ROW_COUNT);
+	}
+
+	/**
+	 * Determines whether or not a piece can be placed at the coordinates.
+	 * The same test as {@code Board.isValidAndEmpty}.
+	 * @param tilType The type of piece to use.
+	 * @param iX The x coordinate of the piece.
+	 * @param iY The y coordinate of the piece.
+	 * @param iRotation The rotation of the piece.
+	 * @return Whether or not the position is valid.
+	 */
+	public boolean isValidAndEmpty(TileType tilType, int iX, int iY,
+		int iRotation) {
+
+		if(iX < -tilType.getLeftInset(iRotation) || iX +
+			tilType.getDimension() -
+			tilType.getRightInset(iRotation) >= COL_COUNT) {
+			return false;
+		}
+
+		if(iY < -tilType.getTopInset(iRotation) || iY +
+			tilType.getDimension() -
+			tilType.getBottomInset(iRotation) >= ROW_COUNT) {
+			return false;
+		}
+
+		int iLast = tilType.getDimension() -
+			tilType.getBottomInset(iRotation);
+		for(int iRow = tilType.getTopInset(iRotation); iRow <= iLast;
+			iRow++) {
+			int iMask = tilType.getRowMask(iRotation, iRow);
+			iMask = (iX >= 0) ? iMask << iX : iMask >>> -iX;
+			if((iRowMasks[iY + iRow] & iMask) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the row a piece lands on when dropped from a valid position.
+	 * @param tilType The type of piece to use.
+	 * @param iX The x coordinate of the piece.
+	 * @param iY The y coordinate of the piece.
+	 * @param iRotation The rotation of the piece.
+	 * @return The row the piece lands on.
+	 */
+	public int getLandingRow(TileType tilType, int iX, int iY,
+		int iRotation) {
+
+		while(isValidAndEmpty(tilType, iX, iY + 1, iRotation)) {
+			iY++;
+		}
+		return iY;
+	}
+
+	/**
+	 * Adds a piece to the board and removes any lines it completes.
+	 * @param tilType The type of piece to place.
+	 * @param iX The x coordinate of the piece.
+	 * @param iY The y coordinate of the piece.
+	 * @param iRotation The rotation of the piece.
+	 * @return The number of lines that were cleared.
+	 */
+	public int addPiece(TileType tilType, int iX, int iY, int iRotation) {
+		boolean isFull = false;
+		int iLast = tilType.getDimension() -
+			tilType.getBottomInset(iRotation);
+		for(int iRow = tilType.getTopInset(iRotation); iRow <= iLast;
+			iRow++) {
+			int iMask = tilType.getRowMask(iRotation, iRow);
+			iMask = (iX >= 0) ? iMask << iX : iMask >>> -iX;
+			iRowMasks[iY + iRow] |= iMask;
+			isFull |= iRowMasks[iY + iRow] == Board.FULL_ROW;
+		}
+		if(!isFull) {
+			return 0;
+		}
+
+		//Compact the board from the bottom up, as Board.checkLines does.
+		int iWrite = ROW_COUNT - 1;
+		for(int iRead = ROW_COUNT - 1; iRead >= 0; iRead--) {
+			if(iRowMasks[iRead] != Board.FULL_ROW) {
+				iRowMasks[iWrite--] = iRowMasks[iRead];
+			}
+		}
+		int iCleared = iWrite + 1;
+		while(iWrite >= 0) {
+			iRowMasks[iWrite--] = 0;
+		}
+		return iCleared;
+	}
+
+	/**
+	 * Gets the bitmask of the occupied columns of a row.
+	 * @param iY The row.
+	 * @return The row's bitmask.
+	 */
+	public int getRowMask(int iY) {
+		return iRowMasks[iY];
+	}
+
+	/**
+	 * Gets the Zobrist hash of the board.
+	 * @return The hash.
+	 */
+	public long getHash() {
+		long lHash = 0L;
+		for(int iY = 0; iY < ROW_COUNT; iY++) {
+			lHash ^= ROW_KEYS[iY][iRowMasks[iY]];
+		}
+		return lHash;
+	}
+
+}
@@ -0,0 +1,375 @@
+package org.psnbtech;
+
+import java.util.Arrays;
+
+/**
+ * The {@code Board} class holds the tiles that have been locked onto the game
+ * grid. Each row is stored as a bitmask of its occupied columns so that
+ * collision and full row checks are single mask operations, and a parallel
+ * color plane stores which type of piece each tile came from so that it can
+ * be drawn.
+ * @author Brendan Jones
+ *
+ */
+public class Board {
+
+	/**
+	 * The number of columns on the board.
+	 */
+	public static final int COL_COUNT = BoardPanel.COL_COUNT;
+
+	/**
+	 * The total number of rows that the board contains.
+	 */
+	public static final int ROW_COUNT = BoardPanel.ROW_COUNT;
+
+	/**
+	 * The bitmask of a row that has every column occupied.
+	 */
+	public static final int FULL_ROW = (1 << COL_COUNT) - 1;
+
+	/**
+	 * The tile types, indexed by ordinal. Cached because
+	 * {@code TileType.values()} clones the array on every call.
+	 */
+	private static final TileType[] TYPES = TileType.values();
+
+	/**
+	 * The occupied columns of every row. Bit {@code n} of a row is set
+	 * when column {@code n} holds a tile.
+	 */
+	private int[] iRowMasks;
+
+	/**
+	 * The occupied rows of every column, the transpose of the row masks.
+	 * Bit {@code n} of a column is set when row {@code n} holds a tile, so
+	 * the first tile beneath a point in a column is a single bit scan.
+	 */
+	private int[] iColMasks;
+
+	/**
+	 * The color plane of the board. Holds the ordinal of the tile's type
+	 * plus one, or 0 when the tile is empty. Only used for drawing.
+	 */
+	private byte[][] bColorPlane;
+
+	/**
+	 * The rows removed by the last call to {@code checkLines}, from the
+	 * bottom of the board up.
+	 */
+	private int[] iClearedRows;
+
+	/**
+	 * The number of rows removed by the last call to {@code checkLines}.
+	 */
+	private int iClearedCount;
+
+	/**
+	 * Scratch space holding the color rows of the full rows while the
+	 * board is compacted, so they can be recycled as the new top rows.
+	 */
+	private byte[][] bFreedRows;
+
+	/**
+	 * Incremented every time a tile changes, so that copies of the board
+	 * can tell whether they are out of date.
+	 */
+	private int iVersion;
+
+	/**
+	 * Creates a new, empty Board.
+	 */
+	public Board() {
+		this.iRowMasks = new int[ROW_COUNT];
+		this.iColMasks = new int[COL_COUNT];
+		this.bColorPlane = new byte[ROW_COUNT][COL_COUNT];
+		this.iClearedRows = new int[ROW_COUNT];
+		this.bFreedRows = new byte[ROW_COUNT][];
+	}
+
+	/**
+	 * Resets the board and clears away any tiles.
+	 */
+	public void clear() {
+		for(int iI = 0; iI < ROW_COUNT; iI++) {
+			iRowMasks[iI] = 0;
+			Arrays.fill(bColorPlane[iI], (byte)0);
+		}
+		Arrays.fill(iColMasks, 0);
+		iVersion++;
+	}
+
+	/**
+	 * Copies the tiles of another board onto this one.
+	 * @param brdOther The board to copy.
+	 */
+	public void copyFrom(Board brdOther) {
+		System.arraycopy(brdOther.iRowMasks, 0, iRowMasks, 0, ROW_COUNT);
+		System.arraycopy(brdOther.iColMasks, 0, iColMasks, 0, COL_COUNT);
+		for(int iI = 0; iI < ROW_COUNT; iI++) {
+			System.arraycopy(brdOther.bColorPlane[iI], 0,
+				bColorPlane[iI], 0, COL_COUNT);
+		}
+		iVersion++;
+	}
+
+	/**
+	 * Determines whether or not a piece can be placed at the coordinates.
+	 * @param tilType The type of piece to use.
+	 * @param iX The x coordinate of the piece.
+	 * @param iY The y coordinate of the piece.
+	 * @param iRotation The rotation of the piece.
+	 * @return Whether or not the position is valid.
+	 */
+	public boolean isValidAndEmpty(TileType tilType, int iX, int iY,
+		int iRotation) {
+
+		//Ensure the piece is in a valid column.
+		if(iX < -tilType.getLeftInset(iRotation) || iX +
+			tilType.getDimension() -
+			tilType.getRightInset(iRotation) >= COL_COUNT) {
+			return false;
+		}
+
+		//Ensure the piece is in a valid row.
+		if(iY < -tilType.getTopInset(iRotation) || iY +
+			tilType.getDimension() -
+			tilType.getBottomInset(iRotation) >= ROW_COUNT) {
+			return false;
+		}
+
+		/*
+		 * Shift the precomputed mask of every row of the piece to the
+		 * given column and test it against the board row in one
+		 * operation. Only the rows between the insets hold tiles, so the
+		 * rest are skipped as they may lie outside of the board. A
+		 * negative column only happens when the leftmost columns of the
+		 * piece are empty, so the bits shifted out are always clear.
+		 */
+		int iLast = tilType.getDimension() - 
+			tilType.getBottomInset(iRotation);
+		for(int iRow = tilType.getTopInset(iRotation); iRow <= iLast; 
+			iRow++) {
+			int iMask = tilType.getRowMask(iRotation, iRow);
+			iMask = (iX >= 0) ? iMask << iX : iMask >>> -iX;
+			if((iRowMasks[iY + iRow] & iMask) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds how many rows a piece can fall before it lands on a tile or
+	 * the bottom of the board. Only the lowest tile of each of the piece's
+	 * columns is looked at, so this takes the same time however far the
+	 * piece falls. The piece is expected to be in a valid position, and
+	 * every column of a piece is expected to be a single run of tiles.
+	 * @param tilType The type of piece to use.
+	 * @param iX The x coordinate of the piece.
+	 * @param iY The y coordinate of the piece.
+	 * @param iRotation The rotation of the piece.
+	 * @return The number of rows the piece can fall.
+	 */
+	public int getDropDistance(TileType tilType, int iX, int iY,
+		int iRotation) {
+
+		int iDistance = ROW_COUNT;
+		int iLast = tilType.getDimension() - tilType.getRightInset(iRotation);
+		for(int iCol = tilType.getLeftInset(iRotation); iCol <= iLast;
+			iCol++) {
+
+			int iBottom = tilType.getColumnBottom(iRotation, iCol);
+			if(iBottom < 0) {
+				continue;
+			}
+
+			/*
+			 * Shift away the rows down to the lowest tile, so the
+			 * lowest set bit left is the first tile beneath it.
+			 */
+			int iRow = iY + iBottom;
+			int iBelow = iColMasks[iX + iCol] >>> (iRow + 1);
+			int iFall = (iBelow == 0) ? ROW_COUNT - 1 - iRow :
+				Integer.numberOfTrailingZeros(iBelow);
+			if(iFall < iDistance) {
+				iDistance = iFall;
+			}
+		}
+		return iDistance;
+	}
+
+	/**
+	 * Adds a piece to the game board. Note: Doesn't check for existing
+	 * pieces, and will overwrite them if they exist.
+	 * @param tilType The type of piece to place.
+	 * @param iX The x coordinate of the piece.
+	 * @param iY The y coordinate of the piece.
+	 * @param iRotation The rotation of the piece.
+	 */
+	public void addPiece(TileType tilType, int iX, int iY, int iRotation) {
+		for(int iI = 0; iI < tilType.getTileCount(); iI++) {
+			setTile(iX + tilType.getTileCol(iRotation, iI), 
+				iY + tilType.getTileRow(iRotation, iI), tilType);
+		}
+	}
+
+	/**
+	 * Checks the board to see if any lines have been cleared, and
+	 * removes them from the game. The rows that were removed can be
+	 * found with {@code getClearedRow}.
+	 * @return The number of lines that were cleared.
+	 */
+	public int checkLines() {
+		/*
+		 * Compact the board in a single pass from the bottom up. Every
+		 * row that isn't full is moved straight to it's final position,
+		 * so no row is moved more than once no matter how many lines
+		 * were cleared. Rows are moved as a whole, so the color plane
+		 * only needs it's row references moved.
+		 */
+		int iCleared = 0;
+		int iWrite = ROW_COUNT - 1;
+		for(int iRead = ROW_COUNT - 1; iRead >= 0; iRead--) {
+			if(iRowMasks[iRead] == FULL_ROW) {
+				iClearedRows[iCleared] = iRead;
+				bFreedRows[iCleared] = bColorPlane[iRead];
+				iCleared++;
+			} else {
+				if(iWrite != iRead) {
+					iRowMasks[iWrite] = iRowMasks[iRead];
+					bColorPlane[iWrite] = bColorPlane[iRead];
+				}
+				iWrite--;
+			}
+		}
+
+		/*
+		 * The rows of the cleared lines are emptied and recycled as the
+		 * new rows at the top of the board.
+		 */
+		for(int iI = 0; iI < iCleared; iI++) {
+			Arrays.fill(bFreedRows[iI], (byte)0);
+			iRowMasks[iI] = 0;
+			bColorPlane[iI] = bFreedRows[iI];
+			bFreedRows[iI] = null;
+		}
+		this.iClearedCount = iCleared;
+		if(iCleared > 0) {
+			removeColumnRows(iCleared);
+			iVersion++;
+		}
+		return iCleared;
+	}
+
+	/**
+	 * Removes the cleared rows from the column masks. Every bit above a
+	 * cleared row moves down by one, and the bits below stay where they
+	 * are. The rows are removed from the top of the board down, so the
+	 * rows still to be removed haven't moved yet.
+	 * @param iCleared The number of rows that were cleared.
+	 */
+	private void removeColumnRows(int iCleared) {
+		for(int iI = iCleared - 1; iI >= 0; iI--) {
+			int iRow = iClearedRows[iI];
+			int iAbove = (1 << iRow) - 1;
+			for(int iX = 0; iX < COL_COUNT; iX++) {
+				int iMask = iColMasks[iX];
+				iColMasks[iX] = ((iMask & iAbove) << 1) |
+					(iMask & ~(iAbove | (1 << iRow)));
+			}
+		}
+	}
+
+	/**
+	 * Gets one of the rows removed by the last call to
+	 * {@code checkLines}. The row is given as it was numbered before the
+	 * board was compacted.
+	 * @param iIndex The index of the row, from 0 to
+	 * {@code getClearedCount() - 1}, counting from the bottom up.
+	 * @return The row.
+	 */
+	public int getClearedRow(int iIndex) {
+		return iClearedRows[iIndex];
+	}
+
+	/**
+	 * Gets the number of rows removed by the last call to
+	 * {@code checkLines}.
+	 * @return The number of rows.
+	 */
+	public int getClearedCount() {
+		return iClearedCount;
+	}
+
+	/**
+	 * Checks to see if the tile is already occupied.
+	 * @param iX The x coordinate to check.
+	 * @param iY The y coordinate to check.
+	 * @return Whether or not the tile is occupied.
+	 */
+	public boolean isOccupied(int iX, int iY) {
+		return (iRowMasks[iY] & (1 << iX)) != 0;
+	}
+
+	/**
+	 * Gets the bitmask of the occupied columns of a row.
+	 * @param iY The row.
+	 * @return The row's bitmask.
+	 */
+	public int getRowMask(int iY) {
+		return iRowMasks[iY];
+	}
+
+	/**
+	 * Gets the height of a column, counted from the bottom of the board
+	 * up to and including it's highest tile.
+	 * @param iX The column.
+	 * @return The height of the column, or 0 if it's empty.
+	 */
+	public int getColumnHeight(int iX) {
+		int iMask = iColMasks[iX];
+		return (iMask == 0) ? 0 :
+			ROW_COUNT - Integer.numberOfTrailingZeros(iMask);
+	}
+
+	/**
+	 * Gets the version of the board. The version changes every time a
+	 * tile of the board changes.
+	 * @return The version.
+	 */
+	public int getVersion() {
+		return iVersion;
+	}
+
+	/**
+	 * Sets a tile located at the desired column and row.
+	 * @param iX The column.
+	 * @param iY The row.
+	 * @param tilType The value to set to the tile to, or null to empty it.
+	 */
+	public void setTile(int iX, int iY, TileType tilType) {
+		if(tilType == null) {
+			iRowMasks[iY] &= ~(1 << iX);
+			iColMasks[iX] &= ~(1 << iY);
+			bColorPlane[iY][iX] = 0;
+		} else {
+			iRowMasks[iY] |= 1 << iX;
+			iColMasks[iX] |= 1 << iY;
+			bColorPlane[iY][iX] = (byte)(tilType.ordinal() + 1);
+		}
+		iVersion++;
+	}
+
+	/**
+	 * Gets a tile by it's column and row.
+	 * @param iX The column.
+	 * @param iY The row.
+	 * @return The tile, or null if it's empty.
+	 */
+	public TileType getTile(int iX, int iY) {
+		int iType = bColorPlane[iY][iX];
+		return (iType == 0) ? null : TYPES[iType - 1];
+	}
+
+}
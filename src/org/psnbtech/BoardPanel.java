@@ -4,6 +4,9 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JPanel;
 
@@ -32,6 +35,11 @@ public class BoardPanel extends JPanel {
 	 */
 	public static final int COLOR_MAX = 255 - COLOR_MIN;
 	
+	/**
+	 * The alpha of the ghost piece's colors.
+	 */
+	public static final int GHOST_ALPHA = 100;
+	
 	/**
 	 * The width of the border around the game board.
 	 */
@@ -103,208 +111,84 @@ public class BoardPanel extends JPanel {
                 Font.BOLD, 12);
 	
 	/**
-	 * The Tetris instance.
+	 * The game engine whose state is displayed.
 	 */
-	private Tetris tetTetris;
+	private GameEngine gamEngine;
 	
 	/**
-	 * The tiles that make up the board.
+	 * The tiles that have been locked onto the board, drawn once and 
+	 * reused until the board changes. Only touched by the event thread.
 	 */
-	private TileType[][] tiles;
-		
+	private transient BufferedImage imgBoardLayer;
+	
 	/**
-	 * Crates a new GameBoard instance.
-	 * @param tetris The Tetris instance to use.
+	 * The version of the board that {@code imgBoardLayer} was drawn from.
 	 */
-	public BoardPanel(Tetris tetris) {
-		this.tetTetris = tetris;
-		this.tiles = new TileType[ROW_COUNT][COL_COUNT];
-		
-		setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
-		setBackground(Color.BLACK);
-	}
+	private int iLayerVersion;
 	
 	/**
-	 * Resets the board and clears away any tiles.
+	 * The background grid, drawn once onto a transparent image so it can 
+	 * be laid over the pieces with a single draw.
 	 */
-	public void clear() {
-		/*
-		 * Loop through every tilTile index and set it's value
-		 * to null to clear the board.
-		 */
-		for(int iI = 0; iI < ROW_COUNT; iI++) {
-			for(int iJ = 0; iJ < COL_COUNT; iJ++) {
-				tiles[iI][iJ] = null;
-			}
-		}
-	}
+	private transient BufferedImage imgGridLayer;
 	
 	/**
-	 * Determines whether or not a piece can be placed at the coordinates.
-	 * @param tilType THe tilType of piece to use.
-	 * @param iX The iX coordinate of the piece.
-	 * @param iY The iY coordinate of the piece.
-	 * @param iRotation The iRotation of the piece.
-	 * @return Whether or not the position is valid.
-	 */
-	public boolean isValidAndEmpty(TileType tilType, int iX, int iY, 
-                int iRotation) {
-				
-		//Ensure the piece is in a valid column.
-		if(iX < -tilType.getLeftInset(iRotation) || iX + 
-                        tilType.getDimension() - 
-                        tilType.getRightInset(iRotation) >= COL_COUNT) {
-			return false;
-		}
-		
-		//Ensure the piece is in a valid iRow.
-		if(iY < -tilType.getTopInset(iRotation) || iY + 
-                        tilType.getDimension() - 
-                        tilType.getBottomInset(iRotation) >= ROW_COUNT) {
-			return false;
-		}
-		
-		/*
-		 * Loop through every tilTile in the piece and see if it 
-		 * conflicts with an existing tilTile.
-                 *
-		 * Note: It's fine to do this even though it allows for wrapping 
-                 * because we've already
-		 * checked to make sure the piece is in a valid location.
-		 */
-		for(int iCol = 0; iCol < tilType.getDimension(); iCol++) {
-			for(int iRow = 0; iRow < tilType.getDimension(); 
-                                iRow++) {
-				if(tilType.isTile(iCol, iRow, iRotation) && 
-                                        isOccupied(iX + iCol, iY + iRow)) {
-					return false;
-				}
-			}
-		}
-		return true;
-	}
+	 * The sprites of every type of tile, at full size.
+	 */
+	private transient TileSprites sprSprites;
 	
 	/**
-	 * Adds a piece to the game board. Note: Doesn't check for existing 
-         * pieces,
-	 * and will overwrite them if they exist.
-	 * @param tilType The tilType of piece to place.
-	 * @param iX The iX coordinate of the piece.
-	 * @param iY The iY coordinate of the piece.
-	 * @param iRotation The iRotation of the piece.
+	 * The timings painting the panel is recorded into, or null.
 	 */
-	public void addPiece(TileType tilType, int iX, int iY, int iRotation) {
-		/*
-		 * Loop through every tilTile within the piece and add it
-		 * to the board only if the boolean that represents that
-		 * tilTile is set to true.
-		 */
-		for(int col = 0; col < tilType.getDimension(); col++) {
-			for(int row = 0; row < tilType.getDimension(); row++) {
-				if(tilType.isTile(col, row, iRotation)) {
-					setTile(col + iX, row + iY, tilType);
-				}
-			}
-		}
-	}
+	private transient Metrics mtsMetrics;
 	
 	/**
-	 * Checks the board to see if any lines have been cleared, and
-	 * removes them from the game.
-	 * @return The number of lines that were cleared.
+	 * Crates a new GameBoard instance.
+	 * @param gamEngine The game engine to display.
 	 */
-	public int checkLines() {
-		int iCompletedLines = 0;
+	public BoardPanel(GameEngine gamEngine) {
+		this.gamEngine = gamEngine;
 		
-		/*
-		 * Here we loop through every line and check it to see if
-		 * it's been cleared or not. If it has, we increment the
-		 * number of completed lines and check the next iRow.
-		 * 
-		 * The checkLine function handles clearing the line and
-		 * shifting the rest of the board down for us.
-		 */
-		for(int iRow = 0; iRow < ROW_COUNT; iRow++) {
-			if(checkLine(iRow)) {
-				iCompletedLines++;
-			}
-		}
-		return iCompletedLines;
+		setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
+		setBackground(Color.BLACK);
 	}
-			
-	/**
-	 * Checks whether or not {@code iRow} is full.
-	 * @param iLines The iRow to check.
-	 * @return Whether or not this iRow is full.
-	 */
-	private boolean checkLine(int iLines) {
-		/*
-		 * Iterate through every column in this iRow. If any of them are
-		 * empty, then the iRow is not full.
-		 */
-		for(int iCol = 0; iCol < COL_COUNT; iCol++) {
-			if(!isOccupied(iCol, iLines)) {
-				return false;
-			}
-		}
-		
-		/*
-		 * Since the iLines is filled, we need to 'remove' it from the 
-                 * game.
-		 * To do this, we simply shift every iRow above it down by one.
-		 */
-		for(int iRows = iLines - 1; iRows >= 0; iRows--) {
-			for(int iCols = 0; iCols < COL_COUNT; iCols++) {
-				setTile(iCols, iRows + 1, 
-                                        getTile(iCols, iRows));
-			}
+	
+	@Override
+	public void paintComponent(Graphics graGraphic) {
+		long lStart = System.nanoTime();
+                
+		super.paintComponent(graGraphic);
+                
+		render(graGraphic);
+                
+		if(mtsMetrics != null) {
+                    
+			mtsMetrics.record(Metric.PAINT, System.nanoTime() - lStart);
 		}
-		return true;
 	}
 	
-	
 	/**
-	 * Checks to see if the tilTile is already occupied.
-	 * @param iX The x coordinate to check.
-	 * @param iY The y coordinate to check.
-	 * @return Whether or not the tilTile is occupied.
+	 * Sets the timings that painting the panel is recorded into.
+	 * @param mtsMetrics The metrics, or null.
 	 */
-	private boolean isOccupied(int iX, int iY) {
-		return tiles[iY][iX] != null;
+	public void setMetrics(Metrics mtsMetrics) {
+		this.mtsMetrics = mtsMetrics;
 	}
 	
 	/**
-	 * Sets a tilTile located at the desired column and iRow.
-	 * @param iX The column.
-	 * @param iY The iRow.
-	 * @param tilType The value to set to the tilTile to.
-	 */
-	public void setTile(int iX, int iY, TileType tilType) {
-		tiles[iY][iX] = tilType;
-	}
-        
-        /**
-	 * Sets a tilTile located at the desired column and iRow in null
-	 * @param iX The column.
-	 * @param iY The iRow.
+	 * Draws the panel, without it's background, with any graphics object. 
+	 * Used by {@code paintComponent}, and by {@link GameCanvas} to draw 
+	 * straight onto it's back buffer from the game loop.
+	 * @param graGraphic The graphics object.
 	 */
-	public void nullTile(int  iX, int iY) {
-		tiles[iY][iX] = null;
-	}
+	public void render(Graphics graGraphic) {
 		
-	/**
-	 * Gets a tilTile by it's column and iRow.
-	 * @param iX The column.
-	 * @param iY The iRow.
-	 * @return The tilTile.
-	 */
-	public TileType getTile(int iX, int iY) {
-		return tiles[iY][iX];
-	}
-	
-	@Override
-	public void paintComponent(Graphics graGraphic) {
-		super.paintComponent(graGraphic);
+		/*
+		 * Draw the last frame published by the game loop, rather than
+		 * the live state of the game which may be half way through an
+		 * update.
+		 */
+		GameFrame frmFrame = gamEngine.getFrame();
 		
 		//This helps simplify the positioning of things.
 		graGraphic.translate(BORDER_WIDTH, BORDER_WIDTH);
@@ -313,7 +197,7 @@ public class BoardPanel extends JPanel {
 		 * Draw the board differently depending on the current game 
                  * state.
 		 */
-		if(tetTetris.isPaused()) {
+		if(frmFrame.isPaused()) {
                     
 			graGraphic.setFont(LARGE_FONT);
                         
@@ -325,7 +209,7 @@ public class BoardPanel extends JPanel {
                                 graGraphic.getFontMetrics().stringWidth(msg) 
                                         / 2, CENTER_Y);
                         
-		} else if(tetTetris.isNewGame() || tetTetris.isGameOver()) {
+		} else if(frmFrame.isNewGame() || frmFrame.isGameOver()) {
                     
 			graGraphic.setFont(LARGE_FONT);
                         
@@ -338,7 +222,7 @@ public class BoardPanel extends JPanel {
                          * ternary operator to change
 			 * the messages that are displayed.
 			 */
-			String sMsg = tetTetris.isNewGame() 
+			String sMsg = frmFrame.isNewGame() 
                                 ? "TETRIS" : "GAME OVER";
                         
 			graGraphic.drawString(sMsg, CENTER_X - 
@@ -348,7 +232,7 @@ public class BoardPanel extends JPanel {
 			graGraphic.setFont(SMALL_FONT);
                         
 			sMsg = "Press Enter to Play" + 
-                                (tetTetris.isNewGame() ? "" : " Again");
+                                (frmFrame.isNewGame() ? "" : " Again");
                         
 			graGraphic.drawString(sMsg, CENTER_X - 
                                 graGraphic.getFontMetrics().stringWidth(sMsg) 
@@ -356,24 +240,11 @@ public class BoardPanel extends JPanel {
 		} else {
 			
 			/*
-			 * Draw the tiles onto the board.
+			 * Draw the tiles onto the board. They only change when a 
+                         * piece is locked, so they're drawn from an image that 
+                         * is only redrawn when the board's version changes.
 			 */
-			for(int iX = 0; iX < COL_COUNT; iX++) {
-                            
-				for(int iY = HIDDEN_ROW_COUNT; 
-                                        iY < ROW_COUNT; iY++) {
-                                    
-					TileType tilTile = getTile(iX, iY);
-                                        
-					if(tilTile != null) {
-                                            
-						drawTile(tilTile, iX * TILE_SIZE, 
-                                                        (iY - HIDDEN_ROW_COUNT) 
-                                                                * TILE_SIZE, 
-                                                                    graGraphic);
-					}
-				}
-			}
+			graGraphic.drawImage(getBoardLayer(frmFrame), 0, 0, null);
 			
 			/*
 			 * Draw the current piece. This cannot be drawn like the 
@@ -382,10 +253,19 @@ public class BoardPanel extends JPanel {
 			 * need to be removed every frame which would just be 
 			 * slow and confusing.
 			 */
-			TileType tilType = tetTetris.getPieceType();
-			int iPieceCol = tetTetris.getPieceCol();
-			int iPieceRow = tetTetris.getPieceRow();
-			int iRotation = tetTetris.getPieceRotation();
+			TileType tilType = frmFrame.getPieceType();
+			int iPieceCol = frmFrame.getPieceCol();
+			int iPieceRow = frmFrame.getPieceRow();
+			int iRotation = frmFrame.getPieceRotation();
+			
+			/*
+			 * The piece is drawn part of the way towards the next 
+                         * row, depending on how long it's been since the frame 
+                         * was published, so that it falls smoothly rather than 
+                         * jumping a row at a time.
+			 */
+			int iFallOffset = (int)(frmFrame.getFallOffset(
+                                System.nanoTime()) * TILE_SIZE);
 			
 			//Draw the piece onto the board.
 			for(int iCol = 0; iCol < tilType.getDimension(); 
@@ -403,7 +283,8 @@ public class BoardPanel extends JPanel {
                                                                 TILE_SIZE, 
                                                         (iPieceRow + iRows - 
                                                                HIDDEN_ROW_COUNT) 
-                                                                * TILE_SIZE, 
+                                                                * TILE_SIZE 
+                                                                + iFallOffset, 
                                                                 graGraphic);
 					}
 				}
@@ -411,52 +292,31 @@ public class BoardPanel extends JPanel {
 			
 			/*
 			 * Draw the ghost (semi-transparent piece that shows 
-                         * where the current piece will land). I couldn't think 
-			 * of a better way to implement this so it'll have to do 
-			 * for now. We simply take the current position and move
-                         * down until we hit a iRow that would cause a collision
+                         * where the current piece will land). The engine 
+                         * keeps track of the row it lands on, and each type 
+                         * holds it's own ghost colors, so nothing has to be 
+                         * found or allocated here.
 			 */
-			Color clrBase = tilType.getBaseColor();
-			clrBase = new Color(clrBase.getRed(), clrBase.getGreen()
-                                , clrBase.getBlue(), 100);
-			for(int iLowest = iPieceRow; iLowest < 
-                                ROW_COUNT; iLowest++) {
+			int iLowest = frmFrame.getGhostRow();
+                        
+			for(int iCol = 0; iCol < tilType.getDimension(); 
+                                iCol++) {
                             
-				//If no collision is detected, try the next iRow
-				if(isValidAndEmpty(tilType, iPieceCol, 
-                                        iLowest, iRotation)) {
-                                    
-					continue;
-				}
-				
-				//Draw the ghost one iRow higher than the one 
-                                //the collision took place at.
-				iLowest--;
-				
-				//Draw the ghost piece.
-				for(int iCol = 0; iCol < tilType.getDimension(); 
-                                        iCol++) {
+				for(int iRow = 0; iRow < 
+                                        tilType.getDimension(); iRow++) {
                                     
-					for(int iRow = 0; iRow < 
-                                                tilType.getDimension(); iRow++) {
-                                            
-						if(iLowest + iRow >= 2 && 
-                                                        tilType.isTile(iCol, iRow, 
-                                                                iRotation)) {
-							drawTile(clrBase, 
-                                                             clrBase.brighter(), 
-                                                             clrBase.darker(), 
-                                                             (iPieceCol + iCol) * 
-                                                                     TILE_SIZE, 
-                                                             (iLowest + iRow - 
-                                                               HIDDEN_ROW_COUNT) 
-                                                                    * TILE_SIZE, 
-                                                             graGraphic);
-						}
+					if(iLowest + iRow >= 2 && 
+                                                tilType.isTile(iCol, iRow, 
+                                                        iRotation)) {
+						drawGhost(tilType, 
+                                                     (iPieceCol + iCol) * 
+                                                             TILE_SIZE, 
+                                                     (iLowest + iRow - 
+                                                       HIDDEN_ROW_COUNT) 
+                                                            * TILE_SIZE, 
+                                                     graGraphic);
 					}
 				}
-				
-				break;
 			}
 			
 			/*
@@ -466,17 +326,7 @@ public class BoardPanel extends JPanel {
                          * breaking them up.
 			 */
                         
-			graGraphic.setColor(Color.LIGHT_GRAY);
-			for(int iX = 0; iX < COL_COUNT; iX++) {
-				for(int iY = 0; iY < VISIBLE_ROW_COUNT; iY++) {
-					graGraphic.drawLine(0, iY * TILE_SIZE, 
-                                                COL_COUNT * TILE_SIZE, iY * 
-                                                        TILE_SIZE);
-					graGraphic.drawLine(iX * TILE_SIZE, 0, 
-                                                iX * TILE_SIZE, 
-                                                VISIBLE_ROW_COUNT * TILE_SIZE);
-				}
-			}
+			graGraphic.drawImage(getGridLayer(), 0, 0, null);
 		}
 		
 		/*
@@ -488,6 +338,192 @@ public class BoardPanel extends JPanel {
                         VISIBLE_ROW_COUNT);
 	}
 	
+	/**
+	 * Asks for the parts of the panel that differ between two frames to
+	 * be repainted. The whole panel is only repainted when the board or
+	 * the state of the game changes; otherwise only the areas covered by
+	 * the current piece and it's ghost, before and after, are. A falling
+	 * piece moves between frames, so it's area is repainted even when the
+	 * frame is the same.
+	 * @param frmLast The last frame that was repainted, or null.
+	 * @param frmFrame The frame to repaint.
+	 */
+	public void repaintChanges(GameFrame frmLast, GameFrame frmFrame) {
+            
+		if(frmLast == null || frmLast.isPaused() != frmFrame.isPaused() 
+                        || frmLast.isNewGame() != frmFrame.isNewGame() 
+                        || frmLast.isGameOver() != frmFrame.isGameOver() 
+                        || frmLast.getBoardVersion() != 
+                                frmFrame.getBoardVersion()) {
+                    
+			repaint();
+                        
+			return;
+		}
+                
+		//The pause, title and game over screens don't move.
+		if(frmFrame.isPaused() || frmFrame.isNewGame() || 
+                        frmFrame.isGameOver()) {
+                    
+			return;
+		}
+                
+		if(frmLast != frmFrame) {
+                    
+			repaintPiece(frmLast);
+		} else if(!frmFrame.isFalling()) {
+                    
+			return;
+		}
+                
+		repaintPiece(frmFrame);
+	}
+	
+	/**
+	 * Asks for the areas covered by a frame's current piece and ghost to be
+	 * repainted, including the row beneath the piece if it's falling.
+	 * @param frmFrame The frame.
+	 */
+	private void repaintPiece(GameFrame frmFrame) {
+            
+		TileType tilType = frmFrame.getPieceType();
+                
+		int iRotation = frmFrame.getPieceRotation();
+                
+		int iLeft = tilType.getLeftInset(iRotation);
+                
+		int iTop = tilType.getTopInset(iRotation);
+                
+		int iWidth = (tilType.getDimension() - 
+                        tilType.getRightInset(iRotation) - iLeft + 1) * TILE_SIZE;
+                
+		int iHeight = (tilType.getDimension() - 
+                        tilType.getBottomInset(iRotation) - iTop + 1) * TILE_SIZE;
+                
+		int iX = BORDER_WIDTH + (frmFrame.getPieceCol() + iLeft) * TILE_SIZE;
+                
+		repaint(iX, BORDER_WIDTH + (frmFrame.getPieceRow() + iTop - 
+                        HIDDEN_ROW_COUNT) * TILE_SIZE, iWidth + 1, iHeight + 1 + 
+                        (frmFrame.isFalling() ? TILE_SIZE : 0));
+                
+		repaint(iX, BORDER_WIDTH + (frmFrame.getGhostRow() + iTop - 
+                        HIDDEN_ROW_COUNT) * TILE_SIZE, iWidth + 1, iHeight + 1);
+	}
+	
+	/**
+	 * Gets the image of the tiles locked onto the board, redrawing it if 
+	 * the board has changed since it was last drawn.
+	 * @param frmFrame The frame being drawn.
+	 * @return The image of the board's tiles.
+	 */
+	private BufferedImage getBoardLayer(GameFrame frmFrame) {
+            
+		if(imgBoardLayer != null && 
+                        iLayerVersion == frmFrame.getBoardVersion()) {
+                    
+			return imgBoardLayer;
+		}
+                
+		if(imgBoardLayer == null) {
+                    
+			imgBoardLayer = createLayer(Transparency.OPAQUE);
+		}
+                
+		Graphics graLayer = imgBoardLayer.createGraphics();
+                
+		try {
+                    
+			graLayer.setColor(Color.BLACK);
+                        
+			graLayer.fillRect(0, 0, imgBoardLayer.getWidth(), 
+                                imgBoardLayer.getHeight());
+                        
+			for(int iX = 0; iX < COL_COUNT; iX++) {
+                            
+				for(int iY = HIDDEN_ROW_COUNT; 
+                                        iY < ROW_COUNT; iY++) {
+                                    
+					TileType tilTile = frmFrame.getTile(iX, iY);
+                                        
+					if(tilTile != null) {
+                                            
+						drawTile(tilTile, iX * TILE_SIZE, 
+                                                        (iY - HIDDEN_ROW_COUNT) 
+                                                                * TILE_SIZE, 
+                                                                    graLayer);
+					}
+				}
+			}
+		} finally {
+                    
+			graLayer.dispose();
+		}
+                
+		iLayerVersion = frmFrame.getBoardVersion();
+                
+		return imgBoardLayer;
+	}
+	
+	/**
+	 * Gets the image of the background grid, drawing it the first time.
+	 * @return The image of the grid.
+	 */
+	private BufferedImage getGridLayer() {
+            
+		if(imgGridLayer == null) {
+                    
+			imgGridLayer = createLayer(Transparency.BITMASK);
+                        
+			Graphics graLayer = imgGridLayer.createGraphics();
+                        
+			graLayer.setColor(Color.LIGHT_GRAY);
+                        
+			for(int iY = 0; iY < VISIBLE_ROW_COUNT; iY++) {
+                            
+				graLayer.drawLine(0, iY * TILE_SIZE, 
+                                        COL_COUNT * TILE_SIZE, iY * TILE_SIZE);
+			}
+                        
+			for(int iX = 0; iX < COL_COUNT; iX++) {
+                            
+				graLayer.drawLine(iX * TILE_SIZE, 0, iX * TILE_SIZE, 
+                                        VISIBLE_ROW_COUNT * TILE_SIZE);
+			}
+                        
+			graLayer.dispose();
+		}
+                
+		return imgGridLayer;
+	}
+	
+	/**
+	 * Creates an image the size of the visible board, one pixel larger 
+	 * each way so that lines along the far edges fit. The image matches 
+	 * the screen's format when there is one, so drawing it is a straight 
+	 * copy.
+	 * @param iTransparency The transparency of the image.
+	 * @return The image.
+	 */
+	private BufferedImage createLayer(int iTransparency) {
+            
+		int iWidth = COL_COUNT * TILE_SIZE + 1;
+                
+		int iHeight = VISIBLE_ROW_COUNT * TILE_SIZE + 1;
+                
+		GraphicsConfiguration gcfConfig = getGraphicsConfiguration();
+                
+		if(gcfConfig != null) {
+                    
+			return gcfConfig.createCompatibleImage(iWidth, iHeight, 
+                                iTransparency);
+		}
+                
+		return new BufferedImage(iWidth, iHeight, 
+                        (iTransparency == Transparency.OPAQUE) ? 
+                                BufferedImage.TYPE_INT_RGB : 
+                                BufferedImage.TYPE_INT_ARGB);
+	}
+	
 	/**
 	 * Draws a tilTile onto the board.
 	 * @param tilType The type of tilTile to draw.
@@ -498,59 +534,38 @@ public class BoardPanel extends JPanel {
 	private void drawTile(TileType tilType, int iX, int iY, Graphics 
                 graGraphics) {
             
-		drawTile(tilType.getBaseColor(), tilType.getLightColor(), 
-                        tilType.getDarkColor(), iX, iY, graGraphics);
+		getSprites().drawTile(graGraphics, tilType, iX, iY);
 	}
 	
 	/**
-	 * Draws a tilTile onto the board.
-	 * @param clrBase The base color of tilTile.
-	 * @param clrLight The light color of the tilTile.
-	 * @param clrDark The dark color of the tilTile.
+	 * Draws the ghost of a tilTile onto the board.
+	 * @param tilType The type of tilTile to draw.
 	 * @param iX The column.
 	 * @param iY The iRow.
 	 * @param graGraphics The graphics object.
 	 */
-	private void drawTile(Color clrBase, Color clrLight, Color clrDark, 
-                int iX, int iY, Graphics graGraphics) {
-		
-		/*
-		 * Fill the entire tilTile with the base color.
-		 */
-		graGraphics.setColor(clrBase);
-                
-		graGraphics.fillRect(iX, iY, TILE_SIZE, TILE_SIZE);
-		
-		/*
-		 * Fill the bottom and right edges of the tilTile 
-                 * with the dark shading color.
-		 */
-		graGraphics.setColor(clrDark);
-                
-		graGraphics.fillRect(iX, iY + TILE_SIZE - SHADE_WIDTH, 
-                        TILE_SIZE, SHADE_WIDTH);
-                
-		graGraphics.fillRect(iX + TILE_SIZE - SHADE_WIDTH, iY, 
-                        SHADE_WIDTH, TILE_SIZE);
-		
-		/*
-		 * Fill the top and left edges with the light shading. 
-                 * We draw a single line for each iRow or column rather than a 
-		 * rectangle so that we can draw a nice looking diagonal where 
-		 * the light and dark shading meet.
-		 */
-		graGraphics.setColor(clrLight);
-                
-		for(int iI = 0; iI < SHADE_WIDTH; iI++) {
+	private void drawGhost(TileType tilType, int iX, int iY, Graphics 
+                graGraphics) {
+            
+		getSprites().drawGhost(graGraphics, tilType, iX, iY);
+	}
+	
+	/**
+	 * Gets the sprites the tiles are drawn with, drawing them the first 
+	 * time they're needed, once the panel knows which screen it's on.
+	 * @return The tile sprites.
+	 */
+	private TileSprites getSprites() {
+            
+		if(sprSprites == null) {
                     
-			graGraphics.drawLine(iX, iY + iI, iX + 
-                                TILE_SIZE - iI - 1, iY + iI);
-                        
-			graGraphics.drawLine(iX + iI, iY, iX + iI, iY + 
-                                TILE_SIZE - iI - 1);
+			sprSprites = new TileSprites(TILE_SIZE, SHADE_WIDTH, 
+                                getGraphicsConfiguration());
 		}
+                
+		return sprSprites;
 	}
-        
+	
         /**
 	 * Get the amount of columns
 	 * @return Number of columns
@@ -2,20 +2,52 @@ package org.psnbtech;
 
 /**
  * The {@code Clock} class is responsible for tracking the number of cycles
- * that have elapsed over time. 
+ * that have elapsed over time. Time is kept in nanoseconds and the rate is
+ * held as a fixed point number, so the cycles are counted with integer
+ * arithmetic and no error builds up between updates however long the clock
+ * runs or however fast it's set.
  * @author Brendan Jones
  *
  */
 public class Clock {
 	
 	/**
-	 * The number of milliseconds that make up one cycle.
+	 * The number of fractional bits in the fixed point cycle rate.
 	 */
-	private float fMillisperSec;
+	private static final int RATE_BITS = 20;
 	
 	/**
-	 * The last time that the clock was updated (used for calculating the
-	 * delta time).
+	 * The number of nanoseconds in a second.
+	 */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	
+	/**
+	 * The amount the accumulator has to reach for a cycle to elapse: one
+	 * second, in nanoseconds, scaled by the fixed point rate.
+	 */
+	private static final long CYCLE = NANOS_PER_SECOND << RATE_BITS;
+	
+	/**
+	 * The most nanoseconds a single update can add. Longer gaps are cut 
+	 * short.
+	 */
+	private static final long MAX_DELTA = 60L * NANOS_PER_SECOND;
+	
+	/**
+	 * The number of cycles per second, as a fixed point number with 
+	 * {@code RATE_BITS} fractional bits.
+	 */
+	private long lCyclesPerSecond;
+	
+	/**
+	 * The most nanoseconds a single update can add at the current rate
+	 * without overflowing the accumulator.
+	 */
+	private long lMaxDelta;
+	
+	/**
+	 * The last time that the clock was updated, in nanoseconds (used for
+	 * calculating the delta time).
 	 */
 	private long lLastUpdate;
 	
@@ -25,9 +57,10 @@ public class Clock {
 	private int iElapsedCycles;
 	
 	/**
-	 * The amount of excess time towards the next elapsed cycle.
+	 * The time towards the next elapsed cycle, in nanoseconds multiplied 
+	 * by the fixed point rate. Always less than {@code CYCLE}.
 	 */
-	private float fExcessCycles;
+	private long lAccumulator;
 	
 	/**
 	 * Whether or not the clock is paused.
@@ -44,11 +77,25 @@ public class Clock {
 	}
 	
 	/**
-	 * Sets the number of cycles that elapse per second.
+	 * Sets the number of cycles that elapse per second. The time already
+	 * counted towards the next cycle is kept.
 	 * @param fCyclesPerSecond The number of cycles per second.
 	 */
 	public void setCyclesPerSecond(float fCyclesPerSecond) {
-		this.fMillisperSec = (1.0f / fCyclesPerSecond) * 1000;
+		this.lCyclesPerSecond = Math.max(1L, 
+                        Math.round((double)fCyclesPerSecond * (1L << RATE_BITS)));
+                
+		this.lMaxDelta = Math.min(MAX_DELTA, 
+                        (Long.MAX_VALUE - CYCLE) / lCyclesPerSecond);
+	}
+	
+	/**
+	 * Gets the number of cycles that elapse per second.
+	 * @return The number of cycles per second.
+	 */
+	public float getCyclesPerSecond() {
+            
+		return (float)((double)lCyclesPerSecond / (1L << RATE_BITS));
 	}
 	
 	/**
@@ -58,37 +105,57 @@ public class Clock {
 	 */
 	public void reset() {
 		this.iElapsedCycles = 0;
-		this.fExcessCycles = 0.0f;
-		this.lLastUpdate = getCurrentTime();
+		this.lAccumulator = 0L;
+		this.lLastUpdate = System.nanoTime();
 		this.isPaused = false;
 	}
 	
 	/**
-	 * Updates the clock stats. The number of elapsed cycles, as well as the
-	 * cycle excess will be calculated only if the clock is not paused. This
-	 * method should be called every frame even when paused to prevent any
-	 * nasty surprises with the delta time.
+	 * Updates the clock stats with the time that has passed since the last
+	 * update. The number of elapsed cycles, as well as the cycle excess 
+	 * will be calculated only if the clock is not paused. This method 
+	 * should be called every frame even when paused to prevent any nasty
+	 * surprises with the delta time.
 	 */
 	public void update() {
             
 		//Get the current time and calculate the delta time.
-		long currUpdate = getCurrentTime();
+		long lCurrUpdate = System.nanoTime();
                 
-		float delta = (float)(currUpdate - lLastUpdate) + fExcessCycles;
+		advance(lCurrUpdate - lLastUpdate);
 		
-		//Update the number of elapsed and excess ticks if we're not 
-                //paused.
-                
-		if(!isPaused) {
+		//Set the last update time for the next update cycle.
+		this.lLastUpdate = lCurrUpdate;
+	}
+	
+	/**
+	 * Advances the clock by a given amount of time, rather than by the
+	 * time that has actually passed. Lets the clock be driven by a fixed
+	 * timestep, so the same updates always produce the same cycles. Does
+	 * nothing while the clock is paused.
+	 * @param lDelta The number of nanoseconds to advance by.
+	 */
+	public void advance(long lDelta) {
+            
+		if(isPaused || lDelta <= 0L) {
                     
-			this.iElapsedCycles += 
-                                (int)Math.floor(delta / fMillisperSec);
-                        
-			this.fExcessCycles = delta % fMillisperSec;
+			return;
 		}
-		
-		//Set the last update time for the next update cycle.
-		this.lLastUpdate = currUpdate;
+                
+		/*
+		 * Every nanosecond adds the fixed point rate to the 
+		 * accumulator, and every whole CYCLE in it is one elapsed 
+		 * cycle. Only the remainder is carried over, and it's exact.
+		 */
+		long lTotal = lAccumulator + Math.min(lDelta, lMaxDelta) 
+                        * lCyclesPerSecond;
+                
+		long lCycles = lTotal / CYCLE;
+                
+		this.lAccumulator = lTotal - lCycles * CYCLE;
+                
+		this.iElapsedCycles = (int)Math.min(Integer.MAX_VALUE, 
+                        iElapsedCycles + lCycles);
 	}
 	
 	/**
@@ -141,15 +208,27 @@ public class Clock {
 	}
 	
 	/**
-	 * Calculates the current time in milliseconds using the computer's high
-	 * resolution clock. This is much more reliable than
-	 * {@code System.getCurrentTimeMillis()}, and quicker than
-	 * {@code System.nanoTime()}.
-	 * @return The current time in milliseconds.
+	 * Takes every cycle that has elapsed at once. The number of elapsed 
+	 * cycles is set back to 0.
+	 * @return The number of cycles that had elapsed.
+	 */
+	public int takeElapsedCycles() {
+            
+		int iCycles = iElapsedCycles;
+                
+		this.iElapsedCycles = 0;
+                
+		return iCycles;
+	}
+	
+	/**
+	 * Gets how far the clock is towards the next cycle, as of the last
+	 * update.
+	 * @return The fraction of a cycle, from 0 up to but not including 1.
 	 */
-	private static final long getCurrentTime() {
+	public float getCycleProgress() {
             
-		return (System.nanoTime() / 1000000L);
+		return (float)((double)lAccumulator / CYCLE);
 	}
 
 }
@@ -0,0 +1,137 @@
+package org.psnbtech;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+
+/**
+ * The {@code GameCanvas} class draws the game by active rendering. Rather
+ * than asking Swing to repaint and waiting for the event thread to get round
+ * to it, the game loop draws the {@link BoardPanel} and {@link SidePanel}
+ * straight onto the back buffer of a {@link BufferStrategy} and shows it,
+ * so every frame is drawn and shown exactly when the loop says. When the
+ * buffers are flipped on the display's vertical refresh, showing a frame
+ * waits for it, which paces the loop to the display.
+ * @author Brendan Jones
+ *
+ */
+public class GameCanvas extends Canvas {
+
+	/**
+	 * The Serial Version UID.
+	 */
+	private static final long serialVersionUID = 6377468436253722011L;
+
+	/**
+	 * The panel that draws the board, on the left.
+	 */
+	private final BoardPanel bplBoardPanel;
+
+	/**
+	 * The panel that draws the stats and controls, on the right.
+	 */
+	private final SidePanel splSidePanel;
+
+	/**
+	 * The number of buffers to draw with.
+	 */
+	private final int iBuffers;
+
+	/**
+	 * The buffers the game is drawn to, or null until {@code render} is
+	 * first called.
+	 */
+	private transient BufferStrategy bufStrategy;
+
+	/**
+	 * Creates a new GameCanvas.
+	 * @param bplBoardPanel The panel that draws the board.
+	 * @param splSidePanel The panel that draws the stats and controls.
+	 * @param iBuffers The number of buffers to draw with; 2 for double
+	 * buffering or 3 for triple buffering.
+	 */
+	public GameCanvas(BoardPanel bplBoardPanel, SidePanel splSidePanel,
+		int iBuffers) {
+
+		this.bplBoardPanel = bplBoardPanel;
+		this.splSidePanel = splSidePanel;
+		this.iBuffers = iBuffers;
+
+		Dimension dimBoard = bplBoardPanel.getPreferredSize();
+		Dimension dimSide = splSidePanel.getPreferredSize();
+		setPreferredSize(new Dimension(dimBoard.width + dimSide.width,
+			Math.max(dimBoard.height, dimSide.height)));
+
+		/*
+		 * Everything is drawn by the game loop, so the paint requests
+		 * the system sends when the window is shown or uncovered are
+		 * ignored. The next frame covers them anyway.
+		 */
+		setIgnoreRepaint(true);
+		setBackground(Color.BLACK);
+	}
+
+	/**
+	 * Draws a frame onto the back buffer and shows it. Must only be called
+	 * by the game loop, once the canvas is showing.
+	 */
+	public void render() {
+		if(bufStrategy == null) {
+			createBufferStrategy(iBuffers);
+			bufStrategy = getBufferStrategy();
+		}
+
+		/*
+		 * The contents of the buffers can be lost at any time, for
+		 * example when the display mode changes, in which case the
+		 * frame is drawn again.
+		 */
+		do {
+			do {
+				Graphics graGraphics = bufStrategy.getDrawGraphics();
+				try {
+					draw(graGraphics);
+				} finally {
+					graGraphics.dispose();
+				}
+			} while(bufStrategy.contentsRestored());
+			bufStrategy.show();
+		} while(bufStrategy.contentsLost());
+
+		//Make sure the frame reaches the display now, not when it's due.
+		Toolkit.getDefaultToolkit().sync();
+	}
+
+	/**
+	 * Draws both panels side by side, each on it's own background.
+	 * @param graGraphics The graphics object of the back buffer.
+	 */
+	private void draw(Graphics graGraphics) {
+		Dimension dimBoard = bplBoardPanel.getPreferredSize();
+		Dimension dimSide = splSidePanel.getPreferredSize();
+
+		Graphics graBoard = graGraphics.create(0, 0, dimBoard.width,
+			dimBoard.height);
+		try {
+			graBoard.setColor(bplBoardPanel.getBackground());
+			graBoard.fillRect(0, 0, dimBoard.width, dimBoard.height);
+			bplBoardPanel.render(graBoard);
+		} finally {
+			graBoard.dispose();
+		}
+
+		Graphics graSide = graGraphics.create(dimBoard.width, 0,
+			dimSide.width, dimSide.height);
+		try {
+			graSide.setColor(splSidePanel.getBackground());
+			graSide.fillRect(0, 0, dimSide.width, dimSide.height);
+			splSidePanel.render(graSide);
+		} finally {
+			graSide.dispose();
+		}
+	}
+
+}
@@ -0,0 +1,819 @@
+package org.psnbtech;
+
+import java.util.SplittableRandom;
+
+/**
+ * The {@code GameEngine} class holds the state of a game and handles all of
+ * it's logic. It has no dependency on a display, so it can be driven by the
+ * {@link Tetris} window or run headless at full speed by calling
+ * {@code updateGame} directly.
+ * @author Brendan Jones
+ *
+ */
+public class GameEngine {
+
+	/**
+	 * The number of pieces after the next piece that can be looked at.
+	 */
+	public static final int LOOKAHEAD = 5;
+
+	/**
+	 * The number of cycles per second the logic timer runs at while the
+	 * player is holding the drop key.
+	 */
+	private static final float DROP_SPEED = 25.0f;
+
+	/**
+	 * The number of frames after a piece spawns before it can be dropped.
+	 */
+	private static final int DROP_COOLDOWN = 25;
+
+	/**
+	 * The tiles that have been locked onto the board.
+	 */
+	private final Board brdBoard;
+
+	/**
+	 * Deals the pieces of the game.
+	 */
+	private final PieceGenerator pgnPieces;
+
+	/**
+	 * The clock that handles the update logic.
+	 */
+	private final Clock clkLogicTimer;
+
+	/**
+	 * The last frame published for the panels to draw. Written by the
+	 * game loop and read by the event thread.
+	 */
+	private volatile GameFrame frmFrame;
+
+	/**
+	 * The listener to notify of game events, or null.
+	 */
+	private GameListener lisListener;
+
+	/**
+	 * Whether or not the game is paused.
+	 */
+	private boolean isPaused;
+
+	/**
+	 * Whether or not we've played a game yet. This is set to true
+	 * initially and then set to false when the game starts.
+	 */
+	private boolean isNewGame;
+
+	/**
+	 * Whether or not the game is over.
+	 */
+	private boolean isGameOver;
+
+	/**
+	 * The current iLevel we're on.
+	 */
+	private int iLevel;
+
+	/**
+	 * The current iScore.
+	 */
+	private int iScore;
+
+	/**
+	 * The current type of tile.
+	 */
+	private TileType tilCurrentType;
+
+	/**
+	 * The next type of tile.
+	 */
+	private TileType tilNextType;
+
+	/**
+	 * The current column of our tile.
+	 */
+	private int iCurrentCol;
+
+	/**
+	 * The current row of our tile.
+	 */
+	private int iCurrentRow;
+
+	/**
+	 * The current rotation of our tile.
+	 */
+	private int iCurrentRotation;
+
+	/**
+	 * Ensures that a certain amount of time passes after a piece is
+	 * spawned before we can drop it.
+	 */
+	private int iDropCooldown;
+
+	/**
+	 * The speed of the game.
+	 */
+	private float fGameSpeed;
+
+	/**
+	 * The number of rows the current piece can fall before it lands.
+	 * Found when the piece moves, rotates or spawns, or the board changes,
+	 * rather than every frame.
+	 */
+	private int iDropDistance;
+
+	/**
+	 * Whether the piece has moved since {@code iDropDistance} was found.
+	 */
+	private boolean isDropStale;
+
+	/**
+	 * The version of the board {@code iDropDistance} was found on.
+	 */
+	private int iDropVersion;
+
+	/**
+	 * The number of lines cleared since the game started.
+	 */
+	private int iLines;
+
+	/**
+	 * The number of pieces locked onto the board since the game started.
+	 */
+	private int iPieces;
+
+	/**
+	 * Creates a new GameEngine that deals it's pieces at random, from a
+	 * random seed. The game starts out as a new game, with the logic timer
+	 * paused until {@code resetGame} is called.
+	 */
+	public GameEngine() {
+		this(new SplittableRandom().nextLong());
+	}
+
+	/**
+	 * Creates a new GameEngine that deals it's pieces at random from the
+	 * given seed, so that the same sequence of pieces is dealt every time.
+	 * @param lSeed The seed of the piece generator.
+	 */
+	public GameEngine(long lSeed) {
+		this(new UniformGenerator(lSeed, LOOKAHEAD));
+	}
+
+	/**
+	 * Creates a new GameEngine that deals it's pieces with the given
+	 * generator.
+	 * @param pgnPieces The piece generator.
+	 */
+	public GameEngine(PieceGenerator pgnPieces) {
+		this.brdBoard = new Board();
+		this.pgnPieces = pgnPieces;
+		this.isNewGame = true;
+		this.fGameSpeed = 1.0f;
+
+		/*
+		 * Setup the timer to keep the game from running before the
+		 * game is started.
+		 */
+		this.clkLogicTimer = new Clock(fGameSpeed);
+		clkLogicTimer.setPaused(true);
+		publishFrame();
+	}
+
+	/**
+	 * Sets the listener to notify of game events.
+	 * @param lisListener The listener, or null to remove it.
+	 */
+	public void setListener(GameListener lisListener) {
+		this.lisListener = lisListener;
+	}
+
+	/**
+	 * Updates the game for a single frame, using the time that has
+	 * actually passed since the last update.
+	 */
+	public void update() {
+		clkLogicTimer.update();
+		updateCycles();
+	}
+
+	/**
+	 * Updates the game for a single frame of a fixed length. Driving the
+	 * game by a fixed timestep means the same inputs on the same ticks
+	 * always play out the same way.
+	 * @param lDelta The length of the frame, in nanoseconds.
+	 */
+	public void update(long lDelta) {
+		clkLogicTimer.advance(lDelta);
+		updateCycles();
+	}
+
+	/**
+	 * Moves the current piece down by every cycle that has elapsed on the
+	 * logic timer. At high speeds several cycles can elapse in one frame,
+	 * and all of them are used so the game keeps up with real time.
+	 */
+	private void updateCycles() {
+		int iCycles = clkLogicTimer.takeElapsedCycles();
+		if(iCycles > 0) {
+			applyGravity(iCycles);
+		}
+
+		//Decrement the drop cool down if necessary.
+		if(iDropCooldown > 0) {
+			iDropCooldown--;
+		}
+	}
+
+	/**
+	 * Updates the game and handles the bulk of it's logic. Moves the
+	 * current piece down by one row, or locks it onto the board if it
+	 * can't move any further.
+	 */
+	public void updateGame() {
+		applyGravity(1);
+	}
+
+	/**
+	 * Moves the current piece down by a number of rows at once, the same
+	 * as that many calls to {@code updateGame}. If the piece lands before
+	 * it has fallen that far, it's locked onto the board and the rest of
+	 * the rows are dropped, as locking resets the logic timer. Takes the
+	 * same time however many rows are given, so even a piece that falls
+	 * the whole board every frame costs no more than one that falls a row.
+	 * @param iRows The number of rows to move the piece down by.
+	 */
+	public void applyGravity(int iRows) {
+		int iDistance = getDropDistance();
+		if(iRows <= iDistance) {
+			//Falling doesn't change where the piece lands.
+			iCurrentRow += iRows;
+			iDropDistance -= iRows;
+		} else {
+			/*
+			 * We've either reached the bottom of the board, or
+			 * landed on another piece, so we need to add the piece
+			 * to the board.
+			 */
+			iCurrentRow += iDistance;
+			lockPiece();
+		}
+	}
+
+	/**
+	 * Locks the current piece onto the board where it is, clears any full
+	 * lines and spawns the next piece.
+	 */
+	private void lockPiece() {
+		brdBoard.addPiece(tilCurrentType, iCurrentCol,
+			iCurrentRow, iCurrentRotation);
+
+		/*
+		 * Check to see if adding the new piece resulted in
+		 * any cleared lines. If so, increase the player's
+		 * iScore. (Up to 4 lines can be cleared in a single
+		 * go; [1 = 100pts, 2 = 200pts, 3 = 400pts, 4 = 800pts])
+		 */
+		int iCleared = brdBoard.checkLines();
+		if(iCleared > 0) {
+			iScore += 50 << iCleared;
+			iLines += iCleared;
+		}
+		iPieces++;
+
+		/*
+		 * Increase the speed slightly for the next piece and
+		 * update the game's timer to reflect the increase.
+		 */
+		fGameSpeed += 0.035f;
+		clkLogicTimer.setCyclesPerSecond(fGameSpeed);
+		clkLogicTimer.reset();
+
+		/*
+		 * Set the drop cooldown so the next piece doesn't
+		 * automatically come flying in from the heavens
+		 * immediately after this piece hits if we've not
+		 * reacted yet. (~0.5 second buffer).
+		 */
+		iDropCooldown = DROP_COOLDOWN;
+
+		/*
+		 * Update the difficulty iLevel. This has no effect on
+		 * the game, and is only used in the "Level" string
+		 * in the SidePanel.
+		 */
+		iLevel = (int)(fGameSpeed * 1.70f);
+
+		/*
+		 * Spawn a new piece to control.
+		 */
+		spawnPiece();
+
+		if(lisListener != null) {
+			lisListener.pieceLocked(iCleared);
+		}
+	}
+
+	/**
+	 * Resets the game variables to their default values at the start
+	 * of a new game.
+	 */
+	public void resetGame() {
+		this.iLevel = 1;
+		this.iScore = 0;
+		this.iLines = 0;
+		this.iPieces = 0;
+		this.fGameSpeed = 1.0f;
+		this.tilNextType = pgnPieces.next();
+		this.isNewGame = false;
+		this.isGameOver = false;
+		brdBoard.clear();
+		clkLogicTimer.reset();
+		clkLogicTimer.setCyclesPerSecond(fGameSpeed);
+		spawnPiece();
+	}
+
+	/**
+	 * Spawns a new piece and resets our piece's variables to their default
+	 * values.
+	 */
+	private void spawnPiece() {
+		/*
+		 * Poll the last piece and reset our position and rotation to
+		 * their default variables, then pick the next piece to use.
+		 */
+		this.tilCurrentType = tilNextType;
+		this.iCurrentCol = tilCurrentType.getSpawnColumn();
+		this.iCurrentRow = tilCurrentType.getSpawnRow();
+		this.iCurrentRotation = 0;
+		this.isDropStale = true;
+		this.tilNextType = pgnPieces.next();
+
+		/*
+		 * If the spawn point is invalid, we need to pause the game and
+		 * flag that we've lost because it means that the pieces on
+		 * the board have gotten too high.
+		 */
+		if(!brdBoard.isValidAndEmpty(tilCurrentType, iCurrentCol,
+			iCurrentRow, iCurrentRotation)) {
+
+			this.isGameOver = true;
+			clkLogicTimer.setPaused(true);
+		}
+	}
+
+	/**
+	 * Performs an action taken by the player. Saving and loading are left
+	 * to the front end, and are ignored.
+	 * @param actAction The action.
+	 */
+	public void handleInput(InputAction actAction) {
+		/*
+		 * There's no piece in play on the title screen or after a game
+		 * over, so the only thing the player can do is start a game.
+		 */
+		if((isNewGame || isGameOver) && actAction != InputAction.START) {
+			return;
+		}
+
+		switch(actAction) {
+		case MOVE_LEFT:
+			moveLeft();
+			break;
+		case MOVE_RIGHT:
+			moveRight();
+			break;
+		case ROTATE_ANTICLOCKWISE:
+			rotateAnticlockwise();
+			break;
+		case ROTATE_CLOCKWISE:
+			rotateClockwise();
+			break;
+		case SOFT_DROP_START:
+			startSoftDrop();
+			break;
+		case SOFT_DROP_STOP:
+			stopSoftDrop();
+			break;
+
+		/*
+		 * Holding the key repeats it, so the drop cooldown keeps the
+		 * next piece from being dropped straight after this one.
+		 */
+		case HARD_DROP:
+			if(iDropCooldown == 0) {
+				hardDrop();
+			}
+			break;
+
+		/*
+		 * Pausing only makes sense while a game is being played.
+		 */
+		case PAUSE:
+			if(!isGameOver && !isNewGame) {
+				setPaused(!isPaused);
+			}
+			break;
+
+		/*
+		 * A new game can only be started from the title screen or
+		 * after a game over.
+		 */
+		case START:
+			if(isGameOver || isNewGame) {
+				resetGame();
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Moves the current piece one column to the left, if the game is not
+	 * paused and the position to the left is valid.
+	 */
+	public void moveLeft() {
+		if(!isPaused && brdBoard.isValidAndEmpty(tilCurrentType,
+			iCurrentCol - 1, iCurrentRow, iCurrentRotation)) {
+
+			iCurrentCol--;
+			isDropStale = true;
+		}
+	}
+
+	/**
+	 * Moves the current piece one column to the right, if the game is not
+	 * paused and the position to the right is valid.
+	 */
+	public void moveRight() {
+		if(!isPaused && brdBoard.isValidAndEmpty(tilCurrentType,
+			iCurrentCol + 1, iCurrentRow, iCurrentRotation)) {
+
+			iCurrentCol++;
+			isDropStale = true;
+		}
+	}
+
+	/**
+	 * Attempts to rotate the current piece anticlockwise, if the game is
+	 * not paused.
+	 */
+	public void rotateAnticlockwise() {
+		if(!isPaused) {
+			rotatePiece((iCurrentRotation == 0) ? 3 :
+				iCurrentRotation - 1);
+		}
+	}
+
+	/**
+	 * Attempts to rotate the current piece clockwise, if the game is not
+	 * paused.
+	 */
+	public void rotateClockwise() {
+		if(!isPaused) {
+			rotatePiece((iCurrentRotation == 3) ? 0 :
+				iCurrentRotation + 1);
+		}
+	}
+
+	/**
+	 * Speeds the logic timer up while the player holds the drop key, as
+	 * long as the game is not paused and there is no drop cooldown.
+	 */
+	public void startSoftDrop() {
+		if(!isPaused && iDropCooldown == 0) {
+			clkLogicTimer.setCyclesPerSecond(DROP_SPEED);
+		}
+	}
+
+	/**
+	 * Drops the current piece straight to where it lands, locks it onto
+	 * the board and spawns the next piece, all at once, if the game is
+	 * not paused.
+	 */
+	public void hardDrop() {
+		if(!isPaused && !isGameOver && !isNewGame) {
+			applyGravity(getDropDistance() + 1);
+		}
+	}
+
+	/**
+	 * Sets the speed of the logic timer back to whatever the current game
+	 * speed is and clears out any cycles that might still be elapsed.
+	 */
+	public void stopSoftDrop() {
+		clkLogicTimer.setCyclesPerSecond(fGameSpeed);
+		clkLogicTimer.reset();
+	}
+
+	/**
+	 * Pauses or unpauses the game. The logic timer is paused as well,
+	 * otherwise the game will execute a huge number of updates and
+	 * essentially cause an instant game over when we unpause if we stay
+	 * paused for more than a minute or so.
+	 * @param bPaused Whether or not to pause the game.
+	 */
+	public void setPaused(boolean bPaused) {
+		this.isPaused = bPaused;
+		clkLogicTimer.setPaused(bPaused);
+	}
+
+	/**
+	 * Attempts to set the rotation of the current piece to newRotation.
+	 * If the piece doesn't fit where it is, each of it's kicks is tried in
+	 * turn, and it's moved to the first position it fits in.
+	 * @param iNewRotation The rotation of the new peice.
+	 */
+	public void rotatePiece(int iNewRotation) {
+		/*
+		 * Sometimes pieces will need to be moved when rotated to
+		 * avoid clipping out of the board or into the stack (the I
+		 * piece against a wall is a good example of this). The type's
+		 * kick table says where to try, starting with where the piece
+		 * already is.
+		 */
+		int iKicks = tilCurrentType.getKickCount(iCurrentRotation,
+			iNewRotation);
+		for(int iKick = 0; iKick < iKicks; iKick++) {
+			int iNewCol = iCurrentCol + tilCurrentType.getKickCol(
+				iCurrentRotation, iNewRotation, iKick);
+			int iNewRow = iCurrentRow + tilCurrentType.getKickRow(
+				iCurrentRotation, iNewRotation, iKick);
+
+			/*
+			 * Check to see if the new position is acceptable. If it
+			 * is, update the rotation and position of the piece.
+			 */
+			if(brdBoard.isValidAndEmpty(tilCurrentType, iNewCol,
+				iNewRow, iNewRotation)) {
+
+				iCurrentRotation = iNewRotation;
+				iCurrentRow = iNewRow;
+				iCurrentCol = iNewCol;
+				isDropStale = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Places the current piece without checking that the position is
+	 * valid. Only used to set up benchmarks.
+	 * @param tilType The type of the piece.
+	 * @param iCol The column of the piece.
+	 * @param iRow The row of the piece.
+	 * @param iRotation The rotation of the piece.
+	 */
+	void setPiece(TileType tilType, int iCol, int iRow, int iRotation) {
+		this.tilCurrentType = tilType;
+		this.iCurrentCol = iCol;
+		this.iCurrentRow = iRow;
+		this.iCurrentRotation = iRotation;
+		this.isDropStale = true;
+	}
+
+	/**
+	 * Gets the number of rows the current piece can fall before it lands.
+	 * The distance is only found again if the piece has moved or the board
+	 * has changed since it was last found.
+	 * @return The number of rows.
+	 */
+	public int getDropDistance() {
+		if(isDropStale || iDropVersion != brdBoard.getVersion()) {
+			this.iDropDistance = brdBoard.getDropDistance(tilCurrentType,
+				iCurrentCol, iCurrentRow, iCurrentRotation);
+			this.iDropVersion = brdBoard.getVersion();
+			this.isDropStale = false;
+		}
+		return iDropDistance;
+	}
+
+	/**
+	 * Gets the board that pieces are locked onto.
+	 * @return The board.
+	 */
+	public Board getBoard() {
+		return brdBoard;
+	}
+
+	/**
+	 * Checks to see whether or not the game is paused.
+	 * @return Whether or not the game is paused.
+	 */
+	public boolean isPaused() {
+		return isPaused;
+	}
+
+	/**
+	 * Checks to see whether or not the game is over.
+	 * @return Whether or not the game is over.
+	 */
+	public boolean isGameOver() {
+		return isGameOver;
+	}
+
+	/**
+	 * Checks to see whether or not we're on a new game.
+	 * @return Whether or not this is a new game.
+	 */
+	public boolean isNewGame() {
+		return isNewGame;
+	}
+
+	/**
+	 * Gets the current iScore.
+	 * @return The iScore.
+	 */
+	public int getScore() {
+		return iScore;
+	}
+
+	/**
+	 * Gets the current iLevel.
+	 * @return The iLevel.
+	 */
+	public int getLevel() {
+		return iLevel;
+	}
+
+	/**
+	 * Gets the number of lines cleared since the game started.
+	 * @return The number of lines.
+	 */
+	public int getLines() {
+		return iLines;
+	}
+
+	/**
+	 * Gets the number of pieces locked onto the board since the game
+	 * started.
+	 * @return The number of pieces.
+	 */
+	public int getPieceCount() {
+		return iPieces;
+	}
+
+	/**
+	 * Gets the speed of the game, in rows per second.
+	 * @return The game speed.
+	 */
+	public float getGameSpeed() {
+		return fGameSpeed;
+	}
+
+	/**
+	 * Gets the current type of piece we're using.
+	 * @return The piece type.
+	 */
+	public TileType getPieceType() {
+		return tilCurrentType;
+	}
+
+	/**
+	 * Gets the next type of piece we're using.
+	 * @return The next piece.
+	 */
+	public TileType getNextPieceType() {
+		return tilNextType;
+	}
+
+	/**
+	 * Gets one of the pieces that will be dealt after the current piece.
+	 * @param iIndex How far ahead to look, from 0 for the next piece up to
+	 * {@code LOOKAHEAD}.
+	 * @return The piece.
+	 */
+	public TileType getUpcomingPiece(int iIndex) {
+		return (iIndex == 0) ? tilNextType : pgnPieces.peek(iIndex - 1);
+	}
+
+	/**
+	 * Gets the generator that deals the pieces.
+	 * @return The piece generator.
+	 */
+	public PieceGenerator getPieceGenerator() {
+		return pgnPieces;
+	}
+
+	/**
+	 * Gets the column of the current piece.
+	 * @return The column.
+	 */
+	public int getPieceCol() {
+		return iCurrentCol;
+	}
+
+	/**
+	 * Gets the row of the current piece.
+	 * @return The row.
+	 */
+	public int getPieceRow() {
+		return iCurrentRow;
+	}
+
+	/**
+	 * Gets the rotation of the current piece.
+	 * @return The rotation.
+	 */
+	public int getPieceRotation() {
+		return iCurrentRotation;
+	}
+
+	/**
+	 * Publishes a frame with the current state of the game for the panels
+	 * to draw. Should be called by the game loop after every update. The
+	 * tiles of the board are only copied when the board has changed since
+	 * the last frame.
+	 */
+	public void publishFrame() {
+		GameFrame frmLast = frmFrame;
+		byte[] bCells;
+		if(frmLast != null &&
+			frmLast.getBoardVersion() == brdBoard.getVersion()) {
+
+			bCells = frmLast.getCells();
+		} else {
+			bCells = GameSnapshot.copyCells(brdBoard);
+		}
+
+		/*
+		 * The ghost (where the current piece will land) comes from the
+		 * cached drop distance, which is only found again when the
+		 * piece has moved or the board has changed.
+		 */
+		int iGhostRow = iCurrentRow;
+		if(tilCurrentType != null) {
+			iGhostRow += getDropDistance();
+		}
+
+		/*
+		 * The piece is only drawn falling between updates while the
+		 * logic timer is running and there is room beneath it.
+		 */
+		float fFallProgress = 0.0f;
+		float fFallRate = 0.0f;
+		if(!isPaused && !isGameOver && !isNewGame &&
+			iGhostRow > iCurrentRow) {
+
+			fFallProgress = clkLogicTimer.getCycleProgress();
+			fFallRate = clkLogicTimer.getCyclesPerSecond();
+		}
+
+		this.frmFrame = new GameFrame(isPaused, isNewGame, isGameOver,
+			iScore, iLevel, tilCurrentType, iCurrentCol, iCurrentRow,
+			iCurrentRotation, iGhostRow, tilNextType, bCells,
+			brdBoard.getVersion(), System.nanoTime(), fFallProgress,
+			fFallRate);
+	}
+
+	/**
+	 * Gets the last frame published by {@code publishFrame}. Safe to call
+	 * from any thread.
+	 * @return The frame.
+	 */
+	public GameFrame getFrame() {
+		return frmFrame;
+	}
+
+	/**
+	 * Takes an immutable snapshot of the state of the game.
+	 * @return The snapshot.
+	 */
+	public GameSnapshot snapshot() {
+		return new GameSnapshot(iLevel, iScore, fGameSpeed, iLines, iPieces,
+			tilCurrentType, iCurrentCol, iCurrentRow, iCurrentRotation,
+			iDropCooldown, isPaused, isNewGame, tilNextType,
+			GameSnapshot.copyCells(brdBoard));
+	}
+
+	/**
+	 * Replaces the state of the game with a snapshot, and syncs the logic
+	 * timer with the restored speed and pause state.
+	 * @param snpGame The snapshot.
+	 */
+	public void restore(GameSnapshot snpGame) {
+		this.iLevel = snpGame.getLevel();
+		this.iScore = snpGame.getScore();
+		this.fGameSpeed = snpGame.getGameSpeed();
+		this.iLines = snpGame.getLines();
+		this.iPieces = snpGame.getPieceCount();
+		this.tilCurrentType = snpGame.getPieceType();
+		this.iCurrentCol = snpGame.getPieceCol();
+		this.iCurrentRow = snpGame.getPieceRow();
+		this.iCurrentRotation = snpGame.getPieceRotation();
+		this.isDropStale = true;
+		this.iDropCooldown = snpGame.getDropCooldown();
+		this.isPaused = snpGame.isPaused();
+		this.isNewGame = snpGame.isNewGame();
+		this.isGameOver = false;
+		this.tilNextType = snpGame.getNextPieceType();
+		snpGame.copyCellsTo(brdBoard);
+
+		clkLogicTimer.setCyclesPerSecond(fGameSpeed);
+		clkLogicTimer.reset();
+		clkLogicTimer.setPaused(isPaused);
+	}
+
+}
@@ -0,0 +1,291 @@
+package org.psnbtech;
+
+/**
+ * The {@code GameFrame} class is an immutable picture of everything the
+ * panels need to draw the game. The game loop publishes a new frame after
+ * every update, and the panels draw whichever frame was published last, so
+ * they never see the game half way through an update.
+ * @author Brendan Jones
+ *
+ */
+public final class GameFrame {
+
+	/**
+	 * The tile types, indexed by ordinal.
+	 */
+	private static final TileType[] TYPES = TileType.values();
+
+	/**
+	 * Whether or not the game is paused.
+	 */
+	private final boolean isPaused;
+
+	/**
+	 * Whether or not this is a new game.
+	 */
+	private final boolean isNewGame;
+
+	/**
+	 * Whether or not the game is over.
+	 */
+	private final boolean isGameOver;
+
+	/**
+	 * The score.
+	 */
+	private final int iScore;
+
+	/**
+	 * The level.
+	 */
+	private final int iLevel;
+
+	/**
+	 * The type of the current piece, or null before the first game.
+	 */
+	private final TileType tilPieceType;
+
+	/**
+	 * The column of the current piece.
+	 */
+	private final int iPieceCol;
+
+	/**
+	 * The row of the current piece.
+	 */
+	private final int iPieceRow;
+
+	/**
+	 * The rotation of the current piece.
+	 */
+	private final int iPieceRotation;
+
+	/**
+	 * The row the current piece would land on if it was dropped.
+	 */
+	private final int iGhostRow;
+
+	/**
+	 * The type of the next piece, or null before the first game.
+	 */
+	private final TileType tilNextType;
+
+	/**
+	 * The tiles of the board, row by row. Each holds the ordinal of the
+	 * tile's type plus one, or 0 when the tile is empty. Shared between
+	 * frames for as long as the board doesn't change.
+	 */
+	private final byte[] bCells;
+
+	/**
+	 * The version of the board the tiles were copied from.
+	 */
+	private final int iBoardVersion;
+
+	/**
+	 * The value of {@code System.nanoTime()} when the frame was published.
+	 */
+	private final long lTime;
+
+	/**
+	 * How far the logic timer was towards moving the current piece down
+	 * when the frame was published, as a fraction of a row.
+	 */
+	private final float fFallProgress;
+
+	/**
+	 * The number of rows per second the current piece is falling at, or 0
+	 * when it isn't falling.
+	 */
+	private final float fFallRate;
+
+	/**
+	 * Creates a new GameFrame.
+	 * @param isPaused Whether or not the game is paused.
+	 * @param isNewGame Whether or not this is a new game.
+	 * @param isGameOver Whether or not the game is over.
+	 * @param iScore The score.
+	 * @param iLevel The level.
+	 * @param tilPieceType The type of the current piece.
+	 * @param iPieceCol The column of the current piece.
+	 * @param iPieceRow The row of the current piece.
+	 * @param iPieceRotation The rotation of the current piece.
+	 * @param iGhostRow The row the current piece would land on.
+	 * @param tilNextType The type of the next piece.
+	 * @param bCells The tiles of the board, which are not copied.
+	 * @param iBoardVersion The version of the board.
+	 * @param lTime The value of {@code System.nanoTime()} when the frame
+	 * was published.
+	 * @param fFallProgress How far the current piece is towards the next
+	 * row.
+	 * @param fFallRate The number of rows per second the current piece is
+	 * falling at, or 0.
+	 */
+	GameFrame(boolean isPaused, boolean isNewGame, boolean isGameOver,
+		int iScore, int iLevel, TileType tilPieceType, int iPieceCol,
+		int iPieceRow, int iPieceRotation, int iGhostRow,
+		TileType tilNextType, byte[] bCells, int iBoardVersion, long lTime,
+		float fFallProgress, float fFallRate) {
+
+		this.isPaused = isPaused;
+		this.isNewGame = isNewGame;
+		this.isGameOver = isGameOver;
+		this.iScore = iScore;
+		this.iLevel = iLevel;
+		this.tilPieceType = tilPieceType;
+		this.iPieceCol = iPieceCol;
+		this.iPieceRow = iPieceRow;
+		this.iPieceRotation = iPieceRotation;
+		this.iGhostRow = iGhostRow;
+		this.tilNextType = tilNextType;
+		this.bCells = bCells;
+		this.iBoardVersion = iBoardVersion;
+		this.lTime = lTime;
+		this.fFallProgress = fFallProgress;
+		this.fFallRate = fFallRate;
+	}
+
+	/**
+	 * Checks to see whether or not the game is paused.
+	 * @return Whether or not the game is paused.
+	 */
+	public boolean isPaused() {
+		return isPaused;
+	}
+
+	/**
+	 * Checks to see whether or not we're on a new game.
+	 * @return Whether or not this is a new game.
+	 */
+	public boolean isNewGame() {
+		return isNewGame;
+	}
+
+	/**
+	 * Checks to see whether or not the game is over.
+	 * @return Whether or not the game is over.
+	 */
+	public boolean isGameOver() {
+		return isGameOver;
+	}
+
+	/**
+	 * Gets the score.
+	 * @return The score.
+	 */
+	public int getScore() {
+		return iScore;
+	}
+
+	/**
+	 * Gets the level.
+	 * @return The level.
+	 */
+	public int getLevel() {
+		return iLevel;
+	}
+
+	/**
+	 * Gets the type of the current piece.
+	 * @return The piece type.
+	 */
+	public TileType getPieceType() {
+		return tilPieceType;
+	}
+
+	/**
+	 * Gets the column of the current piece.
+	 * @return The column.
+	 */
+	public int getPieceCol() {
+		return iPieceCol;
+	}
+
+	/**
+	 * Gets the row of the current piece.
+	 * @return The row.
+	 */
+	public int getPieceRow() {
+		return iPieceRow;
+	}
+
+	/**
+	 * Gets the rotation of the current piece.
+	 * @return The rotation.
+	 */
+	public int getPieceRotation() {
+		return iPieceRotation;
+	}
+
+	/**
+	 * Gets the row the current piece would land on if it was dropped.
+	 * @return The ghost row.
+	 */
+	public int getGhostRow() {
+		return iGhostRow;
+	}
+
+	/**
+	 * Gets the type of the next piece.
+	 * @return The next piece.
+	 */
+	public TileType getNextPieceType() {
+		return tilNextType;
+	}
+
+	/**
+	 * Gets a tile of the board by it's column and row.
+	 * @param iX The column.
+	 * @param iY The row.
+	 * @return The tile, or null if it's empty.
+	 */
+	public TileType getTile(int iX, int iY) {
+		int iType = bCells[iY * Board.COL_COUNT + iX];
+		return (iType == 0) ? null : TYPES[iType - 1];
+	}
+
+	/**
+	 * Gets the version of the board the tiles were copied from. Two
+	 * frames with the same board version have the same tiles.
+	 * @return The board version.
+	 */
+	public int getBoardVersion() {
+		return iBoardVersion;
+	}
+
+	/**
+	 * Gets the tiles of the board, to share them with the next frame.
+	 * @return The tiles, which must not be modified.
+	 */
+	byte[] getCells() {
+		return bCells;
+	}
+
+	/**
+	 * Checks whether the current piece is falling, so is drawn further
+	 * down the longer the frame is shown.
+	 * @return Whether the piece is falling.
+	 */
+	public boolean isFalling() {
+		return fFallRate != 0.0f;
+	}
+
+	/**
+	 * Gets how far the current piece has fallen towards the next row at a
+	 * given time, so that it can be drawn falling smoothly between the
+	 * updates of the game loop. The piece never appears lower than the row
+	 * beneath it, and doesn't move at all when there is nothing for it to
+	 * fall into.
+	 * @param lNow The value of {@code System.nanoTime()} to get the
+	 * offset at.
+	 * @return The offset, as a fraction of a row from 0 to 1.
+	 */
+	public float getFallOffset(long lNow) {
+		if(fFallRate == 0.0f) {
+			return 0.0f;
+		}
+		float fOffset = fFallProgress + (lNow - lTime) * fFallRate / 1.0e9f;
+		return Math.max(0.0f, Math.min(fOffset, 1.0f));
+	}
+
+}
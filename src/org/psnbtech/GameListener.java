@@ -0,0 +1,19 @@
+package org.psnbtech;
+
+/**
+ * The {@code GameListener} interface is notified by the {@link GameEngine}
+ * when something happens in the game that the front end might want to react
+ * to, such as playing a sound.
+ * @author Brendan Jones
+ *
+ */
+public interface GameListener {
+
+	/**
+	 * Called after a piece has been added to the board, any full lines have
+	 * been cleared and the next piece has been spawned.
+	 * @param iCleared The number of lines that were cleared.
+	 */
+	void pieceLocked(int iCleared);
+
+}
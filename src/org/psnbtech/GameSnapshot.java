@@ -0,0 +1,278 @@
+package org.psnbtech;
+
+/**
+ * The {@code GameSnapshot} class is an immutable copy of the state of a
+ * {@link GameEngine} at one point in time. It's what gets written to and
+ * read from the save file, and can be taken and restored without the two
+ * ever sharing any mutable state.
+ * @author Brendan Jones
+ *
+ */
+public final class GameSnapshot {
+
+	/**
+	 * The tile types, indexed by ordinal.
+	 */
+	private static final TileType[] TYPES = TileType.values();
+
+	/**
+	 * The level.
+	 */
+	private final int iLevel;
+
+	/**
+	 * The score.
+	 */
+	private final int iScore;
+
+	/**
+	 * The speed of the game.
+	 */
+	private final float fGameSpeed;
+
+	/**
+	 * The number of lines cleared.
+	 */
+	private final int iLines;
+
+	/**
+	 * The number of pieces locked.
+	 */
+	private final int iPieces;
+
+	/**
+	 * The type of the current piece.
+	 */
+	private final TileType tilCurrentType;
+
+	/**
+	 * The column of the current piece.
+	 */
+	private final int iCurrentCol;
+
+	/**
+	 * The row of the current piece.
+	 */
+	private final int iCurrentRow;
+
+	/**
+	 * The rotation of the current piece.
+	 */
+	private final int iCurrentRotation;
+
+	/**
+	 * The drop cooldown.
+	 */
+	private final int iDropCooldown;
+
+	/**
+	 * Whether or not the game is paused.
+	 */
+	private final boolean isPaused;
+
+	/**
+	 * Whether or not this is a new game.
+	 */
+	private final boolean isNewGame;
+
+	/**
+	 * The type of the next piece.
+	 */
+	private final TileType tilNextType;
+
+	/**
+	 * The tiles of the board, row by row. Each holds the ordinal of the
+	 * tile's type plus one, or 0 when the tile is empty.
+	 */
+	private final byte[] bCells;
+
+	/**
+	 * Creates a new GameSnapshot.
+	 * @param iLevel The level.
+	 * @param iScore The score.
+	 * @param fGameSpeed The speed of the game.
+	 * @param iLines The number of lines cleared.
+	 * @param iPieces The number of pieces locked.
+	 * @param tilCurrentType The type of the current piece.
+	 * @param iCurrentCol The column of the current piece.
+	 * @param iCurrentRow The row of the current piece.
+	 * @param iCurrentRotation The rotation of the current piece.
+	 * @param iDropCooldown The drop cooldown.
+	 * @param isPaused Whether or not the game is paused.
+	 * @param isNewGame Whether or not this is a new game.
+	 * @param tilNextType The type of the next piece.
+	 * @param bCells The tiles of the board, which are not copied.
+	 */
+	GameSnapshot(int iLevel, int iScore, float fGameSpeed, int iLines,
+		int iPieces, TileType tilCurrentType, int iCurrentCol,
+		int iCurrentRow, int iCurrentRotation, int iDropCooldown,
+		boolean isPaused, boolean isNewGame, TileType tilNextType,
+		byte[] bCells) {
+
+		this.iLevel = iLevel;
+		this.iScore = iScore;
+		this.fGameSpeed = fGameSpeed;
+		this.iLines = iLines;
+		this.iPieces = iPieces;
+		this.tilCurrentType = tilCurrentType;
+		this.iCurrentCol = iCurrentCol;
+		this.iCurrentRow = iCurrentRow;
+		this.iCurrentRotation = iCurrentRotation;
+		this.iDropCooldown = iDropCooldown;
+		this.isPaused = isPaused;
+		this.isNewGame = isNewGame;
+		this.tilNextType = tilNextType;
+		this.bCells = bCells;
+	}
+
+	/**
+	 * Copies the tiles of a board into the format used by snapshots.
+	 * @param brdBoard The board.
+	 * @return The tiles, row by row.
+	 */
+	static byte[] copyCells(Board brdBoard) {
+		byte[] bCells = new byte[Board.ROW_COUNT * Board.COL_COUNT];
+		for(int iY = 0; iY < Board.ROW_COUNT; iY++) {
+			for(int iX = 0; iX < Board.COL_COUNT; iX++) {
+				TileType tilType = brdBoard.getTile(iX, iY);
+				if(tilType != null) {
+					bCells[iY * Board.COL_COUNT + iX] =
+						(byte)(tilType.ordinal() + 1);
+				}
+			}
+		}
+		return bCells;
+	}
+
+	/**
+	 * Replaces the tiles of a board with the ones in this snapshot.
+	 * @param brdBoard The board.
+	 */
+	void copyCellsTo(Board brdBoard) {
+		brdBoard.clear();
+		for(int iY = 0; iY < Board.ROW_COUNT; iY++) {
+			for(int iX = 0; iX < Board.COL_COUNT; iX++) {
+				int iType = bCells[iY * Board.COL_COUNT + iX];
+				if(iType != 0) {
+					brdBoard.setTile(iX, iY, TYPES[iType - 1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the tile at the desired column and row.
+	 * @param iX The column.
+	 * @param iY The row.
+	 * @return The tile, or null if it's empty.
+	 */
+	public TileType getTile(int iX, int iY) {
+		int iType = bCells[iY * Board.COL_COUNT + iX];
+		return (iType == 0) ? null : TYPES[iType - 1];
+	}
+
+	/**
+	 * Gets the level.
+	 * @return The level.
+	 */
+	public int getLevel() {
+		return iLevel;
+	}
+
+	/**
+	 * Gets the score.
+	 * @return The score.
+	 */
+	public int getScore() {
+		return iScore;
+	}
+
+	/**
+	 * Gets the speed of the game.
+	 * @return The speed of the game.
+	 */
+	public float getGameSpeed() {
+		return fGameSpeed;
+	}
+
+	/**
+	 * Gets the number of lines cleared.
+	 * @return The number of lines cleared.
+	 */
+	public int getLines() {
+		return iLines;
+	}
+
+	/**
+	 * Gets the number of pieces locked.
+	 * @return The number of pieces locked.
+	 */
+	public int getPieceCount() {
+		return iPieces;
+	}
+
+	/**
+	 * Gets the type of the current piece.
+	 * @return The type of the current piece.
+	 */
+	public TileType getPieceType() {
+		return tilCurrentType;
+	}
+
+	/**
+	 * Gets the column of the current piece.
+	 * @return The column of the current piece.
+	 */
+	public int getPieceCol() {
+		return iCurrentCol;
+	}
+
+	/**
+	 * Gets the row of the current piece.
+	 * @return The row of the current piece.
+	 */
+	public int getPieceRow() {
+		return iCurrentRow;
+	}
+
+	/**
+	 * Gets the rotation of the current piece.
+	 * @return The rotation of the current piece.
+	 */
+	public int getPieceRotation() {
+		return iCurrentRotation;
+	}
+
+	/**
+	 * Gets the drop cooldown.
+	 * @return The drop cooldown.
+	 */
+	public int getDropCooldown() {
+		return iDropCooldown;
+	}
+
+	/**
+	 * Checks to see whether or not the game is paused.
+	 * @return Whether or not the game is paused.
+	 */
+	public boolean isPaused() {
+		return isPaused;
+	}
+
+	/**
+	 * Checks to see whether or not this is a new game.
+	 * @return Whether or not this is a new game.
+	 */
+	public boolean isNewGame() {
+		return isNewGame;
+	}
+
+	/**
+	 * Gets the type of the next piece.
+	 * @return The type of the next piece.
+	 */
+	public TileType getNextPieceType() {
+		return tilNextType;
+	}
+
+}
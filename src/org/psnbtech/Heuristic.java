@@ -0,0 +1,117 @@
+package org.psnbtech;
+
+/**
+ * The {@code Heuristic} class scores a board for a {@link SearchPlayer}, as
+ * a weighted sum of a few features of the stack: how high it is, how many
+ * holes are buried in it, how bumpy it's surface is, and how many lines
+ * were cleared getting there. Higher scores are better.
+ * @author Brendan Jones
+ *
+ */
+public final class Heuristic {
+
+	/**
+	 * Well known weights for these four features, found by a genetic
+	 * search, which clear lines more or less indefinitely on a standard
+	 * board.
+	 */
+	public static final Heuristic DEFAULT = new Heuristic(-0.510066,
+		0.760666, -0.35663, -0.184483);
+
+	/**
+	 * The mask of every column that has a neighbour to it's right.
+	 */
+	private static final int NEIGHBOURS = (1 << (BitBoard.COL_COUNT - 1)) - 1;
+
+	/**
+	 * The weight of the sum of the column heights.
+	 */
+	private final double dHeightWeight;
+
+	/**
+	 * The weight of every line cleared.
+	 */
+	private final double dLinesWeight;
+
+	/**
+	 * The weight of every empty tile with a tile somewhere above it.
+	 */
+	private final double dHolesWeight;
+
+	/**
+	 * The weight of the sum of the height differences of neighbouring
+	 * columns.
+	 */
+	private final double dBumpinessWeight;
+
+	/**
+	 * Creates a new Heuristic.
+	 * @param dHeightWeight The weight of the sum of the column heights.
+	 * @param dLinesWeight The weight of every line cleared.
+	 * @param dHolesWeight The weight of every hole.
+	 * @param dBumpinessWeight The weight of the bumpiness.
+	 */
+	public Heuristic(double dHeightWeight, double dLinesWeight,
+		double dHolesWeight, double dBumpinessWeight) {
+
+		this.dHeightWeight = dHeightWeight;
+		this.dLinesWeight = dLinesWeight;
+		this.dHolesWeight = dHolesWeight;
+		this.dBumpinessWeight = dBumpinessWeight;
+	}
+
+	/**
+	 * Scores the stack of a board.
+	 * @param bbdBoard The board.
+	 * @return The score of the stack, not counting any cleared lines.
+	 */
+	public double evaluate(BitBoard bbdBoard) {
+		/*
+		 * Go down the board once, keeping a mask of every column the
+		 * stack has reached. Every empty tile under it is a hole, each
+		 * column adds one to the heights for every row from it's top
+		 * down, and neighbouring columns differ in height by the number
+		 * of rows only one of them has reached.
+		 */
+		int iSeen = 0;
+		int iHoles = 0;
+		int iHeights = 0;
+		int iBumpiness = 0;
+		for(int iY = 0; iY < BitBoard.ROW_COUNT; iY++) {
+			int iRow = bbdBoard.getRowMask(iY);
+			iHoles += Integer.bitCount(iSeen & ~iRow);
+			iSeen |= iRow;
+			iHeights += Integer.bitCount(iSeen);
+			iBumpiness += Integer.bitCount((iSeen ^ (iSeen >>> 1))
+				& NEIGHBOURS);
+		}
+		return dHeightWeight * iHeights + dHolesWeight * iHoles
+			+ dBumpinessWeight * iBumpiness;
+	}
+
+	/**
+	 * Scores clearing a number of lines.
+	 * @param iLines The number of lines cleared.
+	 * @return The score.
+	 */
+	public double evaluateLines(int iLines) {
+		return dLinesWeight * iLines;
+	}
+
+	/**
+	 * Gets the weights, in the order they're given to the constructor.
+	 * @return The weights.
+	 */
+	public double[] getWeights() {
+		return new double[] {dHeightWeight, dLinesWeight, dHolesWeight,
+			dBumpinessWeight};
+	}
+
+	@Override
+	public String toString() {
+		return String.format("height %.6f, lines %.6f, holes %.6f, "
+			+ "bumpiness %.6f", dHeightWeight, dLinesWeight, dHolesWeight,
+			dBumpinessWeight);
+	}
+
+}
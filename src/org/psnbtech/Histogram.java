@@ -0,0 +1,187 @@
+package org.psnbtech;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code Histogram} class counts values, such as how many nanoseconds
+ * something took, in buckets that grow with the value: every power of two
+ * is split into 16 buckets, so any value can be told to within about 6%
+ * using a few hundred counters. Recording a value is a handful of atomic
+ * adds and never allocates, so any thread can record into the same
+ * histogram without locking.
+ * @author Brendan Jones
+ *
+ */
+public final class Histogram {
+
+	/**
+	 * The number of bits of each value that pick it's bucket within a power
+	 * of two.
+	 */
+	private static final int SUB_BITS = 4;
+
+	/**
+	 * The number of buckets each power of two is split into.
+	 */
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	/**
+	 * The largest power of two that is counted. Larger values are counted
+	 * in the last bucket, but still count towards the maximum.
+	 */
+	private static final int MAX_EXPONENT = 40;
+
+	/**
+	 * The number of buckets.
+	 */
+	private static final int BUCKET_COUNT =
+		(MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+	/**
+	 * The number of values counted in each bucket.
+	 */
+	private final AtomicLongArray lngCounts;
+
+	/**
+	 * The sum of every value recorded.
+	 */
+	private final AtomicLong lngSum;
+
+	/**
+	 * The largest value recorded.
+	 */
+	private final AtomicLong lngMax;
+
+	/**
+	 * Creates a new, empty Histogram.
+	 */
+	public Histogram() {
+		this.lngCounts = new AtomicLongArray(BUCKET_COUNT);
+		this.lngSum = new AtomicLong();
+		this.lngMax = new AtomicLong();
+	}
+
+	/**
+	 * Records a value. Negative values are counted as 0.
+	 * @param lValue The value.
+	 */
+	public void record(long lValue) {
+		if(lValue < 0L) {
+			lValue = 0L;
+		}
+		lngCounts.incrementAndGet(getBucket(lValue));
+		lngSum.addAndGet(lValue);
+		long lMax;
+		do {
+			lMax = lngMax.get();
+		} while(lValue > lMax && !lngMax.compareAndSet(lMax, lValue));
+	}
+
+	/**
+	 * Moves every value out of this histogram into a new one, leaving this
+	 * one empty. Values recorded while the histogram is drained end up in
+	 * one or the other, but are never lost.
+	 * @return The histogram holding the values.
+	 */
+	public Histogram drain() {
+		Histogram hstDrained = new Histogram();
+		for(int iI = 0; iI < BUCKET_COUNT; iI++) {
+			long lCount = lngCounts.getAndSet(iI, 0L);
+			if(lCount != 0L) {
+				hstDrained.lngCounts.set(iI, lCount);
+			}
+		}
+		hstDrained.lngSum.set(lngSum.getAndSet(0L));
+		hstDrained.lngMax.set(lngMax.getAndSet(0L));
+		return hstDrained;
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 * @return The number of values.
+	 */
+	public long getCount() {
+		long lCount = 0L;
+		for(int iI = 0; iI < BUCKET_COUNT; iI++) {
+			lCount += lngCounts.get(iI);
+		}
+		return lCount;
+	}
+
+	/**
+	 * Gets the mean of the values recorded.
+	 * @return The mean, or 0 if there are none.
+	 */
+	public double getMean() {
+		long lCount = getCount();
+		return (lCount == 0L) ? 0.0 : (double)lngSum.get() / lCount;
+	}
+
+	/**
+	 * Gets the largest value recorded.
+	 * @return The largest value, or 0 if there are none.
+	 */
+	public long getMax() {
+		return lngMax.get();
+	}
+
+	/**
+	 * Gets the value that a given percentage of the values recorded are
+	 * less than or equal to, to within the precision of the buckets.
+	 * @param dPercentile The percentage, from 0 to 100.
+	 * @return The value, or 0 if there are none.
+	 */
+	public long getPercentile(double dPercentile) {
+		long lCount = getCount();
+		if(lCount == 0L) {
+			return 0L;
+		}
+		long lTarget = Math.max(1L,
+			(long)Math.ceil(dPercentile / 100.0 * lCount));
+		long lSeen = 0L;
+		for(int iI = 0; iI < BUCKET_COUNT; iI++) {
+			lSeen += lngCounts.get(iI);
+			if(lSeen >= lTarget) {
+				return Math.min(getBucketTop(iI), lngMax.get());
+			}
+		}
+		return lngMax.get();
+	}
+
+	/**
+	 * Finds the bucket a value is counted in. Values below
+	 * {@code SUB_COUNT} get a bucket each; above that, the position of the
+	 * highest bit picks the power of two, and the bits after it pick the
+	 * bucket within it.
+	 * @param lValue The value.
+	 * @return The index of the bucket.
+	 */
+	private static int getBucket(long lValue) {
+		if(lValue < SUB_COUNT) {
+			return (int)lValue;
+		}
+		int iExponent = 63 - Long.numberOfLeadingZeros(lValue);
+		if(iExponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int iShift = iExponent - SUB_BITS;
+		return (iShift + 1) * SUB_COUNT
+			+ (int)((lValue >>> iShift) & (SUB_COUNT - 1));
+	}
+
+	/**
+	 * Gets the largest value that is counted in a bucket.
+	 * @param iBucket The index of the bucket.
+	 * @return The value.
+	 */
+	private static long getBucketTop(int iBucket) {
+		if(iBucket < SUB_COUNT) {
+			return iBucket;
+		}
+		int iShift = iBucket / SUB_COUNT - 1;
+		long lBottom = (long)(SUB_COUNT + iBucket % SUB_COUNT) << iShift;
+		return lBottom + (1L << iShift) - 1L;
+	}
+
+}
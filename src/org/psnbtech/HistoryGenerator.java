@@ -0,0 +1,68 @@
+package org.psnbtech;
+
+/**
+ * The {@code HistoryGenerator} class picks pieces at random, but picks again
+ * a few times when the piece is one of the last few dealt. Repeats are rare
+ * without the order being as predictable as a bag.
+ * @author Brendan Jones
+ *
+ */
+public class HistoryGenerator extends PieceGenerator {
+
+	/**
+	 * The number of recent pieces that are avoided.
+	 */
+	private static final int HISTORY_SIZE = 4;
+
+	/**
+	 * The number of times a piece is picked again before a recent one is
+	 * accepted.
+	 */
+	private static final int REROLLS = 6;
+
+	/**
+	 * The last pieces dealt, as a ring.
+	 */
+	private final TileType[] tilHistory;
+
+	/**
+	 * The index of the oldest piece in the history.
+	 */
+	private int iOldest;
+
+	/**
+	 * Creates a new HistoryGenerator.
+	 * @param lSeed The seed of the random number generator.
+	 * @param iLookahead The number of upcoming pieces that can be looked at.
+	 */
+	public HistoryGenerator(long lSeed, int iLookahead) {
+		super(lSeed, iLookahead);
+		this.tilHistory = new TileType[HISTORY_SIZE];
+	}
+
+	@Override
+	protected TileType pick() {
+		TileType tilType = TYPES[rndRandom.nextInt(TYPES.length)];
+		for(int iRoll = 0; iRoll < REROLLS && isRecent(tilType); iRoll++) {
+			tilType = TYPES[rndRandom.nextInt(TYPES.length)];
+		}
+		tilHistory[iOldest] = tilType;
+		iOldest = (iOldest + 1) % HISTORY_SIZE;
+		return tilType;
+	}
+
+	/**
+	 * Checks whether a type is one of the last pieces dealt.
+	 * @param tilType The type.
+	 * @return Whether the type is in the history.
+	 */
+	private boolean isRecent(TileType tilType) {
+		for(int iI = 0; iI < HISTORY_SIZE; iI++) {
+			if(tilHistory[iI] == tilType) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.psnbtech;
+
+/**
+ * The {@code InputAction} enum describes the actions a player can take. Key
+ * presses are turned into actions on the event thread and handed to the game
+ * loop, which is the only thread that changes the state of the game.
+ * @author Brendan Jones
+ *
+ */
+public enum InputAction {
+
+	/**
+	 * Moves the current piece one column to the left.
+	 */
+	MOVE_LEFT,
+
+	/**
+	 * Moves the current piece one column to the right.
+	 */
+	MOVE_RIGHT,
+
+	/**
+	 * Rotates the current piece anticlockwise.
+	 */
+	ROTATE_ANTICLOCKWISE,
+
+	/**
+	 * Rotates the current piece clockwise.
+	 */
+	ROTATE_CLOCKWISE,
+
+	/**
+	 * Starts dropping the current piece faster.
+	 */
+	SOFT_DROP_START,
+
+	/**
+	 * Stops dropping the current piece faster.
+	 */
+	SOFT_DROP_STOP,
+
+	/**
+	 * Drops the current piece straight to where it lands and locks it.
+	 */
+	HARD_DROP,
+
+	/**
+	 * Pauses or unpauses the game.
+	 */
+	PAUSE,
+
+	/**
+	 * Starts a new game after a game over, or on the title screen.
+	 */
+	START,
+
+	/**
+	 * Saves the game.
+	 */
+	SAVE,
+
+	/**
+	 * Loads the saved game.
+	 */
+	LOAD,
+
+	/**
+	 * Shows or hides the timing overlay.
+	 */
+	TOGGLE_METRICS;
+
+	/**
+	 * Checks to see if the action is performed by the game engine, and so
+	 * has to be recorded for a game to be replayed. Saving, loading and
+	 * the overlay are handled by the front end.
+	 * @return Whether the action changes the game.
+	 */
+	public boolean isGameAction() {
+		switch(this) {
+		case SAVE:
+		case LOAD:
+		case TOGGLE_METRICS:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.psnbtech;
+
+/**
+ * The {@code InputEvent} class is an {@link InputAction} stamped with the
+ * time it was taken, so that the game loop can record how long it waited
+ * in the queue before a logic tick performed it.
+ * @author Brendan Jones
+ *
+ */
+public final class InputEvent {
+
+	/**
+	 * The action that was taken.
+	 */
+	private final InputAction actAction;
+
+	/**
+	 * The value of {@code System.nanoTime()} when the action was taken.
+	 */
+	private final long lTime;
+
+	/**
+	 * The next event in the queue that holds this event. Only used by
+	 * {@link InputQueue}.
+	 */
+	InputEvent evtNext;
+
+	/**
+	 * Creates a new InputEvent.
+	 * @param actAction The action that was taken.
+	 * @param lTime The value of {@code System.nanoTime()} when the action
+	 * was taken.
+	 */
+	public InputEvent(InputAction actAction, long lTime) {
+		this.actAction = actAction;
+		this.lTime = lTime;
+	}
+
+	/**
+	 * Gets the action that was taken.
+	 * @return The action.
+	 */
+	public InputAction getAction() {
+		return actAction;
+	}
+
+	/**
+	 * Gets the value of {@code System.nanoTime()} when the action was
+	 * taken.
+	 * @return The time in nanoseconds.
+	 */
+	public long getTime() {
+		return lTime;
+	}
+
+}
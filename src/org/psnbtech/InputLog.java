@@ -0,0 +1,200 @@
+package org.psnbtech;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code InputLog} class records everything needed to play a session of
+ * the game again: the seed and strategy of the piece generator, and every
+ * action that changed the game, stamped with the logic tick it was taken on.
+ * The game runs on a fixed timestep, so feeding the same actions in on the
+ * same ticks plays out exactly the same way, which is what {@link Replay}
+ * does.
+ * <p>
+ * Logs are only ever appended to, so one file can hold any number of
+ * sessions. Every record starts with a kind byte, big endian:
+ * <pre>
+ *   SESSION   int magic ("TLOG"), short version, long seed,
+ *             UTF generator name, int lookahead, long tick time
+ *   action    varint ticks since the last record
+ *             (the kind is the {@link InputAction}'s ordinal)
+ *   RESTORE   varint ticks, short length, a saved game as written by
+ *             {@link SaveFile}
+ *   GAME_OVER varint ticks, varint score, varint lines, varint pieces
+ * </pre>
+ * The ticks of a session's first record count from the session's first
+ * tick. A record cut short by a crash is ignored when the log is read.
+ * @author Brendan Jones
+ *
+ */
+public final class InputLog {
+
+	/**
+	 * The magic number at the start of every session, "TLOG".
+	 */
+	static final int MAGIC = 0x544C4F47;
+
+	/**
+	 * The version of the format written by this class.
+	 */
+	static final short VERSION = 1;
+
+	/**
+	 * The kind of a record that starts a session.
+	 */
+	static final int SESSION = 0x7F;
+
+	/**
+	 * The kind of a record that replaces the game with a saved one.
+	 */
+	static final int RESTORE = 0x7E;
+
+	/**
+	 * The kind of a record that holds the result of a finished game.
+	 */
+	static final int GAME_OVER = 0x7D;
+
+	/**
+	 * The stream the log is written to.
+	 */
+	private final DataOutputStream dosOut;
+
+	/**
+	 * The tick of the last record written.
+	 */
+	private int iLastTick;
+
+	/**
+	 * Whether the log has been closed.
+	 */
+	private boolean isClosed;
+
+	/**
+	 * Opens a log, creating the file if it doesn't exist, and starts a
+	 * new session at the end of it.
+	 * @param pthFile The file to append to.
+	 * @param sGenerator The name of the piece generator's strategy, as
+	 * taken by {@code PieceGenerator.create}.
+	 * @param lSeed The seed of the piece generator.
+	 * @param iLookahead The number of pieces the generator looks ahead.
+	 * @param lTickTime The length of a logic tick, in nanoseconds.
+	 * @throws IOException If the file can't be written.
+	 */
+	public InputLog(Path pthFile, String sGenerator, long lSeed,
+		int iLookahead, long lTickTime) throws IOException {
+
+		/*
+		 * The records are only a few bytes each, so they're buffered and
+		 * the game loop only touches the disk once every few thousand.
+		 */
+		this.dosOut = new DataOutputStream(new BufferedOutputStream(
+			Files.newOutputStream(pthFile, StandardOpenOption.CREATE,
+			StandardOpenOption.APPEND)));
+		dosOut.writeByte(SESSION);
+		dosOut.writeInt(MAGIC);
+		dosOut.writeShort(VERSION);
+		dosOut.writeLong(lSeed);
+		dosOut.writeUTF(sGenerator);
+		dosOut.writeInt(iLookahead);
+		dosOut.writeLong(lTickTime);
+		dosOut.flush();
+	}
+
+	/**
+	 * Records an action that was performed on a tick.
+	 * @param iTick The tick.
+	 * @param actAction The action.
+	 * @throws IOException If the log can't be written.
+	 */
+	public synchronized void record(int iTick, InputAction actAction)
+		throws IOException {
+
+		if(!isClosed) {
+			startRecord(actAction.ordinal(), iTick);
+		}
+	}
+
+	/**
+	 * Records a saved game that was restored on a tick, before that tick's
+	 * actions were performed.
+	 * @param iTick The tick.
+	 * @param snpGame The saved game.
+	 * @throws IOException If the log can't be written.
+	 */
+	public synchronized void recordRestore(int iTick, GameSnapshot snpGame)
+		throws IOException {
+
+		if(!isClosed) {
+			ByteBuffer bufSave = SaveFile.encode(snpGame);
+			startRecord(RESTORE, iTick);
+			dosOut.writeShort(bufSave.remaining());
+			dosOut.write(bufSave.array(), bufSave.arrayOffset(),
+				bufSave.remaining());
+		}
+	}
+
+	/**
+	 * Records the result of a game that has just ended, and writes
+	 * everything recorded so far to disk so that finished games survive a
+	 * crash.
+	 * @param iTick The tick the game ended on, plus one, since the game
+	 * ends after the tick's actions are performed.
+	 * @param gamEngine The finished game.
+	 * @throws IOException If the log can't be written.
+	 */
+	public synchronized void recordGameOver(int iTick, GameEngine gamEngine)
+		throws IOException {
+
+		if(!isClosed) {
+			startRecord(GAME_OVER, iTick);
+			writeVarInt(gamEngine.getScore());
+			writeVarInt(gamEngine.getLines());
+			writeVarInt(gamEngine.getPieceCount());
+			dosOut.flush();
+		}
+	}
+
+	/**
+	 * Writes everything recorded to disk and closes the log. Any further
+	 * records are ignored.
+	 * @throws IOException If the log can't be written.
+	 */
+	public synchronized void close() throws IOException {
+		if(!isClosed) {
+			this.isClosed = true;
+			dosOut.close();
+		}
+	}
+
+	/**
+	 * Writes the kind of a record and the ticks since the last one.
+	 * @param iKind The kind of record.
+	 * @param iTick The tick of the record.
+	 * @throws IOException If the log can't be written.
+	 */
+	private void startRecord(int iKind, int iTick) throws IOException {
+		dosOut.writeByte(iKind);
+		writeVarInt(iTick - iLastTick);
+		this.iLastTick = iTick;
+	}
+
+	/**
+	 * Writes a non-negative number seven bits at a time, low bits first,
+	 * with the top bit of every byte but the last set.
+	 * @param iValue The number.
+	 * @throws IOException If the log can't be written.
+	 */
+	private void writeVarInt(int iValue) throws IOException {
+		while((iValue & ~0x7F) != 0) {
+			dosOut.writeByte((iValue & 0x7F) | 0x80);
+			iValue >>>= 7;
+		}
+		dosOut.writeByte(iValue);
+	}
+
+}
@@ -0,0 +1,96 @@
+package org.psnbtech;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@code InputQueue} class passes {@link InputEvent}s from any number of
+ * threads to the game loop without locking. Producers push events onto a
+ * stack with a single compare and set, and the game loop takes every waiting
+ * event at once with a single swap, then puts them back in the order they
+ * were added. Draining once per tick means no event waits longer than one
+ * tick, however many are added in between.
+ * @author Brendan Jones
+ *
+ */
+public final class InputQueue {
+
+	/**
+	 * The most recently added event, linked to the events added before it.
+	 * Null when the queue is empty.
+	 */
+	private final AtomicReference<InputEvent> refHead;
+
+	/**
+	 * Creates a new, empty InputQueue.
+	 */
+	public InputQueue() {
+		this.refHead = new AtomicReference<InputEvent>();
+	}
+
+	/**
+	 * Adds an action to the queue, stamped with the current time. May be
+	 * called from any thread.
+	 * @param actAction The action.
+	 */
+	public void offer(InputAction actAction) {
+		offer(new InputEvent(actAction, System.nanoTime()));
+	}
+
+	/**
+	 * Adds an event to the queue. May be called from any thread. An event
+	 * can only be in one queue, once.
+	 * @param evtEvent The event.
+	 */
+	public void offer(InputEvent evtEvent) {
+		InputEvent evtHead;
+		do {
+			evtHead = refHead.get();
+			evtEvent.evtNext = evtHead;
+		} while(!refHead.compareAndSet(evtHead, evtEvent));
+	}
+
+	/**
+	 * Removes every event in the queue and adds them to a collection, oldest
+	 * first. Must only be called by the one thread that consumes events.
+	 * @param colEvents The collection to add the events to.
+	 * @return The number of events that were removed.
+	 */
+	public int drainTo(Collection<? super InputEvent> colEvents) {
+		InputEvent evtEvent = refHead.getAndSet(null);
+		if(evtEvent == null) {
+			return 0;
+		}
+
+		/*
+		 * The events were pushed onto a stack, so the list has to be
+		 * reversed to get them back in the order they were added.
+		 */
+		InputEvent evtOldest = null;
+		while(evtEvent != null) {
+			InputEvent evtNext = evtEvent.evtNext;
+			evtEvent.evtNext = evtOldest;
+			evtOldest = evtEvent;
+			evtEvent = evtNext;
+		}
+
+		int iCount = 0;
+		while(evtOldest != null) {
+			InputEvent evtNext = evtOldest.evtNext;
+			evtOldest.evtNext = null;
+			colEvents.add(evtOldest);
+			evtOldest = evtNext;
+			iCount++;
+		}
+		return iCount;
+	}
+
+	/**
+	 * Checks whether the queue holds no events.
+	 * @return Whether the queue is empty.
+	 */
+	public boolean isEmpty() {
+		return refHead.get() == null;
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.psnbtech;
+
+/**
+ * The {@code Metric} enum describes the timings that {@link Metrics} keeps.
+ * Every timing is in nanoseconds.
+ * @author Brendan Jones
+ *
+ */
+public enum Metric {
+
+	/**
+	 * How long each logic tick took, including the input it performed.
+	 */
+	LOGIC("Logic"),
+
+	/**
+	 * How long the game loop spent drawing, or asking for a repaint, each
+	 * frame.
+	 */
+	RENDER("Render"),
+
+	/**
+	 * How long Swing took to paint each panel on the event thread.
+	 */
+	PAINT("Paint"),
+
+	/**
+	 * How long after it was due each logic tick ran.
+	 */
+	LAG("Lag"),
+
+	/**
+	 * How much later than asked the game loop woke up from waiting.
+	 */
+	WAKE("Wake"),
+
+	/**
+	 * How long each action waited between the key being pressed and the
+	 * logic tick that performed it.
+	 */
+	INPUT("Input"),
+
+	/**
+	 * How long each garbage collection took, as reported by the collectors.
+	 * Only to the nearest millisecond.
+	 */
+	GC("GC");
+
+	/**
+	 * The name of the metric, as shown in the overlay and the export.
+	 */
+	private final String sName;
+
+	/**
+	 * Creates a new Metric.
+	 * @param sName The name of the metric.
+	 */
+	private Metric(String sName) {
+		this.sName = sName;
+	}
+
+	/**
+	 * Gets the name of the metric.
+	 * @return The name.
+	 */
+	public String getName() {
+		return sName;
+	}
+
+}
@@ -0,0 +1,250 @@
+package org.psnbtech;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@code Metrics} class keeps a {@link Histogram} of every
+ * {@link Metric}. Once a second the game loop moves the values recorded
+ * since the last second out into a set of interval histograms, which the
+ * side panel can show as an overlay and which can be appended to a CSV file
+ * in the background.
+ * @author Brendan Jones
+ *
+ */
+public final class Metrics {
+
+	/**
+	 * The number of nanoseconds in each interval.
+	 */
+	private static final long INTERVAL = 1000000000L;
+
+	/**
+	 * The metrics, indexed by ordinal.
+	 */
+	private static final Metric[] METRICS = Metric.values();
+
+	/**
+	 * The first line of the export file.
+	 */
+	private static final String CSV_HEADER = "time,metric,count,mean_us,"
+		+ "p50_us,p90_us,p99_us,p999_us,max_us";
+
+	/**
+	 * The histograms values are being recorded into, indexed by ordinal.
+	 */
+	private final Histogram[] hstLive;
+
+	/**
+	 * The histograms of the last complete interval, indexed by ordinal.
+	 * Never changed once published.
+	 */
+	private volatile Histogram[] hstInterval;
+
+	/**
+	 * The number of intervals that have been completed.
+	 */
+	private volatile long lIntervals;
+
+	/**
+	 * The time the current interval started, in nanoseconds.
+	 */
+	private long lIntervalStart;
+
+	/**
+	 * The garbage collectors of the virtual machine.
+	 */
+	private final List<GarbageCollectorMXBean> lstCollectors;
+
+	/**
+	 * The number of collections each collector had made when last polled.
+	 */
+	private final long[] lCollections;
+
+	/**
+	 * The total time each collector had spent when last polled, in
+	 * milliseconds.
+	 */
+	private final long[] lCollectionTimes;
+
+	/**
+	 * The file the intervals are appended to, or null.
+	 */
+	private final Path pthExport;
+
+	/**
+	 * Appends the intervals to the export file, or null when there is none.
+	 */
+	private final ExecutorService excExport;
+
+	/**
+	 * Creates a new Metrics.
+	 * @param pthExport The CSV file to append every interval to, or null
+	 * to not export them.
+	 */
+	public Metrics(Path pthExport) {
+		this.hstLive = new Histogram[METRICS.length];
+		this.hstInterval = new Histogram[METRICS.length];
+		for(int iI = 0; iI < METRICS.length; iI++) {
+			hstLive[iI] = new Histogram();
+			hstInterval[iI] = new Histogram();
+		}
+		this.lIntervalStart = System.nanoTime();
+
+		this.lstCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+		this.lCollections = new long[lstCollectors.size()];
+		this.lCollectionTimes = new long[lstCollectors.size()];
+		for(int iI = 0; iI < lstCollectors.size(); iI++) {
+			lCollections[iI] = lstCollectors.get(iI).getCollectionCount();
+			lCollectionTimes[iI] = lstCollectors.get(iI).getCollectionTime();
+		}
+
+		this.pthExport = pthExport;
+		if(pthExport == null) {
+			this.excExport = null;
+		} else {
+			this.excExport = Executors.newSingleThreadExecutor(
+				new ThreadFactory() {
+
+				@Override
+				public Thread newThread(Runnable runTask) {
+					Thread thrWorker = new Thread(runTask,
+						"Tetris metrics export");
+					thrWorker.setDaemon(true);
+					return thrWorker;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Records a value. May be called from any thread.
+	 * @param mtrMetric The metric the value is for.
+	 * @param lNanos The value, in nanoseconds.
+	 */
+	public void record(Metric mtrMetric, long lNanos) {
+		hstLive[mtrMetric.ordinal()].record(lNanos);
+	}
+
+	/**
+	 * Records any garbage collections made since the last update and, if
+	 * an interval has passed, publishes it. Must only be called by the game
+	 * loop.
+	 * @param lNow The value of {@code System.nanoTime()}.
+	 */
+	public void update(long lNow) {
+		/*
+		 * The collectors only report their totals, so each collection
+		 * since the last poll is counted as taking an equal share of the
+		 * time.
+		 */
+		for(int iI = 0; iI < lstCollectors.size(); iI++) {
+			GarbageCollectorMXBean gcbCollector = lstCollectors.get(iI);
+			long lCount = gcbCollector.getCollectionCount();
+			if(lCount > lCollections[iI]) {
+				long lTime = gcbCollector.getCollectionTime();
+				long lEach = (lTime - lCollectionTimes[iI]) * 1000000L
+					/ (lCount - lCollections[iI]);
+				for(long lJ = lCollections[iI]; lJ < lCount; lJ++) {
+					record(Metric.GC, lEach);
+				}
+				lCollections[iI] = lCount;
+				lCollectionTimes[iI] = lTime;
+			}
+		}
+
+		if(lNow - lIntervalStart < INTERVAL) {
+			return;
+		}
+		lIntervalStart = lNow;
+
+		final Histogram[] hstDrained = new Histogram[METRICS.length];
+		for(int iI = 0; iI < METRICS.length; iI++) {
+			hstDrained[iI] = hstLive[iI].drain();
+		}
+		this.hstInterval = hstDrained;
+		this.lIntervals++;
+
+		if(excExport != null) {
+			final long lTime = System.currentTimeMillis();
+			excExport.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					export(lTime, hstDrained);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Gets the histogram of a metric over the last complete interval. Safe
+	 * to call from any thread.
+	 * @param mtrMetric The metric.
+	 * @return The histogram, which must not be recorded into.
+	 */
+	public Histogram getInterval(Metric mtrMetric) {
+		return hstInterval[mtrMetric.ordinal()];
+	}
+
+	/**
+	 * Gets the number of intervals that have been completed, so readers can
+	 * tell when a new one has been published.
+	 * @return The number of intervals.
+	 */
+	public long getIntervalCount() {
+		return lIntervals;
+	}
+
+	/**
+	 * Appends an interval to the export file, one line per metric, writing
+	 * the header first if the file is new. Called on the export thread.
+	 * @param lTime The time the interval ended, in milliseconds since the
+	 * epoch.
+	 * @param hstHistograms The interval's histograms.
+	 */
+	private void export(long lTime, Histogram[] hstHistograms) {
+		try {
+			boolean isNew = !Files.exists(pthExport);
+			BufferedWriter bwrWriter = Files.newBufferedWriter(pthExport,
+				StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+			try {
+				if(isNew) {
+					bwrWriter.write(CSV_HEADER);
+					bwrWriter.newLine();
+				}
+				for(Metric mtrMetric : METRICS) {
+					Histogram hstHistogram = hstHistograms[mtrMetric.ordinal()];
+					bwrWriter.write(lTime + "," + mtrMetric.getName() + ","
+						+ hstHistogram.getCount() + ","
+						+ (long)(hstHistogram.getMean() / 1000.0) + ","
+						+ hstHistogram.getPercentile(50.0) / 1000L + ","
+						+ hstHistogram.getPercentile(90.0) / 1000L + ","
+						+ hstHistogram.getPercentile(99.0) / 1000L + ","
+						+ hstHistogram.getPercentile(99.9) / 1000L + ","
+						+ hstHistogram.getMax() / 1000L);
+					bwrWriter.newLine();
+				}
+			} finally {
+				bwrWriter.close();
+			}
+		} catch(IOException e) {
+			Logger.getLogger(Metrics.class.getName()).log(Level.WARNING,
+				null, e);
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package org.psnbtech;
+
+import java.util.SplittableRandom;
+
+/**
+ * The {@code PieceGenerator} class deals the pieces of a game. Pieces are
+ * picked by a seeded {@link SplittableRandom}, so a generator created with
+ * the same seed always deals the same pieces, and are held in a queue so
+ * that any number of upcoming pieces can be looked at before they are
+ * dealt. Subclasses decide how the pieces are picked. Nothing is allocated
+ * once a generator has been created.
+ * @author Brendan Jones
+ *
+ */
+public abstract class PieceGenerator {
+
+	/**
+	 * The tile types, indexed by ordinal.
+	 */
+	protected static final TileType[] TYPES = TileType.values();
+
+	/**
+	 * The random number generator pieces are picked with.
+	 */
+	protected final SplittableRandom rndRandom;
+
+	/**
+	 * The seed the random number generator was created with.
+	 */
+	private final long lSeed;
+
+	/**
+	 * The pieces that have been picked but not yet dealt, as a ring.
+	 */
+	private final TileType[] tilQueue;
+
+	/**
+	 * The index of the next piece to deal in the queue.
+	 */
+	private int iHead;
+
+	/**
+	 * The number of pieces in the queue.
+	 */
+	private int iSize;
+
+	/**
+	 * Creates a new PieceGenerator.
+	 * @param lSeed The seed of the random number generator.
+	 * @param iLookahead The number of upcoming pieces that can be looked at.
+	 */
+	protected PieceGenerator(long lSeed, int iLookahead) {
+		if(iLookahead < 1) {
+			throw new IllegalArgumentException("Lookahead must be at least 1: "
+				+ iLookahead);
+		}
+		this.rndRandom = new SplittableRandom(lSeed);
+		this.lSeed = lSeed;
+		this.tilQueue = new TileType[iLookahead];
+	}
+
+	/**
+	 * Creates a generator by the name of it's strategy.
+	 * @param sName The strategy: "uniform", "bag" or "history".
+	 * @param lSeed The seed of the random number generator.
+	 * @param iLookahead The number of upcoming pieces that can be looked at.
+	 * @return The generator.
+	 * @throws IllegalArgumentException If there is no such strategy.
+	 */
+	public static PieceGenerator create(String sName, long lSeed,
+		int iLookahead) {
+
+		if("uniform".equals(sName)) {
+			return new UniformGenerator(lSeed, iLookahead);
+		} else if("bag".equals(sName)) {
+			return new BagGenerator(lSeed, iLookahead);
+		} else if("history".equals(sName)) {
+			return new HistoryGenerator(lSeed, iLookahead);
+		}
+		throw new IllegalArgumentException("Unknown piece generator: "
+			+ sName);
+	}
+
+	/**
+	 * Deals the next piece.
+	 * @return The piece.
+	 */
+	public TileType next() {
+		if(iSize == 0) {
+			return pick();
+		}
+		TileType tilType = tilQueue[iHead];
+		iHead = (iHead + 1) % tilQueue.length;
+		iSize--;
+		return tilType;
+	}
+
+	/**
+	 * Looks at an upcoming piece without dealing it.
+	 * @param iIndex How far ahead to look, where 0 is the piece the next
+	 * call to {@code next} will deal.
+	 * @return The piece.
+	 */
+	public TileType peek(int iIndex) {
+		if(iIndex < 0 || iIndex >= tilQueue.length) {
+			throw new IndexOutOfBoundsException("Can only look "
+				+ tilQueue.length + " pieces ahead: " + iIndex);
+		}
+		while(iSize <= iIndex) {
+			tilQueue[(iHead + iSize) % tilQueue.length] = pick();
+			iSize++;
+		}
+		return tilQueue[(iHead + iIndex) % tilQueue.length];
+	}
+
+	/**
+	 * Gets the seed the generator was created with. A generator of the
+	 * same kind created with the same seed deals the same pieces.
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return lSeed;
+	}
+
+	/**
+	 * Gets the number of upcoming pieces that can be looked at.
+	 * @return The number of pieces.
+	 */
+	public int getLookahead() {
+		return tilQueue.length;
+	}
+
+	/**
+	 * Picks a new piece. Pieces are picked in the order they are dealt.
+	 * @return The piece.
+	 */
+	protected abstract TileType pick();
+
+}
@@ -0,0 +1,651 @@
+package org.psnbtech;
+
+import java.util.Arrays;
+
+/**
+ * The {@code PlacementFinder} class finds every position a piece can be
+ * locked in from where it is. A piece can be moved a column left or right,
+ * turned either way with the same kicks {@link GameEngine} uses, or moved
+ * a row down, and every position it can reach that it can't move down from
+ * is somewhere it can be locked. That takes in tucks under overhangs and
+ * spins into gaps as well as straight drops.
+ * <p>
+ * Whether the piece fits is worked out for every column of a row at once,
+ * as a bitmask, before anything else. {@code find} then spreads the
+ * positions the piece can reach through those masks a whole row at a time,
+ * which is all a search needs. {@code findPaths} searches breadth first
+ * over single positions instead, and keeps the shortest run of key presses
+ * that reaches each placement, which {@code getPath} returns. Both find
+ * the same placements.
+ * <p>
+ * A step down is given as {@code InputAction.SOFT_DROP_START}, as the game
+ * has no key that moves a piece a single row; it stands for the piece
+ * falling a row, by soft dropping or by gravity. Every path ends with a
+ * hard drop.
+ * <p>
+ * Positions are packed into ints so they can be collected without
+ * allocating; {@code getCol}, {@code getRow} and {@code getRotation} unpack
+ * them. A finder is not thread safe, but it can be used over and over
+ * without allocating.
+ * @author Brendan Jones
+ *
+ */
+public final class PlacementFinder {
+
+	/**
+	 * How far past the left and top of the board a piece's position can
+	 * be, when the first columns or rows of the piece are empty.
+	 */
+	private static final int MARGIN = 3;
+
+	/**
+	 * The number of bits of a position's index that hold it's column.
+	 */
+	private static final int COL_BITS = 32 - Integer.numberOfLeadingZeros(
+		Board.COL_COUNT + MARGIN - 1);
+
+	/**
+	 * The number of bits of a position's index that hold it's row, with
+	 * room for one row past the bottom of the board.
+	 */
+	private static final int ROW_BITS = 32 - Integer.numberOfLeadingZeros(
+		Board.ROW_COUNT + MARGIN);
+
+	/**
+	 * The number of positions a piece can be in, counting every rotation,
+	 * rounded up so that a position's index is just it's column, row and
+	 * rotation side by side.
+	 */
+	private static final int MAX_STATES = 4 << (COL_BITS + ROW_BITS);
+
+	/**
+	 * The most positions a piece can be locked in. No board comes close,
+	 * but every position the piece can be in is allowed for.
+	 */
+	public static final int MAX_PLACEMENTS = MAX_STATES;
+
+	/**
+	 * The most key presses a path can take, including the hard drop.
+	 */
+	public static final int MAX_PATH = MAX_STATES + 1;
+
+	/**
+	 * The bits of a row mask that stand for columns on the board or past
+	 * it's left edge.
+	 */
+	private static final int COLS = (1 << (Board.COL_COUNT + MARGIN)) - 1;
+
+	/**
+	 * The bits of an extended row that stand for the walls, past the left
+	 * and right of the board.
+	 */
+	private static final int WALLS = ~(Board.FULL_ROW << MARGIN);
+
+	/**
+	 * The input actions, indexed by ordinal.
+	 */
+	private static final InputAction[] ACTIONS = InputAction.values();
+
+	/**
+	 * Added to columns and rows before they're packed, so that negative
+	 * ones pack as positive numbers.
+	 */
+	private static final int OFFSET = 16;
+
+	/**
+	 * The rows of the board shifted over by the margin, with the walls
+	 * filled in.
+	 */
+	private final int[] iWalledRows;
+
+	/**
+	 * The columns the piece fits in at every rotation and row, as
+	 * bitmasks where bit {@code n} stands for column {@code n - MARGIN},
+	 * indexed the same as a position without it's column.
+	 */
+	private final int[] iFits;
+
+	/**
+	 * The columns the piece can reach at every rotation and row.
+	 */
+	private final int[] iReach;
+
+	/**
+	 * The columns of every rotation and row that the piece has already
+	 * been turned from.
+	 */
+	private final int[] iTurned;
+
+	/**
+	 * The positions waiting to be moved from, in the order they were
+	 * reached.
+	 */
+	private final int[] iQueue;
+
+	/**
+	 * The search each position was last reached by, so nothing needs to be
+	 * cleared between searches.
+	 */
+	private final int[] iSeen;
+
+	/**
+	 * The number of moves it takes to reach each position.
+	 */
+	private final int[] iDepths;
+
+	/**
+	 * The position each position was first reached from.
+	 */
+	private final int[] iParents;
+
+	/**
+	 * The ordinal of the move that first reached each position.
+	 */
+	private final byte[] bMoves;
+
+	/**
+	 * The position each placement is reached from, before it's hard
+	 * dropped, in the order the placements were found.
+	 */
+	private final int[] iDropStates;
+
+	/**
+	 * The number of placements the last search found.
+	 */
+	private int iCount;
+
+	/**
+	 * The number of the current search with paths.
+	 */
+	private int iSearch;
+
+	/**
+	 * Creates a new PlacementFinder.
+	 */
+	public PlacementFinder() {
+		this.iWalledRows = new int[Board.ROW_COUNT];
+		this.iFits = new int[4 << ROW_BITS];
+		this.iReach = new int[4 << ROW_BITS];
+		this.iTurned = new int[4 << ROW_BITS];
+		this.iQueue = new int[MAX_STATES];
+		this.iSeen = new int[MAX_STATES];
+		this.iDepths = new int[MAX_STATES];
+		this.iParents = new int[MAX_STATES];
+		this.bMoves = new byte[MAX_STATES];
+		this.iDropStates = new int[MAX_PLACEMENTS];
+	}
+
+	/**
+	 * Finds every position a piece can be locked in, without the paths to
+	 * them.
+	 * @param bbdBoard The board.
+	 * @param tilType The type of the piece.
+	 * @param iCol The column the piece is in.
+	 * @param iRow The row the piece is in.
+	 * @param iRotation The rotation the piece is in.
+	 * @param iPlacements Filled with the packed positions, which must have
+	 * room for {@code MAX_PLACEMENTS}.
+	 * @return The number of positions found.
+	 */
+	public int find(BitBoard bbdBoard, TileType tilType, int iCol, int iRow,
+		int iRotation, int[] iPlacements) {
+
+		this.iCount = 0;
+		findFits(bbdBoard, tilType);
+		if(!fits(iCol, iRow, iRotation)) {
+			return 0;
+		}
+
+		Arrays.fill(iReach, 0);
+		Arrays.fill(iTurned, 0);
+		iReach[toRowIndex(iRow, iRotation)] = 1 << (iCol + MARGIN);
+
+		/*
+		 * Go down the board a row at a time. A kick can move the piece
+		 * up, so if any row above the one being spread was reached for
+		 * the first time, the whole board is gone over again.
+		 */
+		boolean isAboveReached;
+		do {
+			isAboveReached = false;
+			for(int iY = 1; iY < Board.ROW_COUNT + MARGIN; iY++) {
+				isAboveReached |= spreadRow(tilType, iY);
+			}
+		} while(isAboveReached);
+
+		for(int iR = 0; iR < 4; iR++) {
+			for(int iY = 1; iY < Board.ROW_COUNT + MARGIN; iY++) {
+				int iIndex = (iR << ROW_BITS) | iY;
+				for(int iRest = iReach[iIndex] & ~iFits[iIndex + 1];
+					iRest != 0; iRest &= iRest - 1) {
+					iPlacements[iCount++] = pack(
+						Integer.numberOfTrailingZeros(iRest) - MARGIN,
+						iY - MARGIN, iR);
+				}
+			}
+		}
+		return iCount;
+	}
+
+	/**
+	 * Spreads the positions the piece can reach through one row, until
+	 * nothing more in the row can be reached. The piece can fall into the
+	 * row from the one above, slide along it, and turn into it.
+	 * @param tilType The type of the piece.
+	 * @param iY The row, plus the margin.
+	 * @return Whether a row above was reached for the first time.
+	 */
+	private boolean spreadRow(TileType tilType, int iY) {
+		boolean isAboveReached = false;
+		boolean isRowReached;
+		do {
+			isRowReached = false;
+			for(int iR = 0; iR < 4; iR++) {
+				int iIndex = (iR << ROW_BITS) | iY;
+				iReach[iIndex] = slide(
+					(iReach[iIndex] | iReach[iIndex - 1]) & iFits[iIndex],
+					iFits[iIndex]);
+			}
+			for(int iR = 0; iR < 4; iR++) {
+				int iIndex = (iR << ROW_BITS) | iY;
+				if(iReach[iIndex] == iTurned[iIndex]) {
+					continue;
+				}
+				iTurned[iIndex] = iReach[iIndex];
+				for(int iTurn = 1; iTurn < 4; iTurn += 2) {
+					int iReached = turnRow(tilType, iY, iR, (iR + iTurn) & 3,
+						iReach[iIndex]);
+					isAboveReached |= iReached < iY;
+					isRowReached |= iReached == iY;
+				}
+			}
+		} while(isRowReached);
+		return isAboveReached;
+	}
+
+	/**
+	 * Finds every column of a row a piece can slide to from some others.
+	 * @param iFrom The columns the piece is in.
+	 * @param iOpen The columns the piece fits in.
+	 * @return The columns the piece can reach.
+	 */
+	private static int slide(int iFrom, int iOpen) {
+		/*
+		 * Adding a column to the open columns carries through every
+		 * open column to it's left, so the bits that change are the
+		 * ones it can slide to. Reversing the bits does the same the
+		 * other way.
+		 */
+		int iUp = (((iOpen + iFrom) ^ iOpen) & iOpen) | iFrom;
+		int iOpenReversed = Integer.reverse(iOpen);
+		int iFromReversed = Integer.reverse(iFrom);
+		int iDown = (((iOpenReversed + iFromReversed) ^ iOpenReversed)
+			& iOpenReversed) | iFromReversed;
+		return iUp | Integer.reverse(iDown);
+	}
+
+	/**
+	 * Turns the piece from every column of a row at once, trying each of
+	 * it's kicks in turn for the columns no earlier kick fitted.
+	 * @param tilType The type of the piece.
+	 * @param iY The row, plus the margin.
+	 * @param iRotation The rotation to turn from.
+	 * @param iNewRotation The rotation to turn to.
+	 * @param iFrom The columns to turn from.
+	 * @return The highest row, plus the margin, with a column that wasn't
+	 * reached before, or {@code Integer.MAX_VALUE} if there was none.
+	 */
+	private int turnRow(TileType tilType, int iY, int iRotation,
+		int iNewRotation, int iFrom) {
+
+		int iReached = Integer.MAX_VALUE;
+		int iKicks = tilType.getKickCount(iRotation, iNewRotation);
+		for(int iKick = 0; iKick < iKicks && iFrom != 0; iKick++) {
+			int iDX = tilType.getKickCol(iRotation, iNewRotation, iKick);
+			int iNewY = iY + tilType.getKickRow(iRotation, iNewRotation,
+				iKick);
+			if(iNewY <= 0) {
+				continue;
+			}
+			int iIndex = (iNewRotation << ROW_BITS) | iNewY;
+			int iTo = ((iDX >= 0) ? iFrom << iDX : iFrom >>> -iDX)
+				& iFits[iIndex];
+			iFrom &= ~((iDX >= 0) ? iTo >>> iDX : iTo << -iDX);
+			if((iTo & ~iReach[iIndex]) != 0) {
+				iReach[iIndex] |= iTo;
+				iReached = Math.min(iReached, iNewY);
+			}
+		}
+		return iReached;
+	}
+
+	/**
+	 * Finds every position a piece can be locked in, and the shortest path
+	 * to each of them, which {@code getPath} returns until the next search.
+	 * @param bbdBoard The board.
+	 * @param tilType The type of the piece.
+	 * @param iCol The column the piece is in.
+	 * @param iRow The row the piece is in.
+	 * @param iRotation The rotation the piece is in.
+	 * @param iPlacements Filled with the packed positions, which must have
+	 * room for {@code MAX_PLACEMENTS}.
+	 * @return The number of positions found.
+	 */
+	public int findPaths(BitBoard bbdBoard, TileType tilType, int iCol,
+		int iRow, int iRotation, int[] iPlacements) {
+
+		this.iCount = 0;
+		if(++iSearch == 0) {
+			//The counter wrapped, so old marks could look current.
+			Arrays.fill(iSeen, 0);
+			this.iSearch = 1;
+		}
+		findFits(bbdBoard, tilType);
+		if(!fits(iCol, iRow, iRotation)) {
+			return 0;
+		}
+
+		int iHead = 0;
+		int iTail = 0;
+		int iStart = toState(iCol, iRow, iRotation);
+		iSeen[iStart] = iSearch;
+		iDepths[iStart] = 0;
+		iParents[iStart] = -1;
+		iQueue[iTail++] = iStart;
+		while(iHead < iTail) {
+			int iState = iQueue[iHead++];
+			int iX = getStateCol(iState);
+			int iY = getStateRow(iState);
+			int iR = getStateRotation(iState);
+
+			/*
+			 * Try every move from here, in a fixed order so that the
+			 * same board always gives the same placements and paths.
+			 */
+			iTail = visit(iX - 1, iY, iR, iState, InputAction.MOVE_LEFT,
+				iTail);
+			iTail = visit(iX + 1, iY, iR, iState, InputAction.MOVE_RIGHT,
+				iTail);
+			iTail = turn(tilType, iX, iY, iR, (iR + 1) & 3, iState,
+				InputAction.ROTATE_CLOCKWISE, iTail);
+			iTail = turn(tilType, iX, iY, iR, (iR + 3) & 3, iState,
+				InputAction.ROTATE_ANTICLOCKWISE, iTail);
+			if(fits(iX, iY + 1, iR)) {
+				iTail = visit(iX, iY + 1, iR, iState,
+					InputAction.SOFT_DROP_START, iTail);
+			} else {
+				iPlacements[iCount] = pack(iX, iY, iR);
+				iDropStates[iCount] = iState;
+				iCount++;
+			}
+		}
+
+		/*
+		 * Every position straight above a placement that was reached
+		 * drops onto it, so the quickest way there is to hard drop from
+		 * whichever of them took the fewest moves to reach.
+		 */
+		for(int iI = 0; iI < iCount; iI++) {
+			int iBest = iDropStates[iI];
+			int iX = getStateCol(iBest);
+			int iR = getStateRotation(iBest);
+			for(int iY = getStateRow(iBest) - 1; iY > -MARGIN; iY--) {
+				int iState = toState(iX, iY, iR);
+				if(iSeen[iState] != iSearch) {
+					break;
+				}
+				if(iDepths[iState] < iDepths[iBest]) {
+					iBest = iState;
+				}
+			}
+			iDropStates[iI] = iBest;
+		}
+		return iCount;
+	}
+
+	/**
+	 * Turns the piece the way the game engine does, trying each of it's
+	 * kicks until one fits, and visits where it ends up.
+	 * @param tilType The type of the piece.
+	 * @param iCol The column of the piece.
+	 * @param iRow The row of the piece.
+	 * @param iRotation The rotation of the piece.
+	 * @param iNewRotation The rotation to turn to.
+	 * @param iParent The position being moved from.
+	 * @param actMove The key that turns the piece.
+	 * @param iTail The end of the queue.
+	 * @return The new end of the queue.
+	 */
+	private int turn(TileType tilType, int iCol, int iRow, int iRotation,
+		int iNewRotation, int iParent, InputAction actMove, int iTail) {
+
+		int iKicks = tilType.getKickCount(iRotation, iNewRotation);
+		for(int iKick = 0; iKick < iKicks; iKick++) {
+			int iNewCol = iCol + tilType.getKickCol(iRotation, iNewRotation,
+				iKick);
+			int iNewRow = iRow + tilType.getKickRow(iRotation, iNewRotation,
+				iKick);
+			if(fits(iNewCol, iNewRow, iNewRotation)) {
+				return visit(iNewCol, iNewRow, iNewRotation, iParent,
+					actMove, iTail);
+			}
+		}
+		return iTail;
+	}
+
+	/**
+	 * Adds a position to the queue, if the piece fits there and it hasn't
+	 * been reached already.
+	 * @param iCol The column of the position.
+	 * @param iRow The row of the position.
+	 * @param iRotation The rotation of the position.
+	 * @param iParent The position it's reached from.
+	 * @param actMove The key that reaches it.
+	 * @param iTail The end of the queue.
+	 * @return The new end of the queue.
+	 */
+	private int visit(int iCol, int iRow, int iRotation, int iParent,
+		InputAction actMove, int iTail) {
+
+		if(!fits(iCol, iRow, iRotation)) {
+			return iTail;
+		}
+		int iState = toState(iCol, iRow, iRotation);
+		if(iSeen[iState] == iSearch) {
+			return iTail;
+		}
+		iSeen[iState] = iSearch;
+		iDepths[iState] = iDepths[iParent] + 1;
+		iParents[iState] = iParent;
+		bMoves[iState] = (byte)actMove.ordinal();
+		iQueue[iTail] = iState;
+		return iTail + 1;
+	}
+
+	/**
+	 * Finds the columns the piece fits in at every rotation and row, all
+	 * at once. A piece fits wherever none of it's rows overlap the board or
+	 * the walls, so each row of the piece rules out the columns where any
+	 * of it's tiles would land on a filled cell, found by shifting the row
+	 * of the board once per tile.
+	 * @param bbdBoard The board.
+	 * @param tilType The type of the piece.
+	 */
+	private void findFits(BitBoard bbdBoard, TileType tilType) {
+		for(int iY = 0; iY < Board.ROW_COUNT; iY++) {
+			iWalledRows[iY] = (bbdBoard.getRowMask(iY) << MARGIN) | WALLS;
+		}
+		for(int iR = 0; iR < 4; iR++) {
+			int iTop = tilType.getTopInset(iR);
+			int iLast = tilType.getDimension() - tilType.getBottomInset(iR);
+			for(int iY = 1 - MARGIN; iY < Board.ROW_COUNT; iY++) {
+				int iFit = COLS;
+				if(iY + iTop < 0 || iY + iLast >= Board.ROW_COUNT) {
+					iFit = 0;
+				}
+				for(int iRow = iTop; iRow <= iLast && iFit != 0; iRow++) {
+					int iWalled = iWalledRows[iY + iRow];
+					for(int iMask = tilType.getRowMask(iR, iRow); iMask != 0;
+						iMask &= iMask - 1) {
+						iFit &= ~(iWalled >>> Integer.numberOfTrailingZeros(
+							iMask));
+					}
+				}
+				iFits[toRowIndex(iY, iR)] = iFit;
+			}
+		}
+	}
+
+	/**
+	 * Checks to see if the piece fits in a position, by the masks of the
+	 * current search.
+	 * @param iCol The column of the position.
+	 * @param iRow The row of the position.
+	 * @param iRotation The rotation of the position.
+	 * @return Whether the piece fits.
+	 */
+	private boolean fits(int iCol, int iRow, int iRotation) {
+		/*
+		 * Positions off the board never fit, and checking for that
+		 * first keeps them from being looked up in another row.
+		 */
+		if(iCol <= -MARGIN || iCol >= Board.COL_COUNT || iRow <= -MARGIN
+			|| iRow >= Board.ROW_COUNT) {
+			return false;
+		}
+		return ((iFits[toRowIndex(iRow, iRotation)] >>> (iCol + MARGIN))
+			& 1) != 0;
+	}
+
+	/**
+	 * Gets the number of key presses it takes to lock the piece in one of
+	 * the placements of the last search with paths.
+	 * @param iIndex The index of the placement.
+	 * @return The number of key presses, including the hard drop.
+	 */
+	public int getPathLength(int iIndex) {
+		return iDepths[iDropStates[iIndex]] + 1;
+	}
+
+	/**
+	 * Gets the shortest run of key presses that locks the piece in one of
+	 * the placements of the last search with paths.
+	 * @param iIndex The index of the placement.
+	 * @param actPath Filled with the key presses, which must have room for
+	 * {@code MAX_PATH}.
+	 * @return The number of key presses, including the hard drop.
+	 */
+	public int getPath(int iIndex, InputAction[] actPath) {
+		int iLength = getPathLength(iIndex);
+		actPath[iLength - 1] = InputAction.HARD_DROP;
+		int iI = iLength - 2;
+		for(int iState = iDropStates[iIndex]; iParents[iState] >= 0;
+			iState = iParents[iState]) {
+			actPath[iI--] = ACTIONS[bMoves[iState]];
+		}
+		return iLength;
+	}
+
+	/**
+	 * Gets the index of a position among the placements of the last
+	 * search.
+	 * @param iPlacement The packed position.
+	 * @param iPlacements The placements the last search found.
+	 * @return The index, or -1 if the position can't be reached.
+	 */
+	public int indexOf(int iPlacement, int[] iPlacements) {
+		for(int iI = 0; iI < iCount; iI++) {
+			if(iPlacements[iI] == iPlacement) {
+				return iI;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the index of a row of a rotation in the masks.
+	 * @param iRow The row.
+	 * @param iRotation The rotation.
+	 * @return The index.
+	 */
+	private static int toRowIndex(int iRow, int iRotation) {
+		return (iRotation << ROW_BITS) | (iRow + MARGIN);
+	}
+
+	/**
+	 * Finds the index of a position in the search's arrays.
+	 * @param iCol The column.
+	 * @param iRow The row.
+	 * @param iRotation The rotation.
+	 * @return The index.
+	 */
+	private static int toState(int iCol, int iRow, int iRotation) {
+		return (toRowIndex(iRow, iRotation) << COL_BITS) | (iCol + MARGIN);
+	}
+
+	/**
+	 * Gets the column of a position in the search's arrays.
+	 * @param iState The index of the position.
+	 * @return The column.
+	 */
+	private static int getStateCol(int iState) {
+		return (iState & ((1 << COL_BITS) - 1)) - MARGIN;
+	}
+
+	/**
+	 * Gets the row of a position in the search's arrays.
+	 * @param iState The index of the position.
+	 * @return The row.
+	 */
+	private static int getStateRow(int iState) {
+		return ((iState >>> COL_BITS) & ((1 << ROW_BITS) - 1)) - MARGIN;
+	}
+
+	/**
+	 * Gets the rotation of a position in the search's arrays.
+	 * @param iState The index of the position.
+	 * @return The rotation.
+	 */
+	private static int getStateRotation(int iState) {
+		return iState >>> (COL_BITS + ROW_BITS);
+	}
+
+	/**
+	 * Packs a position into an int.
+	 * @param iCol The column.
+	 * @param iRow The row.
+	 * @param iRotation The rotation.
+	 * @return The packed position.
+	 */
+	static int pack(int iCol, int iRow, int iRotation) {
+		return ((iCol + OFFSET) << 10) | ((iRow + OFFSET) << 2) | iRotation;
+	}
+
+	/**
+	 * Gets the column of a packed position.
+	 * @param iPlacement The packed position.
+	 * @return The column.
+	 */
+	public static int getCol(int iPlacement) {
+		return (iPlacement >>> 10) - OFFSET;
+	}
+
+	/**
+	 * Gets the row of a packed position.
+	 * @param iPlacement The packed position.
+	 * @return The row.
+	 */
+	public static int getRow(int iPlacement) {
+		return ((iPlacement >>> 2) & 0xFF) - OFFSET;
+	}
+
+	/**
+	 * Gets the rotation of a packed position.
+	 * @param iPlacement The packed position.
+	 * @return The rotation.
+	 */
+	public static int getRotation(int iPlacement) {
+		return iPlacement & 3;
+	}
+
+}
@@ -0,0 +1,256 @@
+package org.psnbtech;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The {@code PlacementTask} class finds the value of one board of a
+ * {@link SearchPlayer}'s search on a fork join pool. It places the piece
+ * every way it can, and if there are more pieces to place after it, forks
+ * a task for each board it gets so that idle threads can steal them. The
+ * last piece is placed on a single thread, as scoring a board is too
+ * little work to be worth handing over.
+ * <p>
+ * A task's boards are kept back to back in one array of rows, which it's
+ * children only read, so a task allocates a handful of arrays however many
+ * placements it tries. Everything else a task works with belongs to it's
+ * thread, and is only used between the task starting and it's first join,
+ * so the tasks a thread runs while waiting for others can use the same.
+ * The only thing the tasks share is the player's transposition table.
+ * @author Brendan Jones
+ *
+ */
+final class PlacementTask extends RecursiveTask<Double> {
+
+	/**
+	 * The Serial Version UID.
+	 */
+	private static final long serialVersionUID = -2394813326420381157L;
+
+	/**
+	 * The finder of each thread.
+	 */
+	private static final ThreadLocal<PlacementFinder> FINDERS =
+		new ThreadLocal<PlacementFinder>() {
+
+		@Override
+		protected PlacementFinder initialValue() {
+			return new PlacementFinder();
+		}
+
+	};
+
+	/**
+	 * The placements each thread's finder finds.
+	 */
+	private static final ThreadLocal<int[]> PLACEMENTS =
+		new ThreadLocal<int[]>() {
+
+		@Override
+		protected int[] initialValue() {
+			return new int[PlacementFinder.MAX_PLACEMENTS];
+		}
+
+	};
+
+	/**
+	 * The boards of each thread: the one the piece is placed on, and the
+	 * one it's placed onto a copy of.
+	 */
+	private static final ThreadLocal<BitBoard[]> BOARDS =
+		new ThreadLocal<BitBoard[]>() {
+
+		@Override
+		protected BitBoard[] initialValue() {
+			return new BitBoard[] {new BitBoard(), new BitBoard()};
+		}
+
+	};
+
+	/**
+	 * The player whose search this is part of.
+	 */
+	private final SearchPlayer srpPlayer;
+
+	/**
+	 * The rows of the boards the board the piece is placed on is one of,
+	 * which aren't changed.
+	 */
+	private final int[] iBoards;
+
+	/**
+	 * The index of the first row of the board the piece is placed on.
+	 */
+	private final int iOffset;
+
+	/**
+	 * The index of the piece being placed.
+	 */
+	private final int iPly;
+
+	/**
+	 * The column the piece starts in.
+	 */
+	private final int iStartCol;
+
+	/**
+	 * The row the piece starts in.
+	 */
+	private final int iStartRow;
+
+	/**
+	 * The rotation the piece starts in.
+	 */
+	private final int iStartRotation;
+
+	/**
+	 * The packed position of the best placement, or -1 if there was none.
+	 */
+	private int iBest;
+
+	/**
+	 * Creates a new PlacementTask for the first piece of a search.
+	 * @param srpPlayer The player whose search this is part of.
+	 * @param bbdBoard The board the piece is placed on.
+	 * @param iPly The index of the piece being placed.
+	 * @param iStartCol The column the piece starts in.
+	 * @param iStartRow The row the piece starts in.
+	 * @param iStartRotation The rotation the piece starts in.
+	 */
+	PlacementTask(SearchPlayer srpPlayer, BitBoard bbdBoard, int iPly,
+		int iStartCol, int iStartRow, int iStartRotation) {
+
+		this(srpPlayer, new int[BitBoard.ROW_COUNT], 0, iPly, iStartCol,
+			iStartRow, iStartRotation);
+		bbdBoard.copyTo(iBoards, 0);
+	}
+
+	/**
+	 * Creates a new PlacementTask.
+	 * @param srpPlayer The player whose search this is part of.
+	 * @param iBoards The rows of the boards the board the piece is placed
+	 * on is one of.
+	 * @param iOffset The index of the board's first row.
+	 * @param iPly The index of the piece being placed.
+	 * @param iStartCol The column the piece starts in.
+	 * @param iStartRow The row the piece starts in.
+	 * @param iStartRotation The rotation the piece starts in.
+	 */
+	private PlacementTask(SearchPlayer srpPlayer, int[] iBoards, int iOffset,
+		int iPly, int iStartCol, int iStartRow, int iStartRotation) {
+
+		this.srpPlayer = srpPlayer;
+		this.iBoards = iBoards;
+		this.iOffset = iOffset;
+		this.iPly = iPly;
+		this.iStartCol = iStartCol;
+		this.iStartRow = iStartRow;
+		this.iStartRotation = iStartRotation;
+		this.iBest = -1;
+	}
+
+	/**
+	 * Places the piece every way it can and finds the best value that can
+	 * be reached.
+	 * @return The best value, or {@code SearchPlayer.LOSS} if the piece
+	 * can't be placed anywhere.
+	 */
+	@Override
+	protected Double compute() {
+		TileType tilType = srpPlayer.getPiece(iPly);
+		Heuristic heuHeuristic = srpPlayer.getHeuristic();
+		BitBoard[] bbdScratch = BOARDS.get();
+		BitBoard bbdBoard = bbdScratch[0];
+		BitBoard bbdChild = bbdScratch[1];
+		bbdBoard.copyFrom(iBoards, iOffset);
+		int[] iPlacements = PLACEMENTS.get();
+		int iCount = FINDERS.get().find(bbdBoard, tilType,
+			iStartCol, iStartRow, iStartRotation, iPlacements);
+
+		//Keep the first of the best, the same as the single thread search.
+		double dBest = (iPly == 0) ? Double.NEGATIVE_INFINITY :
+			SearchPlayer.LOSS;
+		if(iPly + 1 == srpPlayer.getDepth()) {
+			//The last piece, so every board it leaves is scored here.
+			for(int iI = 0; iI < iCount; iI++) {
+				int iPlacement = iPlacements[iI];
+				bbdChild.copyFrom(bbdBoard);
+				int iLines = bbdChild.addPiece(tilType,
+					PlacementFinder.getCol(iPlacement),
+					PlacementFinder.getRow(iPlacement),
+					PlacementFinder.getRotation(iPlacement));
+				srpPlayer.countPlacement();
+				double dValue = heuHeuristic.evaluateLines(iLines)
+					+ heuHeuristic.evaluate(bbdChild);
+				if(dValue > dBest) {
+					dBest = dValue;
+					this.iBest = iPlacement;
+				}
+			}
+			return dBest;
+		}
+
+		/*
+		 * Fork a task for every board that isn't already known, then
+		 * wait for all of them. The waiting thread works on the tasks
+		 * itself until the others steal them, which can reuse the
+		 * thread's placements, so this task keeps a copy.
+		 */
+		iPlacements = Arrays.copyOf(iPlacements, iCount);
+		int[] iChildren = new int[iCount * BitBoard.ROW_COUNT];
+		long[] lHashes = new long[iCount];
+		double[] dValues = new double[iCount];
+		PlacementTask[] tskChildren = new PlacementTask[iCount];
+		TileType tilNext = srpPlayer.getPiece(iPly + 1);
+		for(int iI = 0; iI < iCount; iI++) {
+			int iPlacement = iPlacements[iI];
+			bbdChild.copyFrom(bbdBoard);
+			int iLines = bbdChild.addPiece(tilType,
+				PlacementFinder.getCol(iPlacement),
+				PlacementFinder.getRow(iPlacement),
+				PlacementFinder.getRotation(iPlacement));
+			srpPlayer.countPlacement();
+			dValues[iI] = heuHeuristic.evaluateLines(iLines);
+			lHashes[iI] = bbdChild.getHash();
+			double dKnown = srpPlayer.lookup(lHashes[iI], iPly + 1);
+			if(Double.isNaN(dKnown)) {
+				if(srpPlayer.canSpawn(bbdChild, iPly + 1)) {
+					bbdChild.copyTo(iChildren, iI * BitBoard.ROW_COUNT);
+					tskChildren[iI] = new PlacementTask(srpPlayer,
+						iChildren, iI * BitBoard.ROW_COUNT, iPly + 1,
+						tilNext.getSpawnColumn(), tilNext.getSpawnRow(), 0);
+					tskChildren[iI].fork();
+					continue;
+				}
+				dKnown = SearchPlayer.LOSS;
+				srpPlayer.store(lHashes[iI], iPly + 1, dKnown);
+			}
+			dValues[iI] += dKnown;
+		}
+		for(int iI = iCount - 1; iI >= 0; iI--) {
+			if(tskChildren[iI] != null) {
+				double dValue = tskChildren[iI].join();
+				srpPlayer.store(lHashes[iI], iPly + 1, dValue);
+				dValues[iI] += dValue;
+			}
+		}
+
+		for(int iI = 0; iI < iCount; iI++) {
+			if(dValues[iI] > dBest) {
+				dBest = dValues[iI];
+				this.iBest = iPlacements[iI];
+			}
+		}
+		return dBest;
+	}
+
+	/**
+	 * Gets the best placement found, once the task is done.
+	 * @return The packed position of the placement, or -1 if there was
+	 * none.
+	 */
+	int getBest() {
+		return iBest;
+	}
+
+}
@@ -0,0 +1,19 @@
+package org.psnbtech;
+
+/**
+ * The {@code Player} interface controls the current piece of a
+ * {@link GameEngine} when a game is played without a keyboard, such as in a
+ * {@link BatchSimulation}.
+ * @author Brendan Jones
+ *
+ */
+public interface Player {
+
+	/**
+	 * Called before every gravity step of the game, so the player can move
+	 * and rotate the current piece.
+	 * @param gamEngine The game being played.
+	 */
+	void move(GameEngine gamEngine);
+
+}
@@ -0,0 +1,48 @@
+package org.psnbtech;
+
+import java.util.Random;
+
+/**
+ * The {@code RandomPlayer} class is a {@link Player} that mashes the move and
+ * rotate keys at random. It's only useful as a baseline for simulations.
+ * @author Brendan Jones
+ *
+ */
+public class RandomPlayer implements Player {
+
+	/**
+	 * The random number generator used to pick moves.
+	 */
+	private final Random rndRandom;
+
+	/**
+	 * Creates a new RandomPlayer.
+	 * @param lSeed The seed of the random number generator used to pick
+	 * moves.
+	 */
+	public RandomPlayer(long lSeed) {
+		this.rndRandom = new Random(lSeed);
+	}
+
+	@Override
+	public void move(GameEngine gamEngine) {
+		switch(rndRandom.nextInt(6)) {
+		case 0:
+			gamEngine.moveLeft();
+			break;
+		case 1:
+			gamEngine.moveRight();
+			break;
+		case 2:
+			gamEngine.rotateClockwise();
+			break;
+		case 3:
+			gamEngine.rotateAnticlockwise();
+			break;
+		default:
+			//Let the piece fall.
+			break;
+		}
+	}
+
+}
@@ -0,0 +1,421 @@
+package org.psnbtech;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code Replay} class is a session read back from an {@link InputLog}.
+ * It can be played headless as fast as possible, checking that every game
+ * ends with the score that was recorded, or fed into a running game one
+ * tick at a time to watch it.
+ * @author Brendan Jones
+ *
+ */
+public final class Replay {
+
+	/**
+	 * The suffix of the log files that are replayed when a directory is
+	 * given on the command line.
+	 */
+	private static final String LOG_SUFFIX = ".tlog";
+
+	/**
+	 * The input actions, indexed by ordinal.
+	 */
+	private static final InputAction[] ACTIONS = InputAction.values();
+
+	/**
+	 * The seed of the piece generator.
+	 */
+	private final long lSeed;
+
+	/**
+	 * The name of the piece generator's strategy.
+	 */
+	private final String sGenerator;
+
+	/**
+	 * The number of pieces the generator looks ahead.
+	 */
+	private final int iLookahead;
+
+	/**
+	 * The length of a logic tick, in nanoseconds.
+	 */
+	private final long lTickTime;
+
+	/**
+	 * The number of records in the session.
+	 */
+	private final int iCount;
+
+	/**
+	 * The tick of every record.
+	 */
+	private final int[] iTicks;
+
+	/**
+	 * The kind of every record: an input action's ordinal, RESTORE or
+	 * GAME_OVER.
+	 */
+	private final int[] iKinds;
+
+	/**
+	 * The saved game of every RESTORE record, or null.
+	 */
+	private final GameSnapshot[] snpRestores;
+
+	/**
+	 * The score, lines and pieces of every GAME_OVER record, three values
+	 * per record.
+	 */
+	private final int[] iResults;
+
+	/**
+	 * Creates a new Replay.
+	 * @param lSeed The seed of the piece generator.
+	 * @param sGenerator The name of the piece generator's strategy.
+	 * @param iLookahead The number of pieces the generator looks ahead.
+	 * @param lTickTime The length of a logic tick, in nanoseconds.
+	 * @param iCount The number of records.
+	 * @param iTicks The tick of every record.
+	 * @param iKinds The kind of every record.
+	 * @param snpRestores The saved game of every RESTORE record.
+	 * @param iResults The results of every GAME_OVER record.
+	 */
+	private Replay(long lSeed, String sGenerator, int iLookahead,
+		long lTickTime, int iCount, int[] iTicks, int[] iKinds,
+		GameSnapshot[] snpRestores, int[] iResults) {
+
+		this.lSeed = lSeed;
+		this.sGenerator = sGenerator;
+		this.iLookahead = iLookahead;
+		this.lTickTime = lTickTime;
+		this.iCount = iCount;
+		this.iTicks = iTicks;
+		this.iKinds = iKinds;
+		this.snpRestores = snpRestores;
+		this.iResults = iResults;
+	}
+
+	/**
+	 * Reads every session in a log.
+	 * @param pthFile The log file.
+	 * @return The sessions, in the order they were recorded.
+	 * @throws IOException If the file can't be read, or isn't a valid log.
+	 */
+	public static List<Replay> read(Path pthFile) throws IOException {
+		List<Replay> lstSessions = new ArrayList<Replay>();
+		DataInputStream disIn = new DataInputStream(new BufferedInputStream(
+			Files.newInputStream(pthFile)));
+		try {
+			int iKind = disIn.read();
+			if(iKind != InputLog.SESSION) {
+				throw new IOException("Not an input log");
+			}
+			while(iKind == InputLog.SESSION) {
+				iKind = readSession(disIn, lstSessions);
+			}
+		} finally {
+			disIn.close();
+		}
+		return lstSessions;
+	}
+
+	/**
+	 * Reads a session, once it's kind byte has been read, and adds it to a
+	 * list.
+	 * @param disIn The stream.
+	 * @param lstSessions The list to add the session to.
+	 * @return The kind byte that follows the session: SESSION if another
+	 * session follows, or -1 at the end of the log.
+	 * @throws IOException If the session isn't valid.
+	 */
+	private static int readSession(DataInputStream disIn,
+		List<Replay> lstSessions) throws IOException {
+
+		if(disIn.readInt() != InputLog.MAGIC) {
+			throw new IOException("Not an input log");
+		}
+		if(disIn.readShort() != InputLog.VERSION) {
+			throw new IOException("Unsupported input log version");
+		}
+		long lSeed = disIn.readLong();
+		String sGenerator = disIn.readUTF();
+		int iLookahead = disIn.readInt();
+		long lTickTime = disIn.readLong();
+
+		int iCount = 0;
+		int[] iTicks = new int[64];
+		int[] iKinds = new int[64];
+		GameSnapshot[] snpRestores = new GameSnapshot[64];
+		int[] iResults = new int[64 * 3];
+		int iTick = 0;
+		int iKind;
+
+		/*
+		 * A session runs until the next one starts or the log ends. If
+		 * the last record was cut short, everything before it is kept.
+		 */
+		try {
+			while((iKind = disIn.read()) >= 0 && iKind != InputLog.SESSION) {
+				iTick += readVarInt(disIn);
+				if(iCount == iTicks.length) {
+					iTicks = Arrays.copyOf(iTicks, iCount * 2);
+					iKinds = Arrays.copyOf(iKinds, iCount * 2);
+					snpRestores = Arrays.copyOf(snpRestores, iCount * 2);
+					iResults = Arrays.copyOf(iResults, iCount * 2 * 3);
+				}
+				if(iKind == InputLog.RESTORE) {
+					byte[] btSave = new byte[disIn.readUnsignedShort()];
+					disIn.readFully(btSave);
+					snpRestores[iCount] = SaveFile.decode(
+						ByteBuffer.wrap(btSave));
+				} else if(iKind == InputLog.GAME_OVER) {
+					iResults[iCount * 3] = readVarInt(disIn);
+					iResults[iCount * 3 + 1] = readVarInt(disIn);
+					iResults[iCount * 3 + 2] = readVarInt(disIn);
+				} else if(iKind >= ACTIONS.length) {
+					throw new IOException("Input log holds an invalid record");
+				}
+				iTicks[iCount] = iTick;
+				iKinds[iCount] = iKind;
+				iCount++;
+			}
+		} catch(EOFException e) {
+			iKind = -1;
+		}
+
+		lstSessions.add(new Replay(lSeed, sGenerator, iLookahead, lTickTime,
+			iCount, iTicks, iKinds, snpRestores, iResults));
+		return iKind;
+	}
+
+	/**
+	 * Reads a number written by {@code InputLog}, seven bits at a time.
+	 * @param insIn The stream.
+	 * @return The number.
+	 * @throws IOException If the stream can't be read, or ends.
+	 */
+	private static int readVarInt(InputStream insIn) throws IOException {
+		int iValue = 0;
+		for(int iShift = 0; iShift < 32; iShift += 7) {
+			int iByte = insIn.read();
+			if(iByte < 0) {
+				throw new EOFException();
+			}
+			iValue |= (iByte & 0x7F) << iShift;
+			if((iByte & 0x80) == 0) {
+				return iValue;
+			}
+		}
+		throw new IOException("Input log holds an invalid number");
+	}
+
+	/**
+	 * Creates a game engine that deals the same pieces as the recorded
+	 * one, ready for the session's first tick.
+	 * @return The game engine.
+	 */
+	public GameEngine createEngine() {
+		return new GameEngine(PieceGenerator.create(sGenerator, lSeed,
+			iLookahead));
+	}
+
+	/**
+	 * Performs everything recorded for a tick, before the engine is
+	 * updated for it. Called by the game loop once per tick to watch the
+	 * session play out.
+	 * @param gamEngine The game engine.
+	 * @param iTick The tick.
+	 * @param iEvent The index of the first record not yet performed.
+	 * @return The index of the first record after the tick.
+	 */
+	public int applyTick(GameEngine gamEngine, int iTick, int iEvent) {
+		while(iEvent < iCount && iTicks[iEvent] <= iTick) {
+			perform(gamEngine, iEvent++);
+		}
+		return iEvent;
+	}
+
+	/**
+	 * Plays the whole session headless, as fast as possible, and checks
+	 * every game ends with the result that was recorded.
+	 * @param staStats The stats to add every finished game to.
+	 * @return The number of games whose result differs from the recorded
+	 * one.
+	 */
+	public int play(SimulationStats staStats) {
+		GameEngine gamEngine = createEngine();
+		int iMismatches = 0;
+		int iEvent = 0;
+		for(int iTick = 0; iEvent < iCount; iTick++) {
+			while(iEvent < iCount && iTicks[iEvent] <= iTick) {
+				if(iKinds[iEvent] == InputLog.GAME_OVER) {
+					if(!gamEngine.isGameOver()
+						|| gamEngine.getScore() != iResults[iEvent * 3]
+						|| gamEngine.getLines() != iResults[iEvent * 3 + 1]
+						|| gamEngine.getPieceCount()
+						!= iResults[iEvent * 3 + 2]) {
+
+						iMismatches++;
+					}
+					staStats.add(gamEngine);
+				} else {
+					perform(gamEngine, iEvent);
+				}
+				iEvent++;
+			}
+			if(iEvent < iCount) {
+				gamEngine.update(lTickTime);
+			}
+		}
+		return iMismatches;
+	}
+
+	/**
+	 * Performs a single record. Results are only checked by {@code play},
+	 * and are skipped.
+	 * @param gamEngine The game engine.
+	 * @param iEvent The index of the record.
+	 */
+	private void perform(GameEngine gamEngine, int iEvent) {
+		int iKind = iKinds[iEvent];
+		if(iKind == InputLog.RESTORE) {
+			gamEngine.restore(snpRestores[iEvent]);
+		} else if(iKind != InputLog.GAME_OVER) {
+			gamEngine.handleInput(ACTIONS[iKind]);
+		}
+	}
+
+	/**
+	 * Gets the seed of the piece generator.
+	 * @return The seed.
+	 */
+	public long getSeed() {
+		return lSeed;
+	}
+
+	/**
+	 * Gets the name of the piece generator's strategy.
+	 * @return The name.
+	 */
+	public String getGenerator() {
+		return sGenerator;
+	}
+
+	/**
+	 * Gets the length of a logic tick.
+	 * @return The tick time, in nanoseconds.
+	 */
+	public long getTickTime() {
+		return lTickTime;
+	}
+
+	/**
+	 * Gets the tick of the last record, after which nothing more happens.
+	 * @return The last tick.
+	 */
+	public int getLastTick() {
+		return (iCount > 0) ? iTicks[iCount - 1] : 0;
+	}
+
+	/**
+	 * Replays every session of the given logs on a pool of threads, and
+	 * prints the combined results and any games that didn't end the way
+	 * they were recorded.
+	 * @param args The log files, or directories to replay every
+	 * {@code .tlog} file in.
+	 * @throws IOException If a log can't be read.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public static void main(String[] args) throws IOException,
+		InterruptedException {
+
+		final List<Replay> lstSessions = new ArrayList<Replay>();
+		for(String sArg : args) {
+			Path pthArg = Paths.get(sArg);
+			if(Files.isDirectory(pthArg)) {
+				DirectoryStream<Path> dstLogs = Files.newDirectoryStream(
+					pthArg, "*" + LOG_SUFFIX);
+				try {
+					for(Path pthLog : dstLogs) {
+						lstSessions.addAll(read(pthLog));
+					}
+				} finally {
+					dstLogs.close();
+				}
+			} else {
+				lstSessions.addAll(read(pthArg));
+			}
+		}
+
+		final int iThreads = Math.max(1, Math.min(lstSessions.size(),
+			Runtime.getRuntime().availableProcessors()));
+		System.out.printf("Replaying %d sessions on %d threads%n",
+			lstSessions.size(), iThreads);
+
+		/*
+		 * The sessions are shared out the same way as a batch
+		 * simulation's games, each thread keeping it's own totals.
+		 */
+		ExecutorService excPool = Executors.newFixedThreadPool(iThreads);
+		long lStart = System.nanoTime();
+		SimulationStats staTotal = new SimulationStats();
+		int iMismatches = 0;
+		try {
+			List<Future<SimulationStats>> lstResults =
+				new ArrayList<Future<SimulationStats>>(iThreads);
+			final int[] iThreadMismatches = new int[iThreads];
+			for(int iT = 0; iT < iThreads; iT++) {
+				final int iFirst = iT;
+				lstResults.add(excPool.submit(
+					new Callable<SimulationStats>() {
+
+					@Override
+					public SimulationStats call() {
+						SimulationStats staStats =
+							new SimulationStats();
+						for(int iI = iFirst; iI < lstSessions.size();
+							iI += iThreads) {
+
+							iThreadMismatches[iFirst] +=
+								lstSessions.get(iI).play(staStats);
+						}
+						return staStats;
+					}
+				}));
+			}
+			for(Future<SimulationStats> futResult : lstResults) {
+				staTotal.merge(futResult.get());
+			}
+			for(int iThreadMismatch : iThreadMismatches) {
+				iMismatches += iThreadMismatch;
+			}
+		} catch(ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			excPool.shutdownNow();
+		}
+		staTotal.setElapsedNanos(System.nanoTime() - lStart);
+		staTotal.print(System.out);
+		System.out.printf("Mismatches: %d%n", iMismatches);
+	}
+
+}
@@ -0,0 +1,302 @@
+package org.psnbtech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code SaveFile} class reads and writes {@link GameSnapshot}s in a
+ * compact binary format. A save is laid out as follows, big endian:
+ * <pre>
+ *   int     magic ("TSAV")
+ *   short   version
+ *   int     level, score
+ *   float   game speed
+ *   int     lines, pieces
+ *   byte    current type, column, row, rotation
+ *   short   drop cooldown
+ *   byte    flags (1 = paused, 2 = new game)
+ *   byte    next type
+ *   short[] one bitmask of occupied columns per row
+ *   byte[]  the type of every occupied tile, one nibble each, row by row
+ *   int     CRC32 of everything above
+ * </pre>
+ * Saves are written to a temporary file that is then renamed over the old
+ * save, so a crash never leaves a half written save behind.
+ * @author Brendan Jones
+ *
+ */
+public final class SaveFile {
+
+	/**
+	 * The first four bytes of every save, "TSAV".
+	 */
+	private static final int MAGIC = 0x54534156;
+
+	/**
+	 * The version of the format written by this class.
+	 */
+	private static final short VERSION = 1;
+
+	/**
+	 * The size of everything before the board.
+	 */
+	private static final int HEADER_SIZE = 4 + 2 + 4 + 4 + 4 + 4 + 4 + 4 + 2
+		+ 1 + 1;
+
+	/**
+	 * The largest a save can be: a full board and the checksum.
+	 */
+	private static final int MAX_SIZE = HEADER_SIZE + Board.ROW_COUNT * 2
+		+ (Board.ROW_COUNT * Board.COL_COUNT + 1) / 2 + 4;
+
+	/**
+	 * The flag set when the game is paused.
+	 */
+	private static final int FLAG_PAUSED = 1;
+
+	/**
+	 * The flag set when the game is a new game.
+	 */
+	private static final int FLAG_NEW_GAME = 2;
+
+	/**
+	 * The tile types, indexed by ordinal.
+	 */
+	private static final TileType[] TYPES = TileType.values();
+
+	private SaveFile() {
+	}
+
+	/**
+	 * Writes a snapshot to a file, replacing the file if it exists.
+	 * @param snpGame The snapshot to write.
+	 * @param pthFile The file.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(GameSnapshot snpGame, Path pthFile)
+		throws IOException {
+
+		ByteBuffer bufSave = encode(snpGame);
+		Path pthTemp = pthFile.resolveSibling(pthFile.getFileName() + ".tmp");
+		FileChannel chnFile = FileChannel.open(pthTemp,
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while(bufSave.hasRemaining()) {
+				chnFile.write(bufSave);
+			}
+			chnFile.force(true);
+		} finally {
+			chnFile.close();
+		}
+
+		try {
+			Files.move(pthTemp, pthFile, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(pthTemp, pthFile,
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a snapshot from a file.
+	 * @param pthFile The file.
+	 * @return The snapshot.
+	 * @throws java.nio.file.NoSuchFileException If there is no save.
+	 * @throws IOException If the file can't be read, or isn't a valid
+	 * save.
+	 */
+	public static GameSnapshot read(Path pthFile) throws IOException {
+		FileChannel chnFile = FileChannel.open(pthFile,
+			StandardOpenOption.READ);
+		try {
+			long lSize = chnFile.size();
+			if(lSize > MAX_SIZE) {
+				throw new IOException("Save file is too large: " + lSize);
+			}
+			ByteBuffer bufSave = ByteBuffer.allocate((int)lSize);
+			while(bufSave.hasRemaining()) {
+				if(chnFile.read(bufSave) < 0) {
+					throw new IOException("Save file is truncated");
+				}
+			}
+			bufSave.flip();
+			return decode(bufSave);
+		} finally {
+			chnFile.close();
+		}
+	}
+
+	/**
+	 * Encodes a snapshot.
+	 * @param snpGame The snapshot.
+	 * @return The encoded snapshot, ready to be read.
+	 */
+	static ByteBuffer encode(GameSnapshot snpGame) {
+		ByteBuffer bufSave = ByteBuffer.allocate(MAX_SIZE);
+		bufSave.putInt(MAGIC);
+		bufSave.putShort(VERSION);
+		bufSave.putInt(snpGame.getLevel());
+		bufSave.putInt(snpGame.getScore());
+		bufSave.putFloat(snpGame.getGameSpeed());
+		bufSave.putInt(snpGame.getLines());
+		bufSave.putInt(snpGame.getPieceCount());
+		bufSave.put((byte)snpGame.getPieceType().ordinal());
+		bufSave.put((byte)snpGame.getPieceCol());
+		bufSave.put((byte)snpGame.getPieceRow());
+		bufSave.put((byte)snpGame.getPieceRotation());
+		bufSave.putShort((short)snpGame.getDropCooldown());
+		bufSave.put((byte)((snpGame.isPaused() ? FLAG_PAUSED : 0)
+			| (snpGame.isNewGame() ? FLAG_NEW_GAME : 0)));
+		bufSave.put((byte)snpGame.getNextPieceType().ordinal());
+
+		/*
+		 * The rows are written as bitmasks first, so the types only
+		 * need to be stored for the tiles that are occupied.
+		 */
+		for(int iY = 0; iY < Board.ROW_COUNT; iY++) {
+			int iMask = 0;
+			for(int iX = 0; iX < Board.COL_COUNT; iX++) {
+				if(snpGame.getTile(iX, iY) != null) {
+					iMask |= 1 << iX;
+				}
+			}
+			bufSave.putShort((short)iMask);
+		}
+
+		int iNibbles = 0;
+		int iPacked = 0;
+		for(int iY = 0; iY < Board.ROW_COUNT; iY++) {
+			for(int iX = 0; iX < Board.COL_COUNT; iX++) {
+				TileType tilType = snpGame.getTile(iX, iY);
+				if(tilType != null) {
+					iPacked = (iPacked << 4) | tilType.ordinal();
+					if(++iNibbles % 2 == 0) {
+						bufSave.put((byte)iPacked);
+						iPacked = 0;
+					}
+				}
+			}
+		}
+		if(iNibbles % 2 != 0) {
+			bufSave.put((byte)(iPacked << 4));
+		}
+
+		CRC32 crcSave = new CRC32();
+		crcSave.update(bufSave.array(), 0, bufSave.position());
+		bufSave.putInt((int)crcSave.getValue());
+		bufSave.flip();
+		return bufSave;
+	}
+
+	/**
+	 * Decodes a snapshot, checking that every value in it is valid.
+	 * @param bufSave The encoded snapshot.
+	 * @return The snapshot.
+	 * @throws IOException If the save isn't valid.
+	 */
+	static GameSnapshot decode(ByteBuffer bufSave) throws IOException {
+		if(bufSave.remaining() < HEADER_SIZE + Board.ROW_COUNT * 2 + 4) {
+			throw new IOException("Save file is truncated");
+		}
+		if(bufSave.getInt(0) != MAGIC) {
+			throw new IOException("Not a save file");
+		}
+		if(bufSave.getShort(4) != VERSION) {
+			throw new IOException("Unsupported save file version: "
+				+ bufSave.getShort(4));
+		}
+
+		int iEnd = bufSave.limit() - 4;
+		CRC32 crcSave = new CRC32();
+		crcSave.update(bufSave.array(), bufSave.arrayOffset(), iEnd);
+		if((int)crcSave.getValue() != bufSave.getInt(iEnd)) {
+			throw new IOException("Save file is corrupt");
+		}
+
+		bufSave.position(6);
+		int iLevel = bufSave.getInt();
+		int iScore = bufSave.getInt();
+		float fGameSpeed = bufSave.getFloat();
+		int iLines = bufSave.getInt();
+		int iPieces = bufSave.getInt();
+		TileType tilCurrentType = readType(bufSave.get());
+		int iCurrentCol = bufSave.get();
+		int iCurrentRow = bufSave.get();
+		int iCurrentRotation = bufSave.get();
+		int iDropCooldown = bufSave.getShort();
+		int iFlags = bufSave.get();
+		TileType tilNextType = readType(bufSave.get());
+		if(iCurrentRotation < 0 || iCurrentRotation > 3
+			|| iDropCooldown < 0 || !(fGameSpeed > 0.0f)) {
+			throw new IOException("Save file holds an invalid game");
+		}
+
+		int[] iRowMasks = new int[Board.ROW_COUNT];
+		int iTiles = 0;
+		for(int iY = 0; iY < Board.ROW_COUNT; iY++) {
+			iRowMasks[iY] = bufSave.getShort() & 0xFFFF;
+			if((iRowMasks[iY] & ~Board.FULL_ROW) != 0) {
+				throw new IOException("Save file holds an invalid row");
+			}
+			iTiles += Integer.bitCount(iRowMasks[iY]);
+		}
+		if(bufSave.position() + (iTiles + 1) / 2 != iEnd) {
+			throw new IOException("Save file is truncated");
+		}
+
+		Board brdBoard = new Board();
+		int iNibble = 0;
+		int iPacked = 0;
+		for(int iY = 0; iY < Board.ROW_COUNT; iY++) {
+			for(int iX = 0; iX < Board.COL_COUNT; iX++) {
+				if((iRowMasks[iY] & (1 << iX)) != 0) {
+					if(iNibble++ % 2 == 0) {
+						iPacked = bufSave.get() & 0xFF;
+						brdBoard.setTile(iX, iY, readType(iPacked >> 4));
+					} else {
+						brdBoard.setTile(iX, iY,
+							readType(iPacked & 0x0F));
+					}
+				}
+			}
+		}
+
+		/*
+		 * A piece that doesn't fit where it was saved can only come
+		 * from a damaged or hand edited file.
+		 */
+		if(!brdBoard.isValidAndEmpty(tilCurrentType, iCurrentCol,
+			iCurrentRow, iCurrentRotation)) {
+			throw new IOException("Save file holds an invalid piece");
+		}
+
+		return new GameSnapshot(iLevel, iScore, fGameSpeed, iLines, iPieces,
+			tilCurrentType, iCurrentCol, iCurrentRow, iCurrentRotation,
+			iDropCooldown, (iFlags & FLAG_PAUSED) != 0,
+			(iFlags & FLAG_NEW_GAME) != 0, tilNextType,
+			GameSnapshot.copyCells(brdBoard));
+	}
+
+	/**
+	 * Reads the ordinal of a tile type.
+	 * @param iOrdinal The ordinal.
+	 * @return The tile type.
+	 * @throws IOException If the ordinal isn't a tile type.
+	 */
+	private static TileType readType(int iOrdinal) throws IOException {
+		if(iOrdinal < 0 || iOrdinal >= TYPES.length) {
+			throw new IOException("Save file holds an invalid tile type: "
+				+ iOrdinal);
+		}
+		return TYPES[iOrdinal];
+	}
+
+}
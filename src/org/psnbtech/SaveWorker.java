@@ -0,0 +1,121 @@
+package org.psnbtech;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The {@code SaveWorker} class reads and writes the save file on a
+ * background thread, so that slow disks never hold up input or drawing.
+ * Saves are handed over as immutable {@link GameSnapshot}s. Loaded games
+ * are held until the game loop picks them up with {@code pollLoaded} and
+ * restores them between updates.
+ * @author Brendan Jones
+ *
+ */
+public class SaveWorker {
+
+	/**
+	 * The file the game is saved to.
+	 */
+	private final Path pthFile;
+
+	/**
+	 * The background thread that does the reading and writing.
+	 */
+	private final ExecutorService excWorker;
+
+	/**
+	 * The latest snapshot waiting to be written, or null. If the player
+	 * saves again before the previous save is written, only the newest
+	 * snapshot is written.
+	 */
+	private final AtomicReference<GameSnapshot> refPendingSave;
+
+	/**
+	 * The latest snapshot that has been loaded and not yet picked up by
+	 * the game loop, or null.
+	 */
+	private final AtomicReference<GameSnapshot> refLoaded;
+
+	/**
+	 * Creates a new SaveWorker.
+	 * @param pthFile The file the game is saved to.
+	 */
+	public SaveWorker(Path pthFile) {
+		this.pthFile = pthFile;
+		this.refPendingSave = new AtomicReference<GameSnapshot>();
+		this.refLoaded = new AtomicReference<GameSnapshot>();
+		this.excWorker = Executors.newSingleThreadExecutor(
+			new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runTask) {
+				Thread thrWorker = new Thread(runTask, "Tetris save worker");
+				thrWorker.setDaemon(true);
+				return thrWorker;
+			}
+		});
+	}
+
+	/**
+	 * Writes a snapshot to the save file in the background.
+	 * @param snpGame The snapshot to write.
+	 */
+	public void save(GameSnapshot snpGame) {
+		if(refPendingSave.getAndSet(snpGame) != null) {
+			//A write is already queued, and will pick this one up.
+			return;
+		}
+		excWorker.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				GameSnapshot snpPending = refPendingSave.getAndSet(null);
+				try {
+					SaveFile.write(snpPending, pthFile);
+				} catch(IOException e) {
+					Logger.getLogger(SaveWorker.class.getName()).log(
+						Level.SEVERE, null, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Reads the save file in the background. Once it's been read, the
+	 * game can be picked up with {@code pollLoaded}. If there is no save
+	 * or it's damaged, nothing is loaded.
+	 */
+	public void load() {
+		excWorker.execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					refLoaded.set(SaveFile.read(pthFile));
+				} catch(NoSuchFileException e) {
+					// Si no se encuentra archivo guardado no cargar nada
+				} catch(IOException e) {
+					Logger.getLogger(SaveWorker.class.getName()).log(
+						Level.SEVERE, null, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Takes the game that was loaded in the background, if there is one.
+	 * @return The loaded game, or null if none is waiting.
+	 */
+	public GameSnapshot pollLoaded() {
+		return refLoaded.getAndSet(null);
+	}
+
+}
@@ -0,0 +1,494 @@
+package org.psnbtech;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code SearchPlayer} class is a {@link Player} that searches ahead.
+ * It tries every placement of the current piece it can reach, then every
+ * placement of the pieces after it as far as it's allowed to look, scores
+ * the boards it ends up with by a {@link Heuristic}, and plays the
+ * placement that leads to the best of them.
+ * <p>
+ * The search runs on {@link BitBoard}s, one per piece, so trying a
+ * placement is an array copy and a few mask operations. Values it has
+ * already found are kept in a {@link TranspositionTable}, keyed by the
+ * board's hash and the pieces still to place, so a board reached twice in
+ * a search, such as by two rotations that fill the same tiles, is only
+ * searched once. The boards past the last piece are just scored, as that
+ * costs about as much as looking them up.
+ * <p>
+ * Given a {@link ForkJoinPool}, the search is split into a
+ * {@link PlacementTask} per placement, which the pool's threads steal from
+ * each other, all sharing the one table. Either way the same placement is
+ * picked.
+ * @author Brendan Jones
+ *
+ */
+public class SearchPlayer implements Player {
+
+	/**
+	 * The number of pieces searched when none is given: the current piece
+	 * and the next one.
+	 */
+	public static final int DEFAULT_DEPTH = 2;
+
+	/**
+	 * The most pieces that can be searched: the current one, the next one
+	 * and every piece the engine can look ahead.
+	 */
+	public static final int MAX_DEPTH = GameEngine.LOOKAHEAD + 2;
+
+	/**
+	 * The base 2 logarithm of the number of slots in the transposition
+	 * table when none is given.
+	 */
+	public static final int DEFAULT_TABLE_BITS = 16;
+
+	/**
+	 * The value of a board the next piece can't spawn on.
+	 */
+	static final double LOSS = -1.0e9;
+
+	/**
+	 * The tile types, indexed by ordinal.
+	 */
+	private static final TileType[] TYPES = TileType.values();
+
+	/**
+	 * The random key of every type of piece at every depth, mixed into the
+	 * hash of a board to key the pieces still to be placed on it.
+	 */
+	private static final long[][] PIECE_KEYS = createKeys();
+
+	/**
+	 * The heuristic that scores the boards.
+	 */
+	private final Heuristic heuHeuristic;
+
+	/**
+	 * The number of pieces to search.
+	 */
+	private final int iDepth;
+
+	/**
+	 * The values that have already been found.
+	 */
+	private final TranspositionTable ttbTable;
+
+	/**
+	 * The board before each piece of the search is placed, and the board
+	 * after the last one.
+	 */
+	private final BitBoard[] bbdBoards;
+
+	/**
+	 * The pieces being searched, starting with the current piece.
+	 */
+	private final TileType[] tilPieces;
+
+	/**
+	 * The key of the pieces still to be placed at each depth of the
+	 * search. Boards past the last piece are scored straight away, as
+	 * scoring one costs about as much as looking it up, so they have no
+	 * key.
+	 */
+	private final long[] lSequenceKeys;
+
+	/**
+	 * The pool the search is spread over, or null to search on the
+	 * calling thread.
+	 */
+	private final ForkJoinPool fjpPool;
+
+	/**
+	 * Finds the placements of the single threaded search.
+	 */
+	private final PlacementFinder pfnFinder;
+
+	/**
+	 * The placements of every piece of the single threaded search, as
+	 * packed by {@link PlacementFinder}.
+	 */
+	private final int[][] iPlacements;
+
+	/**
+	 * The number of placements tried.
+	 */
+	private final LongAdder ladPlacements;
+
+	/**
+	 * The key presses that lock the current piece where it's planned to
+	 * go, from where it is.
+	 */
+	private final InputAction[] actPath;
+
+	/**
+	 * Whether there's a placement to play.
+	 */
+	private boolean hasPlan;
+
+	/**
+	 * The number of pieces the game had locked when the plan was made, so
+	 * it's made again for every new piece.
+	 */
+	private int iPlanPieces;
+
+	/**
+	 * The packed position to lock the current piece in.
+	 */
+	private int iTarget;
+
+	/**
+	 * Creates a new SearchPlayer that searches the current and next piece
+	 * with the default heuristic.
+	 */
+	public SearchPlayer() {
+		this(Heuristic.DEFAULT, DEFAULT_DEPTH, DEFAULT_TABLE_BITS, null);
+	}
+
+	/**
+	 * Creates a new SearchPlayer.
+	 * @param heuHeuristic The heuristic that scores the boards.
+	 * @param iDepth The number of pieces to search, from 1 to
+	 * {@code MAX_DEPTH}.
+	 * @param iTableBits The base 2 logarithm of the number of slots in the
+	 * transposition table.
+	 * @param fjpPool The pool to spread the search over, or null to search
+	 * on the thread that plays.
+	 */
+	public SearchPlayer(Heuristic heuHeuristic, int iDepth, int iTableBits,
+		ForkJoinPool fjpPool) {
+
+		if(iDepth < 1 || iDepth > MAX_DEPTH) {
+			throw new IllegalArgumentException("Depth must be from 1 to "
+				+ MAX_DEPTH + ": " + iDepth);
+		}
+		this.heuHeuristic = heuHeuristic;
+		this.iDepth = iDepth;
+		this.ttbTable = new TranspositionTable(iTableBits);
+		this.bbdBoards = new BitBoard[iDepth + 1];
+		for(int iI = 0; iI <= iDepth; iI++) {
+			bbdBoards[iI] = new BitBoard();
+		}
+		this.tilPieces = new TileType[iDepth];
+		this.lSequenceKeys = new long[iDepth];
+		this.fjpPool = fjpPool;
+		this.pfnFinder = new PlacementFinder();
+		this.iPlacements = new int[iDepth][PlacementFinder.MAX_PLACEMENTS];
+		this.ladPlacements = new LongAdder();
+		this.actPath = new InputAction[PlacementFinder.MAX_PATH];
+	}
+
+	/**
+	 * Creates the random keys of the pieces, from a fixed seed.
+	 * @return The keys, indexed by depth then ordinal.
+	 */
+	private static long[][] createKeys() {
+		SplittableRandom rndKeys = new SplittableRandom(0x9EC3L);
+		long[][] lKeys = new long[MAX_DEPTH][TYPES.length];
+		for(int iD = 0; iD < MAX_DEPTH; iD++) {
+			for(int iT = 0; iT < TYPES.length; iT++) {
+				lKeys[iD][iT] = rndKeys.nextLong();
+			}
+		}
+		return lKeys;
+	}
+
+	/**
+	 * Plays the current piece all at once: searches for the best
+	 * placement, and presses the keys that lock the piece there.
+	 * @param gamEngine The game being played.
+	 */
+	@Override
+	public void move(GameEngine gamEngine) {
+		if(gamEngine.isGameOver() || gamEngine.isNewGame()
+			|| gamEngine.isPaused() || !plan(gamEngine)) {
+			return;
+		}
+
+		int iLength = findPath(gamEngine);
+		for(int iI = 0; iI < iLength; iI++) {
+			switch(actPath[iI]) {
+			case MOVE_LEFT:
+				gamEngine.moveLeft();
+				break;
+			case MOVE_RIGHT:
+				gamEngine.moveRight();
+				break;
+			case ROTATE_CLOCKWISE:
+				gamEngine.rotateClockwise();
+				break;
+			case ROTATE_ANTICLOCKWISE:
+				gamEngine.rotateAnticlockwise();
+				break;
+			case SOFT_DROP_START:
+				gamEngine.applyGravity(1);
+				break;
+			case HARD_DROP:
+				gamEngine.hardDrop();
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Gets the next key press that plays the current piece, so the game
+	 * can be played through it's input queue one action at a time, the
+	 * same way a player would. The best placement is searched for once per
+	 * piece, and the way there is found again from wherever the piece is
+	 * now, as gravity moves it between key presses.
+	 * @param gamEngine The game being played.
+	 * @return The action, or null if there's nothing to do.
+	 */
+	public InputAction nextAction(GameEngine gamEngine) {
+		if(gamEngine.isGameOver() || gamEngine.isNewGame()) {
+			return InputAction.START;
+		}
+		if(gamEngine.isPaused()) {
+			return null;
+		}
+		if(!hasPlan || iPlanPieces != gamEngine.getPieceCount()) {
+			if(!plan(gamEngine)) {
+				return null;
+			}
+		}
+
+		/*
+		 * If the piece has fallen past where it had to turn or slide,
+		 * the placement can't be reached any more, so plan again from
+		 * where it is.
+		 */
+		int iLength = findPath(gamEngine);
+		if(iLength == 0) {
+			if(!plan(gamEngine)) {
+				return null;
+			}
+			iLength = findPath(gamEngine);
+		}
+
+		//A step down is left to gravity.
+		if(iLength == 0 || actPath[0] == InputAction.SOFT_DROP_START) {
+			return null;
+		}
+		return actPath[0];
+	}
+
+	/**
+	 * Finds the key presses that lock the current piece where it's planned
+	 * to go.
+	 * @param gamEngine The game being played.
+	 * @return The number of key presses, or 0 if the planned placement
+	 * can't be reached.
+	 */
+	private int findPath(GameEngine gamEngine) {
+		bbdBoards[0].copyFrom(gamEngine.getBoard());
+		pfnFinder.findPaths(bbdBoards[0], gamEngine.getPieceType(),
+			gamEngine.getPieceCol(), gamEngine.getPieceRow(),
+			gamEngine.getPieceRotation(), iPlacements[0]);
+		int iIndex = pfnFinder.indexOf(iTarget, iPlacements[0]);
+		return (iIndex < 0) ? 0 : pfnFinder.getPath(iIndex, actPath);
+	}
+
+	/**
+	 * Searches for the best placement of the current piece.
+	 * @param gamEngine The game being played.
+	 * @return Whether a placement was found.
+	 */
+	public boolean plan(GameEngine gamEngine) {
+		tilPieces[0] = gamEngine.getPieceType();
+		for(int iI = 1; iI < iDepth; iI++) {
+			tilPieces[iI] = gamEngine.getUpcomingPiece(iI - 1);
+		}
+		for(int iI = 0; iI < iDepth; iI++) {
+			long lKey = 0L;
+			for(int iJ = iI; iJ < iDepth; iJ++) {
+				lKey ^= PIECE_KEYS[iJ - iI][tilPieces[iJ].ordinal()];
+			}
+			lSequenceKeys[iI] = lKey;
+		}
+		bbdBoards[0].copyFrom(gamEngine.getBoard());
+		this.iPlanPieces = gamEngine.getPieceCount();
+
+		/*
+		 * Both searches try the placements in the same order and keep
+		 * the first of the best, so they always pick the same one.
+		 */
+		int iBest;
+		if(fjpPool != null) {
+			PlacementTask tskRoot = new PlacementTask(this, bbdBoards[0], 0,
+				gamEngine.getPieceCol(), gamEngine.getPieceRow(),
+				gamEngine.getPieceRotation());
+			fjpPool.invoke(tskRoot);
+			iBest = tskRoot.getBest();
+		} else {
+			int iCount = pfnFinder.find(bbdBoards[0], tilPieces[0],
+				gamEngine.getPieceCol(), gamEngine.getPieceRow(),
+				gamEngine.getPieceRotation(), iPlacements[0]);
+			iBest = -1;
+			double dBest = Double.NEGATIVE_INFINITY;
+			for(int iI = 0; iI < iCount; iI++) {
+				double dValue = tryPlacement(0, iPlacements[0][iI]);
+				if(dValue > dBest) {
+					dBest = dValue;
+					iBest = iPlacements[0][iI];
+				}
+			}
+		}
+
+		this.hasPlan = iBest >= 0;
+		this.iTarget = iBest;
+		return hasPlan;
+	}
+
+	/**
+	 * Finds the best value that can be reached by placing one piece of the
+	 * search, on one thread.
+	 * @param iPly The index of the piece.
+	 * @return The best value, or {@code LOSS} if the piece can't be
+	 * placed anywhere.
+	 */
+	private double search(int iPly) {
+		TileType tilType = tilPieces[iPly];
+		int iCount = pfnFinder.find(bbdBoards[iPly], tilType,
+			tilType.getSpawnColumn(), tilType.getSpawnRow(), 0,
+			iPlacements[iPly]);
+		double dBest = LOSS;
+		for(int iI = 0; iI < iCount; iI++) {
+			dBest = Math.max(dBest, tryPlacement(iPly, iPlacements[iPly][iI]));
+		}
+		return dBest;
+	}
+
+	/**
+	 * Places a piece of the search on a copy of the board, and finds the
+	 * value of the board it leaves.
+	 * @param iPly The index of the piece.
+	 * @param iPlacement The packed position of the piece.
+	 * @return The value of the placement.
+	 */
+	private double tryPlacement(int iPly, int iPlacement) {
+		BitBoard bbdChild = bbdBoards[iPly + 1];
+		bbdChild.copyFrom(bbdBoards[iPly]);
+		int iLines = bbdChild.addPiece(tilPieces[iPly],
+			PlacementFinder.getCol(iPlacement),
+			PlacementFinder.getRow(iPlacement),
+			PlacementFinder.getRotation(iPlacement));
+		ladPlacements.increment();
+
+		if(iPly + 1 == iDepth) {
+			return heuHeuristic.evaluateLines(iLines)
+				+ heuHeuristic.evaluate(bbdChild);
+		}
+		double dValue = lookup(bbdChild, iPly + 1);
+		if(Double.isNaN(dValue)) {
+			dValue = canSpawn(bbdChild, iPly + 1) ? search(iPly + 1) : LOSS;
+			store(bbdChild, iPly + 1, dValue);
+		}
+		return heuHeuristic.evaluateLines(iLines) + dValue;
+	}
+
+	/**
+	 * Looks up the value of a board in the search.
+	 * @param bbdBoard The board.
+	 * @param iPly The number of pieces placed to reach it.
+	 * @return The value, or {@code Double.NaN} if it isn't known.
+	 */
+	double lookup(BitBoard bbdBoard, int iPly) {
+		return lookup(bbdBoard.getHash(), iPly);
+	}
+
+	/**
+	 * Looks up the value of a board in the search by it's hash.
+	 * @param lHash The hash of the board.
+	 * @param iPly The number of pieces placed to reach it.
+	 * @return The value, or {@code Double.NaN} if it isn't known.
+	 */
+	double lookup(long lHash, int iPly) {
+		return ttbTable.get(lHash ^ lSequenceKeys[iPly]);
+	}
+
+	/**
+	 * Stores the value of a board in the search.
+	 * @param bbdBoard The board.
+	 * @param iPly The number of pieces placed to reach it.
+	 * @param dValue The value.
+	 */
+	void store(BitBoard bbdBoard, int iPly, double dValue) {
+		store(bbdBoard.getHash(), iPly, dValue);
+	}
+
+	/**
+	 * Stores the value of a board in the search by it's hash.
+	 * @param lHash The hash of the board.
+	 * @param iPly The number of pieces placed to reach it.
+	 * @param dValue The value.
+	 */
+	void store(long lHash, int iPly, double dValue) {
+		ttbTable.put(lHash ^ lSequenceKeys[iPly], dValue);
+	}
+
+	/**
+	 * Checks to see if a piece of the search can spawn on a board.
+	 * @param bbdBoard The board.
+	 * @param iPly The index of the piece.
+	 * @return Whether the piece can spawn.
+	 */
+	boolean canSpawn(BitBoard bbdBoard, int iPly) {
+		TileType tilType = tilPieces[iPly];
+		return bbdBoard.isValidAndEmpty(tilType, tilType.getSpawnColumn(),
+			tilType.getSpawnRow(), 0);
+	}
+
+	/**
+	 * Counts a placement tried by a search task.
+	 */
+	void countPlacement() {
+		ladPlacements.increment();
+	}
+
+	/**
+	 * Gets one of the pieces of the current search.
+	 * @param iPly The index of the piece.
+	 * @return The piece.
+	 */
+	TileType getPiece(int iPly) {
+		return tilPieces[iPly];
+	}
+
+	/**
+	 * Gets the heuristic that scores the boards.
+	 * @return The heuristic.
+	 */
+	public Heuristic getHeuristic() {
+		return heuHeuristic;
+	}
+
+	/**
+	 * Gets the number of pieces searched.
+	 * @return The depth.
+	 */
+	public int getDepth() {
+		return iDepth;
+	}
+
+	/**
+	 * Gets the number of placements tried so far.
+	 * @return The number of placements.
+	 */
+	public long getPlacements() {
+		return ladPlacements.sum();
+	}
+
+	/**
+	 * Gets the table of values found so far.
+	 * @return The transposition table.
+	 */
+	public TranspositionTable getTable() {
+		return ttbTable;
+	}
+
+}
@@ -69,7 +69,7 @@ public class SidePanel extends JPanel {
 	/**
 	 * The y coordinate of the controls category.
 	 */
-	private static final int CONTROLS_INSET = 270;
+	private static final int CONTROLS_INSET = 255;
 	
 	/**
 	 * The number of pixels to offset between each string.
@@ -100,16 +100,81 @@ public class SidePanel extends JPanel {
 	private static final Color DRAW_COLOR = new Color(128, 192, 128); 
 	
 	/**
-	 * The Tetris instance.
+	 * The x coordinate of the metrics overlay.
 	 */
-	private Tetris tetTetis;
+	private static final int METRICS_X = 10;
+	
+	/**
+	 * The y coordinate of the metrics overlay. It covers the bottom of the
+	 * controls while it's shown.
+	 */
+	private static final int METRICS_Y = 355;
+	
+	/**
+	 * The width of the metrics overlay.
+	 */
+	private static final int METRICS_WIDTH = 180;
+	
+	/**
+	 * The height of the metrics overlay.
+	 */
+	private static final int METRICS_HEIGHT = 130;
+	
+	/**
+	 * The number of pixels to offset between each line of the overlay.
+	 */
+	private static final int METRICS_STRIDE = 15;
+	
+	/**
+	 * The font of the metrics overlay.
+	 */
+	private static final Font METRICS_FONT = new Font("Monospaced", 
+                Font.PLAIN, 11);
+	
+	/**
+	 * The color of the metrics overlay's background.
+	 */
+	private static final Color METRICS_BACKGROUND = new Color(0, 0, 0, 192);
+	
+	/**
+	 * The game engine whose state is displayed.
+	 */
+	private GameEngine gamEngine;
+	
+	/**
+	 * The sprites of every type of tile, at half size. Drawn the first 
+	 * time a tile is, once the panel knows which screen it's on.
+	 */
+	private transient TileSprites sprSprites;
+	
+	/**
+	 * The timings shown in the overlay and recorded while painting, or 
+	 * null.
+	 */
+	private transient Metrics mtsMetrics;
+	
+	/**
+	 * Whether the metrics overlay is shown. Set by the game loop and read
+	 * while painting.
+	 */
+	private volatile boolean isMetricsShown;
+	
+	/**
+	 * Whether the metrics overlay was shown when it was last repainted.
+	 */
+	private boolean wasMetricsShown;
+	
+	/**
+	 * The interval of the metrics that was last repainted.
+	 */
+	private long lMetricsInterval;
 	
 	/**
 	 * Creates a new SidePanel and sets it's display properties.
-	 * @param tetris The Tetris instance to use.
+	 * @param gamEngine The game engine to display.
 	 */
-	public SidePanel(Tetris tetris) {
-		this.tetTetis = tetris;
+	public SidePanel(GameEngine gamEngine) {
+		this.gamEngine = gamEngine;
 		
 		setPreferredSize(new Dimension(200, BoardPanel.PANEL_HEIGHT));
 		setBackground(Color.ORANGE);
@@ -117,7 +182,53 @@ public class SidePanel extends JPanel {
 	
 	@Override
 	public void paintComponent(Graphics graGraphics) {
+		long lStart = System.nanoTime();
+                
 		super.paintComponent(graGraphics);
+                
+		render(graGraphics);
+                
+		if(mtsMetrics != null) {
+                    
+			mtsMetrics.record(Metric.PAINT, System.nanoTime() - lStart);
+		}
+	}
+	
+	/**
+	 * Sets the timings shown in the overlay. Painting the panel is timed
+	 * as well once they're set.
+	 * @param mtsMetrics The metrics, or null.
+	 */
+	public void setMetrics(Metrics mtsMetrics) {
+		this.mtsMetrics = mtsMetrics;
+	}
+	
+	/**
+	 * Shows or hides the metrics overlay.
+	 * @param isShown Whether to show the overlay.
+	 */
+	public void setMetricsShown(boolean isShown) {
+		this.isMetricsShown = isShown;
+	}
+	
+	/**
+	 * Checks to see if the metrics overlay is shown.
+	 * @return Whether the overlay is shown.
+	 */
+	public boolean isMetricsShown() {
+		return isMetricsShown;
+	}
+	
+	/**
+	 * Draws the panel, without it's background, with any graphics object. 
+	 * Used by {@code paintComponent}, and by {@link GameCanvas} to draw 
+	 * straight onto it's back buffer from the game loop.
+	 * @param graGraphics The graphics object.
+	 */
+	public void render(Graphics graGraphics) {
+		
+		//Draw the last frame published by the game loop.
+		GameFrame frmFrame = gamEngine.getFrame();
 		
 		//Set the color for drawing.
 		graGraphics.setColor(DRAW_COLOR);
@@ -139,10 +250,10 @@ public class SidePanel extends JPanel {
                 
 		graGraphics.setFont(SMALL_FONT);
                 
-		graGraphics.drawString("Level: " + tetTetis.getLevel(), 
+		graGraphics.drawString("Level: " + frmFrame.getLevel(), 
                         LARGE_INSET, iOffset += TEXT_STRIDE);
                 
-		graGraphics.drawString("Score: " + tetTetis.getScore(), 
+		graGraphics.drawString("Score: " + frmFrame.getScore(), 
                         LARGE_INSET, iOffset += TEXT_STRIDE);
 		
 		/*
@@ -169,7 +280,10 @@ public class SidePanel extends JPanel {
 		graGraphics.drawString("E - Rotate Clockwise", LARGE_INSET, 
                         iOffset += TEXT_STRIDE);
                 
-		graGraphics.drawString("S - Drop", LARGE_INSET, 
+		graGraphics.drawString("S - Soft Drop", LARGE_INSET, 
+                        iOffset += TEXT_STRIDE);
+		
+		graGraphics.drawString("W - Hard Drop", LARGE_INSET, 
                         iOffset += TEXT_STRIDE);
                 
 		graGraphics.drawString("P - Pause Game", LARGE_INSET, 
@@ -200,9 +314,9 @@ public class SidePanel extends JPanel {
 		 * identical to the drawing code on the board, just smaller and centered, rather
 		 * than constrained to a grid.
 		 */
-		TileType tilType = tetTetis.getNextPieceType();
+		TileType tilType = frmFrame.getNextPieceType();
                 
-		if(!tetTetis.isGameOver() && tilType != null) {
+		if(!frmFrame.isGameOver() && tilType != null) {
 			/*
 			 * Get the size properties of the current piece.
 			 */
@@ -244,52 +358,114 @@ public class SidePanel extends JPanel {
 				}
 			}
 		}
+		
+		/*
+		 * Draw the metrics overlay over the controls.
+		 */
+		if(isMetricsShown && mtsMetrics != null) {
+                    
+			drawMetrics(graGraphics);
+		}
 	}
 	
 	/**
-	 * Draws a tile onto the preview window.
-	 * @param tilType The type of tile to draw.
-	 * @param iX The x coordinate of the tile.
-	 * @param iY The y coordinate of the tile.
-	 * @param graGraphics The graphics object.
+	 * Asks for the parts of the panel that differ between two frames to
+	 * be repainted. Only the stats and the next piece preview ever change,
+	 * so the controls are only drawn when Swing asks for the whole panel.
+	 * @param frmLast The last frame that was repainted, or null.
+	 * @param frmFrame The frame to repaint.
 	 */
-	private void drawTile(TileType tilType, int iX, int iY, 
-                Graphics graGraphics) {
+	public void repaintChanges(GameFrame frmLast, GameFrame frmFrame) {
+            
 		/*
-		 * Fill the entire tile with the base color.
+		 * Showing or hiding the overlay uncovers the controls, so the
+		 * whole panel is repainted.
 		 */
-		graGraphics.setColor(tilType.getBaseColor());
+		boolean isShown = isMetricsShown && mtsMetrics != null;
                 
-		graGraphics.fillRect(iX, iY, TILE_SIZE, TILE_SIZE);
-		
-		/*
-		 * Fill the bottom and right edges of the tile with the dark 
-                 * shading color.
-		 */
+		if(frmLast == null || isShown != wasMetricsShown) {
+                    
+			wasMetricsShown = isShown;
+                        
+			repaint();
+                        
+			return;
+		}
                 
-		graGraphics.setColor(tilType.getDarkColor());
+		if(isShown && mtsMetrics.getIntervalCount() != lMetricsInterval) {
+                    
+			lMetricsInterval = mtsMetrics.getIntervalCount();
+                        
+			repaint(METRICS_X, METRICS_Y, METRICS_WIDTH, METRICS_HEIGHT);
+		}
                 
-		graGraphics.fillRect(iX, iY + TILE_SIZE - SHADE_WIDTH, 
-                        TILE_SIZE, SHADE_WIDTH);
+		if(frmLast.getLevel() != frmFrame.getLevel() || 
+                        frmLast.getScore() != frmFrame.getScore()) {
+                    
+			repaint(0, STATS_INSET, getWidth(), TEXT_STRIDE * 5 / 2);
+		}
                 
-		graGraphics.fillRect(iX + TILE_SIZE - SHADE_WIDTH, iY, 
-                        SHADE_WIDTH, TILE_SIZE);
-		
-		/*
-		 * Fill the top and left edges with the light shading. 
-		 *  We draw a single line for each row or column rather than 
-		 *  a rectangle so that we can draw a nice looking 
-                 * diagonal where the light and dark shading meet.
-		 */
-		graGraphics.setColor(tilType.getLightColor());
-		for(int iI = 0; iI < SHADE_WIDTH; iI++) {
+		if(frmLast.getNextPieceType() != frmFrame.getNextPieceType() || 
+                        frmLast.isGameOver() != frmFrame.isGameOver()) {
+                    
+			repaint(SQUARE_CENTER_X - SQUARE_SIZE, 
+                                SQUARE_CENTER_Y - SQUARE_SIZE, 
+                                SQUARE_SIZE * 2 + 1, SQUARE_SIZE * 2 + 1);
+		}
+	}
+	
+	/**
+	 * Draws the metrics overlay, with the median, 99th percentile and 
+	 * maximum of every metric over the last second, in milliseconds.
+	 * @param graGraphics The graphics object.
+	 */
+	private void drawMetrics(Graphics graGraphics) {
+            
+		graGraphics.setColor(METRICS_BACKGROUND);
+                
+		graGraphics.fillRect(METRICS_X, METRICS_Y, METRICS_WIDTH, 
+                        METRICS_HEIGHT);
+                
+		graGraphics.setColor(Color.WHITE);
+                
+		graGraphics.setFont(METRICS_FONT);
+                
+		int iOffset = METRICS_Y;
+                
+		graGraphics.drawString(String.format("%-6s %6s %6s %6s", "ms", 
+                        "p50", "p99", "max"), METRICS_X + 5, 
+                        iOffset += METRICS_STRIDE);
+                
+		for(Metric mtrMetric : Metric.values()) {
                     
-			graGraphics.drawLine(iX, iY + iI, iX + 
-                                TILE_SIZE - iI - 1, iY + iI);
+			Histogram hstHistogram = mtsMetrics.getInterval(mtrMetric);
                         
-			graGraphics.drawLine(iX + iI, iY, iX 
-                                + iI, iY + TILE_SIZE - iI - 1);
+			graGraphics.drawString(String.format("%-6s %6.2f %6.2f %6.2f", 
+                                mtrMetric.getName(), 
+                                hstHistogram.getPercentile(50.0) / 1e6, 
+                                hstHistogram.getPercentile(99.0) / 1e6, 
+                                hstHistogram.getMax() / 1e6), METRICS_X + 5, 
+                                iOffset += METRICS_STRIDE);
 		}
 	}
 	
+	/**
+	 * Draws a tile onto the preview window.
+	 * @param tilType The type of tile to draw.
+	 * @param iX The x coordinate of the tile.
+	 * @param iY The y coordinate of the tile.
+	 * @param graGraphics The graphics object.
+	 */
+	private void drawTile(TileType tilType, int iX, int iY, 
+                Graphics graGraphics) {
+            
+		if(sprSprites == null) {
+                    
+			sprSprites = new TileSprites(TILE_SIZE, SHADE_WIDTH, 
+                                getGraphicsConfiguration());
+		}
+                
+		sprSprites.drawTile(graGraphics, tilType, iX, iY);
+	}
+	
 }
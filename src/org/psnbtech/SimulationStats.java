@@ -0,0 +1,164 @@
+package org.psnbtech;
+
+import java.io.PrintStream;
+
+/**
+ * The {@code SimulationStats} class adds up the results of the games played
+ * by a {@link BatchSimulation}. Each worker thread keeps it's own instance,
+ * and they are merged once every game has finished.
+ * @author Brendan Jones
+ *
+ */
+public class SimulationStats {
+
+	/**
+	 * The number of games played.
+	 */
+	private int iGames;
+
+	/**
+	 * The sum of the scores of every game.
+	 */
+	private long lTotalScore;
+
+	/**
+	 * The highest score of any game.
+	 */
+	private int iMaxScore;
+
+	/**
+	 * The sum of the lines cleared in every game.
+	 */
+	private long lLines;
+
+	/**
+	 * The sum of the pieces locked in every game.
+	 */
+	private long lPieces;
+
+	/**
+	 * The wall clock time it took to play the games, in nanoseconds.
+	 */
+	private long lElapsedNanos;
+
+	/**
+	 * Adds the result of a finished game.
+	 * @param gamEngine The game.
+	 */
+	public void add(GameEngine gamEngine) {
+		iGames++;
+		lTotalScore += gamEngine.getScore();
+		iMaxScore = Math.max(iMaxScore, gamEngine.getScore());
+		lLines += gamEngine.getLines();
+		lPieces += gamEngine.getPieceCount();
+	}
+
+	/**
+	 * Adds the results of another set of games to these.
+	 * @param staOther The other results.
+	 */
+	public void merge(SimulationStats staOther) {
+		iGames += staOther.iGames;
+		lTotalScore += staOther.lTotalScore;
+		iMaxScore = Math.max(iMaxScore, staOther.iMaxScore);
+		lLines += staOther.lLines;
+		lPieces += staOther.lPieces;
+	}
+
+	/**
+	 * Sets the wall clock time it took to play the games.
+	 * @param lElapsedNanos The time, in nanoseconds.
+	 */
+	public void setElapsedNanos(long lElapsedNanos) {
+		this.lElapsedNanos = lElapsedNanos;
+	}
+
+	/**
+	 * Gets the number of games played.
+	 * @return The number of games.
+	 */
+	public int getGames() {
+		return iGames;
+	}
+
+	/**
+	 * Gets the sum of the scores of every game.
+	 * @return The total score.
+	 */
+	public long getTotalScore() {
+		return lTotalScore;
+	}
+
+	/**
+	 * Gets the average score of a game.
+	 * @return The average score, or 0 if no games were played.
+	 */
+	public double getMeanScore() {
+		return (iGames == 0) ? 0.0 : (double)lTotalScore / iGames;
+	}
+
+	/**
+	 * Gets the highest score of any game.
+	 * @return The highest score.
+	 */
+	public int getMaxScore() {
+		return iMaxScore;
+	}
+
+	/**
+	 * Gets the sum of the lines cleared in every game.
+	 * @return The number of lines.
+	 */
+	public long getLines() {
+		return lLines;
+	}
+
+	/**
+	 * Gets the sum of the pieces locked in every game.
+	 * @return The number of pieces.
+	 */
+	public long getPieces() {
+		return lPieces;
+	}
+
+	/**
+	 * Gets the number of games played per second of wall clock time.
+	 * @return The throughput in games per second.
+	 */
+	public double getGamesPerSecond() {
+		return perSecond(iGames);
+	}
+
+	/**
+	 * Gets the number of pieces locked per second of wall clock time.
+	 * @return The throughput in pieces per second.
+	 */
+	public double getPiecesPerSecond() {
+		return perSecond(lPieces);
+	}
+
+	/**
+	 * Divides a count by the elapsed time in seconds.
+	 * @param lCount The count.
+	 * @return The count per second, or 0 if no time has elapsed.
+	 */
+	private double perSecond(long lCount) {
+		return (lElapsedNanos == 0) ? 0.0 : lCount * 1e9 / lElapsedNanos;
+	}
+
+	/**
+	 * Prints a summary of the results.
+	 * @param psOut The stream to print to.
+	 */
+	public void print(PrintStream psOut) {
+		psOut.printf("Games:      %d%n", iGames);
+		psOut.printf("Score:      mean %.1f, max %d%n", getMeanScore(),
+			iMaxScore);
+		psOut.printf("Lines:      %d%n", lLines);
+		psOut.printf("Pieces:     %d%n", lPieces);
+		psOut.printf("Time:       %.3f s%n", lElapsedNanos / 1e9);
+		psOut.printf("Throughput: %.1f games/s, %.1f pieces/s%n",
+			getGamesPerSecond(), getPiecesPerSecond());
+	}
+
+}
@@ -3,21 +3,21 @@ package org.psnbtech;
 import java.awt.BorderLayout;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.util.Random;
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFrame;
 
 /**
- * The {@code Tetris} class is responsible for handling much of the game logic and
- * reading user input.
+ * The {@code Tetris} class is responsible for displaying the game window and
+ * reading user input. The game logic itself is handled by {@link GameEngine}.
  * @author Brendan Jones
  *
  */
@@ -29,113 +29,173 @@ public class Tetris extends JFrame {
 	private static final long serialVersionUID = -4722429764792514382L;
 
 	/**
-	 * The number of milliseconds per frame.
+	 * The number of nanoseconds per logic tick. The game always updates 
+	 * at this rate, however fast it's being drawn.
 	 */
-	private static final long FRAME_TIME = 1000L / 50L;
+	private static final long TICK_TIME = 1000000000L / 50L;
 	
 	/**
-	 * The number of pieces that exist.
+	 * The most ticks the game loop will run to catch up before drawing. If
+	 * the game falls further behind than this, the rest of the time is 
+	 * dropped, rather than the loop falling ever further behind trying to 
+	 * catch up.
 	 */
-	private static final int TYPE_COUNT = TileType.values().length;
-		
+	private static final int MAX_CATCH_UP_TICKS = 5;
+	
 	/**
-	 * The BoardPanel instance.
+	 * The number of frames drawn per second, set with the 
+	 * {@code tetris.fps} system property. 0 draws once every tick.
 	 */
-	private BoardPanel bplBoardPanel;
+	private static final int FRAME_RATE = Integer.getInteger("tetris.fps", 
+                60);
 	
 	/**
-	 * The SidePanel instance.
+	 * Whether the game loop draws the game itself onto a 
+	 * {@link GameCanvas}, set with the {@code tetris.active} system 
+	 * property. Otherwise the panels are repainted by Swing.
 	 */
-	private SidePanel splSidePanel;
+	private static final boolean ACTIVE_RENDERING = 
+                Boolean.getBoolean("tetris.active");
 	
 	/**
-	 * Whether or not the game is paused.
+	 * The number of buffers the game canvas draws with, set with the 
+	 * {@code tetris.buffers} system property.
 	 */
-	private boolean isPaused;
+	private static final int BUFFER_COUNT = 
+                Integer.getInteger("tetris.buffers", 3);
 	
 	/**
-	 * Whether or not we've played a game yet. This is set to true
-	 * initially and then set to false when the game starts.
+	 * The randomizer that picks the pieces, set with the 
+	 * {@code tetris.randomizer} system property: "uniform", "bag" or 
+	 * "history".
 	 */
-	private boolean isNewGame;
+	private static final String RANDOMIZER = 
+                System.getProperty("tetris.randomizer", "uniform");
 	
 	/**
-	 * Whether or not the game is over.
+	 * The seed of the piece generator, set with the {@code tetris.seed} 
+	 * system property, or null to pick one at random.
 	 */
-	private boolean isGameOver;
+	private static final Long SEED = Long.getLong("tetris.seed");
 	
 	/**
-	 * The current iLevel we're on.
+	 * The CSV file the timings are appended to every second, set with the 
+	 * {@code tetris.metrics.file} system property, or null to not export 
+	 * them.
 	 */
-	private int iLevel;
+	private static final String METRICS_FILE = 
+                System.getProperty("tetris.metrics.file");
 	
 	/**
-	 * The current iScore.
+	 * The input log every action is appended to, set with the 
+	 * {@code tetris.record} system property, or null to not record.
 	 */
-	private int iScore;
+	private static final String RECORD_FILE = 
+                System.getProperty("tetris.record");
 	
 	/**
-	 * The random number generator. This is used to
-	 * spit out pieces randomly.
+	 * The input log whose first session is played back instead of the 
+	 * keyboard, set with the {@code tetris.replay} system property, or 
+	 * null to play normally.
 	 */
-	private Random iRandom;
+	private static final String REPLAY_FILE = 
+                System.getProperty("tetris.replay");
 	
 	/**
-	 * The clock that handles the update logic.
+	 * Whether the game plays itself, set with the {@code tetris.autoplay} 
+	 * system property. Games are started again as soon as they end.
 	 */
-	private Clock clkLogicTimer;
-				
+	private static final boolean AUTOPLAY = 
+                Boolean.getBoolean("tetris.autoplay");
+	
 	/**
-	 * The current type of tile.
+	 * The number of pieces the autoplayer searches, set with the 
+	 * {@code tetris.autoplay.depth} system property. The search is spread 
+	 * over the common fork join pool.
 	 */
-	private TileType tilCurrentType;
+	private static final int AUTOPLAY_DEPTH = Integer.getInteger(
+                "tetris.autoplay.depth", SearchPlayer.DEFAULT_DEPTH);
 	
 	/**
-	 * The next type of tile.
+	 * The number of ticks between the key presses of the autoplayer, so 
+	 * it can be watched.
 	 */
-	private TileType tilNextType;
+	private static final int AUTOPLAY_TICKS = 2;
+	
+	/**
+	 * The game engine that holds the state of the game and handles it's
+	 * logic.
+	 */
+	private GameEngine gamEngine;
 		
 	/**
-	 * The current column of our tile.
+	 * The actions taken by the player that the game loop has yet to 
+	 * perform. Filled by the event thread and emptied by the game loop.
 	 */
-	private int iCurrentCol;
-        
-        /**
-	 * The name of the file where we can save a game
+	private InputQueue quiInputs;
+	
+	/**
+	 * The events taken from the input queue at the start of a tick. 
+	 * Reused every tick.
 	 */
-        private static final String sNomDatosGuardado = "DatosGuardados.txt";
-        
-        /**
-	 * Archivo de escritura
+	private List<InputEvent> lstBatch;
+	
+	/**
+	 * The last frame the panels were asked to repaint.
 	 */
-        private PrintWriter fileOut;
-        
-        /**
-	 * The current column of our tile.
+	private GameFrame frmRendered;
+	
+	/**
+	 * Reads and writes the save file in the background.
+	 */
+	private SaveWorker svwSaves;
+		
+	/**
+	 * The BoardPanel instance.
+	 */
+	private BoardPanel bplBoardPanel;
+	
+	/**
+	 * The SidePanel instance.
 	 */
-        private BufferedReader fileIn;
+	private SidePanel splSidePanel;
 	
 	/**
-	 * The current row of our tile.
+	 * The canvas the game loop draws the panels onto when rendering 
+	 * actively, or null when Swing repaints them.
 	 */
-	private int iCurrentRow;
+	private GameCanvas cnvCanvas;
 	
 	/**
-	 * The current rotation of our tile.
+	 * The timings of the game loop and the panels.
 	 */
-	private int iCurrentRotation;
-		
+	private Metrics mtsMetrics;
+	
 	/**
-	 * Ensures that a certain amount of time passes after a piece is
-	 * spawned before we can drop it.
+	 * The log the player's actions are recorded to, or null.
 	 */
-	private int iDropCooldown;
+	private InputLog logInputs;
 	
 	/**
-	 * The speed of the game.
+	 * The session being played back, or null when the player is playing.
 	 */
-	private float fGameSpeed;
-        
+	private Replay rplReplay;
+	
+	/**
+	 * The index of the next record of the session being played back.
+	 */
+	private int iReplayEvent;
+	
+	/**
+	 * The number of logic ticks run so far.
+	 */
+	private int iTick;
+	
+	/**
+	 * The player that plays the game when it plays itself, or null.
+	 */
+	private SearchPlayer srpAutoplayer;
+	
         /**
 	 * The song of the game.
 	 */
@@ -164,18 +224,79 @@ public class Tetris extends JFrame {
 		setResizable(false);
 		
 		/*
-		 * Initialize the BoardPanel and SidePanel instances.
+		 * Initialize the game engine, and the BoardPanel and SidePanel
+		 * instances that display it.
 		 */
-		this.bplBoardPanel = new BoardPanel(this);
+		if(REPLAY_FILE != null) {
+                    
+			this.rplReplay = readReplay(Paths.get(REPLAY_FILE));
+		}
                 
-		this.splSidePanel = new SidePanel(this);
+		if(rplReplay != null) {
+                    
+			this.gamEngine = rplReplay.createEngine();
+                        
+			System.out.println("Replaying: " + rplReplay.getGenerator() 
+                                + ", seed " + rplReplay.getSeed());
+		} else {
+                    
+			long lSeed = (SEED != null) ? SEED : 
+                                new SplittableRandom().nextLong();
+                        
+			this.gamEngine = new GameEngine(PieceGenerator.create(
+                                RANDOMIZER, lSeed, GameEngine.LOOKAHEAD));
+                        
+			System.out.println("Pieces: " + RANDOMIZER + ", seed " + 
+                                lSeed);
+                        
+			if(RECORD_FILE != null) {
+                            
+				startRecording(Paths.get(RECORD_FILE), lSeed);
+			}
+                        
+			if(AUTOPLAY) {
+                            
+				this.srpAutoplayer = new SearchPlayer(Heuristic.DEFAULT, 
+                                        AUTOPLAY_DEPTH, 
+                                        SearchPlayer.DEFAULT_TABLE_BITS, 
+                                        ForkJoinPool.commonPool());
+			}
+		}
+                
+		Path pthMetrics = (METRICS_FILE != null) ? Paths.get(METRICS_FILE) 
+                        : null;
+                
+		this.mtsMetrics = new Metrics(pthMetrics);
+                
+		this.svwSaves = new SaveWorker(Paths.get("DatosGuardados.dat"));
+                
+		this.quiInputs = new InputQueue();
+                
+		this.lstBatch = new ArrayList<InputEvent>();
+                
+		this.bplBoardPanel = new BoardPanel(gamEngine);
+                
+		this.splSidePanel = new SidePanel(gamEngine);
+                
+		bplBoardPanel.setMetrics(mtsMetrics);
+                
+		splSidePanel.setMetrics(mtsMetrics);
 		
 		/*
 		 * Add the BoardPanel and SidePanel instances to the window.
 		 */
-		add(bplBoardPanel, BorderLayout.CENTER);
+		if(ACTIVE_RENDERING) {
+                    
+			this.cnvCanvas = new GameCanvas(bplBoardPanel, splSidePanel, 
+                                BUFFER_COUNT);
+                        
+			add(cnvCanvas, BorderLayout.CENTER);
+		} else {
+                    
+			add(bplBoardPanel, BorderLayout.CENTER);
                 
-		add(splSidePanel, BorderLayout.EAST);
+			add(splSidePanel, BorderLayout.EAST);
+		}
                 
                 /**
                 * Assign the Music, and other sound Clips
@@ -188,177 +309,92 @@ public class Tetris extends JFrame {
                 
                 //Set Background Music to Loop
                 auBackMusic.setLooping(true);
+                
+                /*
+                 * Play the sound clips whenever a piece is locked onto
+                 * the board.
+                 */
+                gamEngine.setListener(new GameListener() {
+                    
+                        @Override
+                        public void pieceLocked(int iCleared) {
+                            
+                                if(iCleared > 0) {
+                                    
+                                        auCompleteLine.play();
+                                }
+                                
+                                //Play the new piece AudioClip
+                                auNewPiece.play();
+                        }
+                });
 		
 		/*
-		 * Adds a custom anonymous KeyListener to the frame.
+		 * Adds a custom anonymous KeyListener to the frame. Key presses
+		 * are only turned into actions here, on the event thread. The
+		 * game loop performs them, so that it's the only thread that 
+		 * ever changes the state of the game.
 		 */
-		addKeyListener(new KeyAdapter() {
+		KeyAdapter kadKeys = new KeyAdapter() {
 			
 			@Override
 			public void keyPressed(KeyEvent keyEvent) {
 								
 				switch(keyEvent.getKeyCode()) {
 				
-				/*
-				 * Drop - When pressed, we check to see that the 
-				 * game is not paused and that there is no drop 
-				 * cooldown, then set the logic timer to run at
-                                 * a speed of 25 cycles per second.
-				 */
+				//Drop - Speeds the logic timer up while held.
 				case KeyEvent.VK_S:
-					if(!isPaused && iDropCooldown == 0) {
-                                            
-					clkLogicTimer.setCyclesPerSecond(25.0f);
-                                        
-					}
+					quiInputs.offer(InputAction.SOFT_DROP_START);
+					break;
+					
+				//Hard Drop
+				case KeyEvent.VK_W:
+					quiInputs.offer(InputAction.HARD_DROP);
 					break;
 					
-				/*
-				 * Move Left - When pressed, we check to see 
-				 * that the game is not paused and that the 
-                                 * position to the left of the current position 
-				 * is valid. If so, we decrement the current 
-                                 * column by 1.
-				 */
+				//Move Left
 				case KeyEvent.VK_A:
-					if(!isPaused &&
-                                            bplBoardPanel.isValidAndEmpty(
-                                                    tilCurrentType,
-                                                    iCurrentCol - 1, 
-                                                    iCurrentRow,
-                                                    iCurrentRotation)) {
-                                            
-						iCurrentCol--;
-					}
+					quiInputs.offer(InputAction.MOVE_LEFT);
 					break;
 					
-				/*
-				 * Move Right - When pressed, we check to see 
-				 * that the game is not paused and that the 
-				 * position to the right of the current
-                                 * position is valid. If so, we increment the 
-                                 * current column by 1.
-				 */
+				//Move Right
 				case KeyEvent.VK_D:
-					if(!isPaused &&
-                                            bplBoardPanel.isValidAndEmpty(
-                                                    tilCurrentType,
-                                                    iCurrentCol + 1, 
-                                                    iCurrentRow,
-                                                    iCurrentRotation)) {
-                                            
-						iCurrentCol++;
-					}
+					quiInputs.offer(InputAction.MOVE_RIGHT);
 					break;
 					
-				/*
-				 * Rotate Anticlockwise - When pressed, check to 
-				 *  see that the game is not paused and then 
-				 * attempt to rotate the piece anticlockwise. 
-				 * Because of the size and complexity of the
-                                 * rotation code, as well as it's similarity to
-                                 * clockwise rotation, the code for rotating 
-                                 * the piece is handled in another method.
-				 */
+				//Rotate Anticlockwise
 				case KeyEvent.VK_Q:
-					if(!isPaused) {
-						rotatePiece((iCurrentRotation ==
-                                                        0) ? 3 :
-                                                        iCurrentRotation - 1);
-					}
+					quiInputs.offer(InputAction.ROTATE_ANTICLOCKWISE);
 					break;
 				
-				/*
-                                 * Rotate Clockwise - When pressed, check to 
-				 * see that the game is not paused and then 
-				 * attempt to rotate the piece clockwise. 
-				 * Because of the size and complexity of the
-                                 * rotation code, as well as it's similarity to
-                                 * anticlockwise rotation, the code for rotating
-                                 * the piece is handled in another method.
-				 */
+				//Rotate Clockwise
 				case KeyEvent.VK_E:
-					if(!isPaused) {
-						rotatePiece((iCurrentRotation
-                                                        == 3) ? 0 :
-                                                        iCurrentRotation + 1);
-					}
+					quiInputs.offer(InputAction.ROTATE_CLOCKWISE);
 					break;
                                         
-                                /*
-                                 * Save Game - When pressed, check to see that
-                                 * we're not in a game over. If we're not,
-                                 * save the game.
-                                 */
+                                //Save Game
                                 case KeyEvent.VK_G:
-                                    if(!isGameOver && !isNewGame) {
-                                        try {
-                                            saveGame();
-                                        }
-                                        catch (IOException e) {
-                                            Logger.getLogger(
-                                            Tetris.class.getName()).log(
-                                                    Level.SEVERE, null, e);
-                                        }
-                                    }
-                                    break;
+                                        quiInputs.offer(InputAction.SAVE);
+                                        break;
                                 
-                                /*
-                                 * Load Game - When pressed, check to see that
-                                 * we're not in a game over. If we're not,
-                                 * load the game.
-                                 */
+                                //Load Game
                                 case KeyEvent.VK_C:
-                                    if(!isGameOver && !isNewGame) {
-                                        try {
-                                            loadGame();
-                                        }
-                                        catch (IOException e) {
-                                            Logger.getLogger(
-                                            Tetris.class.getName()).log(
-                                                    Level.SEVERE, null, e);
-                                        }
-                                    }
-                                    break;
+                                        quiInputs.offer(InputAction.LOAD);
+                                        break;
 					
-				/*
-				 * Pause Game - When pressed, check to see that 
-				 * we're currently playing a game. If so, toggle
-                                 * the pause variable and update the logic timer
-                                 * to reflect this change, otherwise the game 
-				 * will execute a huge number of updates and 
-				 * essentially cause an instant game over when
-                                 * we unpause if we stay paused for more than a
-				 * minute or so.
-				 */
+				//Pause Game
 				case KeyEvent.VK_P:
-                                    
-					if(!isGameOver && !isNewGame) {
-                                            
-                                            isPaused = !isPaused;
-                                                
-                                            clkLogicTimer.setPaused(isPaused);
-                                            
-                                            if(isPaused) {
-                                            
-                                                auBackMusic.stop();
-                                            }
-                                            else {
-                                                
-                                                auBackMusic.play();
-                                            }
-					}
+					quiInputs.offer(InputAction.PAUSE);
 					break;
 				
-				/*
-				 * Start Game - When pressed, check to see that 
-				 * we're in either a game over or new game
-                                 * state. If so, reset the game.
-				 */
+				//Start Game
 				case KeyEvent.VK_ENTER:
-					if(isGameOver || isNewGame) {
-						resetGame();
-					}
+					quiInputs.offer(InputAction.START);
+					break;
+					
+				//Show or Hide Timings
+				case KeyEvent.VK_F3:
+					quiInputs.offer(InputAction.TOGGLE_METRICS);
 					break;
 				
 				}
@@ -370,23 +406,30 @@ public class Tetris extends JFrame {
                             switch(keyEvent.getKeyCode()) {
 				
                             /*
-                             * Drop - When released, we set the speed of 
-                             * the logic timer back to whatever the current 
-                             * game speed is and clear out any cycles that 
-                             * might still be elapsed.
+                             * Drop - When released, the logic timer goes 
+                             * back to whatever the current game speed is.
                              */
                             case KeyEvent.VK_S:
                                     
-                                clkLogicTimer.setCyclesPerSecond(fGameSpeed);
-                                      
-                                clkLogicTimer.reset();
+                                quiInputs.offer(InputAction.SOFT_DROP_STOP);
                                     
                                 break;
                             }
 				
 			}
 			
-		});
+		};
+                
+		addKeyListener(kadKeys);
+                
+		/*
+		 * The canvas takes the keyboard focus from the window, so it 
+		 * needs to listen for keys as well.
+		 */
+		if(cnvCanvas != null) {
+                    
+			cnvCanvas.addKeyListener(kadKeys);
+		}
 		
 		/*
 		 * Here we resize the frame to hold the BoardPanel and SidePanel 
@@ -399,504 +442,418 @@ public class Tetris extends JFrame {
 		setLocationRelativeTo(null);
                 
 		setVisible(true);
+                
+		if(cnvCanvas != null) {
+                    
+			cnvCanvas.requestFocus();
+		}
 	}
 	
 	/**
-	 * Starts the game running. Initializes everything and enters the game 
-         * loop.
+	 * Starts the game running. Starts the music and enters the game loop.
+	 * The loop adds the time that has passed to an accumulator, runs one 
+	 * logic tick for every {@code TICK_TIME} in it, and draws independently 
+	 * of the ticks. The falling piece is drawn between rows from the 
+	 * frame's timestamp, so motion stays smooth whatever the frame rate. 
+	 * When there is nothing to do until the next tick or frame, the loop 
+	 * parks rather than spinning.
 	 */
 	private void startGame() {
-		/*
-		 * Initialize our random number generator, music ,logic timer,
-                 * and new game variables.
-		 */
-		this.iRandom = new Random();
-		this.isNewGame = true;
-		this.fGameSpeed = 1.0f;
                 
                 auBackMusic.play();
 		
-		/*
-		 * Setup the timer to keep the game from running before the
-                 * user presses enter to start it.
-		 */
-		this.clkLogicTimer = new Clock(fGameSpeed);
+		long lFrameTime = (FRAME_RATE > 0) ? 1000000000L / FRAME_RATE : 0L;
+                
+		long lPrevious = System.nanoTime();
                 
-		clkLogicTimer.setPaused(true);
+		long lNextFrame = lPrevious;
+                
+		long lAccumulator = 0L;
 		
 		while(true) {
-			//Get the time that the frame started.
-			long start = System.nanoTime();
-			
-			//Update the logic timer.
-			clkLogicTimer.update();
+			long lNow = System.nanoTime();
+                        
+			lAccumulator += lNow - lPrevious;
+                        
+			lPrevious = lNow;
 			
 			/*
-			 * If a cycle has elapsed on the timer, we can update 
-                         * the game and
-			 * move our current piece down.
+			 * Drop any time beyond the catch up limit, so a long 
+			 * stall (or the machine sleeping) doesn't leave the loop 
+			 * running ticks back to back with no time to draw.
 			 */
-                        
-			if(clkLogicTimer.hasElapsedCycle()) {
+			if(lAccumulator > MAX_CATCH_UP_TICKS * TICK_TIME) {
                             
-				updateGame();
+				lAccumulator = MAX_CATCH_UP_TICKS * TICK_TIME;
 			}
-		
-			//Decrement the drop cool down if necessary.
-			if(iDropCooldown > 0) {
+			
+			while(lAccumulator >= TICK_TIME) {
                             
-				iDropCooldown--;
+				//Each tick was due when the accumulator reached it.
+				mtsMetrics.record(Metric.LAG, lAccumulator - TICK_TIME);
+                                
+				long lStart = System.nanoTime();
+                                
+				tick();
+                                
+				mtsMetrics.record(Metric.LOGIC, System.nanoTime() - lStart);
+                                
+				lAccumulator -= TICK_TIME;
 			}
 			
-			//Display the window to the user.
-			renderGame();
+			//Display the window to the user if a frame is due.
+			if(lNow >= lNextFrame) {
+                            
+				long lStart = System.nanoTime();
+                            
+				renderGame();
+                                
+				mtsMetrics.record(Metric.RENDER, System.nanoTime() - lStart);
+                                
+				lNextFrame += lFrameTime;
+                                
+				if(lNextFrame < lNow) {
+                                    
+					lNextFrame = lNow + lFrameTime;
+				}
+			}
 			
 			/*
-			 * Sleep to cap the framerate.
+			 * Wait for the next tick or frame, whichever comes first, 
+			 * or just the next tick without a frame rate, so a frame 
+			 * is drawn once a tick rather than the loop spinning. 
+			 * Parking wakes up far more precisely than sleeping for a 
+			 * whole number of milliseconds.
 			 */
-			long delta = (System.nanoTime() - start) / 1000000L;
+			long lWake = lNow + TICK_TIME - lAccumulator;
                         
-			if(delta < FRAME_TIME) {
+			if(lFrameTime > 0L && lNextFrame < lWake) {
                             
-				try {
-                                    
-					Thread.sleep(FRAME_TIME - delta);
-                                        
-				} catch(Exception e) {
-                                    
-					e.printStackTrace();
-				}
+				lWake = lNextFrame;
+			}
+                        
+			mtsMetrics.update(System.nanoTime());
+                        
+			long lWait = lWake - System.nanoTime();
+                        
+			if(lWait > 0L) {
+                            
+				LockSupport.parkNanos(lWait);
+                                
+				mtsMetrics.record(Metric.WAKE, 
+                                        Math.max(0L, System.nanoTime() - lWake));
 			}
 		}
 	}
 	
 	/**
-	 * Updates the game and handles the bulk of it's logic.
+	 * Runs a single logic tick. Swaps in a saved game if one has finished 
+	 * loading, performs the player's actions, updates the game engine and 
+	 * publishes the result to draw.
 	 */
-	private void updateGame() {
+	private void tick() {
 		/*
-		 * Check to see if the piece's position can move down to the 
-                 * next row.
+		 * If a saved game has finished loading, swap it in before 
+		 * updating, and make the music match whether the loaded game 
+		 * is paused. Nothing is swapped into a session being played 
+		 * back.
 		 */
-		if(bplBoardPanel.isValidAndEmpty(tilCurrentType, iCurrentCol, 
-                        iCurrentRow + 1, iCurrentRotation)) {
+		GameSnapshot snpLoaded = (rplReplay == null) ? 
+                        svwSaves.pollLoaded() : null;
+                
+		if(snpLoaded != null) {
                     
-			//Increment the current row if it's safe to do so.
+			boolean wasPaused = gamEngine.isPaused();
                         
-			iCurrentRow++;
-		} else {
-			/*
-			 * We've either reached the bottom of the board, or 
-                         * landed on another piece, so
-			 * we need to add the piece to the board.
-			 */
-			bplBoardPanel.addPiece(tilCurrentType, iCurrentCol, 
-                                iCurrentRow, iCurrentRotation);
-			
-			/*
-			 * Check to see if adding the new piece resulted in 
-			 * any cleared lines. If so, increase the player's 
-			 * iScore. (Up to 4 lines can be cleared in a single
-                         * go; [1 = 100pts, 2 = 200pts, 3 = 400pts, 4 = 800pts])
-			 */
+			gamEngine.restore(snpLoaded);
+                        
+			if(logInputs != null) {
+                            
+				try {
+					logInputs.recordRestore(iTick, snpLoaded);
+				} catch(IOException e) {
+					stopRecording(e);
+				}
+			}
                         
-			int iCleared = bplBoardPanel.checkLines();
+			if(gamEngine.isPaused() && !wasPaused) {
+                            
+				auBackMusic.stop();
+			} else if(!gamEngine.isPaused() && wasPaused) {
+                            
+				auBackMusic.play();
+			}
+		}
+		
+		boolean wasGameOver = gamEngine.isGameOver();
+                
+		/*
+		 * The autoplayer presses it's keys through the input queue, 
+		 * the same as the keyboard, so it's games are recorded too.
+		 */
+		if(srpAutoplayer != null && iTick % AUTOPLAY_TICKS == 0) {
+                    
+			InputAction actAction = srpAutoplayer.nextAction(gamEngine);
                         
-			if(iCleared > 0) {
+			if(actAction != null) {
                             
-				iScore += 50 << iCleared;
-                                
-                                auCompleteLine.play();
+				quiInputs.offer(actAction);
 			}
-			
-			/*
-			 * Increase the speed slightly for the next piece and 
-                         * update the game's timer
-			 * to reflect the increase.
-			 */
-			fGameSpeed += 0.035f;
+		}
+		
+		/*
+		 * Perform every action the player has taken since the last 
+		 * tick, in the order they were taken.
+		 */
+		quiInputs.drainTo(lstBatch);
+                
+		long lDrained = System.nanoTime();
+                
+		for(int i = 0; i < lstBatch.size(); i++) {
+                    
+			InputEvent evtEvent = lstBatch.get(i);
                         
-			clkLogicTimer.setCyclesPerSecond(fGameSpeed);
+			InputAction actAction = evtEvent.getAction();
                         
-			clkLogicTimer.reset();
-			
-			/*
-			 * Set the drop cooldown so the next piece doesn't 
-			 * automatically come flying in from the heavens 
-			 * immediately after this piece hits if we've not
-                         * reacted yet. (~0.5 second buffer).
-			 */
+			mtsMetrics.record(Metric.INPUT, lDrained - evtEvent.getTime());
                         
-			iDropCooldown = 25;
-			
-			/*
-			 * Update the difficulty iLevel. This has no effect on 
-			 * the game, and is only used in the "Level" string
-                         * in the SidePanel. 
-			 */
-			iLevel = (int)(fGameSpeed * 1.70f);
-			
 			/*
-			 * Spawn a new piece to control.
+			 * While a session is played back, the keyboard can only 
+			 * change what's shown, not the game, so saving and loading 
+			 * are ignored too.
 			 */
-			spawnPiece();
+			if(rplReplay != null && actAction != InputAction.TOGGLE_METRICS) {
+                            
+				continue;
+			}
                         
-                        //Play the new piece AudioClip
-                        auNewPiece.play();
-		}		
-	}
-	
-	/**
-	 * Forces the BoardPanel and SidePanel to repaint.
-	 */
-	private void renderGame() {
-            
-		bplBoardPanel.repaint();
-                
-		splSidePanel.repaint();
-	}
-	
-	/**
-	 * Resets the game variables to their default values at the start
-	 * of a new game.
-	 */
-	private void resetGame() {
-            
-		this.iLevel = 1;
-                
-		this.iScore = 0;
-                
-		this.fGameSpeed = 1.0f;
-                
-		this.tilNextType = TileType.values()
-                        [iRandom.nextInt(TYPE_COUNT)];
-                
-		this.isNewGame = false;
-                
-		this.isGameOver = false;	
-                
-		bplBoardPanel.clear();
-                
-		clkLogicTimer.reset();
+			processInput(actAction);
+                        
+			if(logInputs != null && actAction.isGameAction()) {
+                            
+				try {
+					logInputs.record(iTick, actAction);
+				} catch(IOException e) {
+					stopRecording(e);
+				}
+			}
+		}
                 
-		clkLogicTimer.setCyclesPerSecond(fGameSpeed);
+		lstBatch.clear();
                 
-		spawnPiece();
-	}
+		if(rplReplay != null) {
+                    
+			iReplayEvent = rplReplay.applyTick(gamEngine, iTick, 
+                                iReplayEvent);
+		}
 		
-	/**
-	 * Spawns a new piece and resets our piece's variables to their default
-	 * values.
-	 */
-	private void spawnPiece() {
-            
 		/*
-		 * Poll the last piece and reset our position and rotation to
-		 * their default variables, then pick the next piece to use.
+		 * Update the game engine by exactly one tick and publish the 
+		 * result to draw.
 		 */
-		this.tilCurrentType = tilNextType;
-                
-		this.iCurrentCol = tilCurrentType.getSpawnColumn();
+		gamEngine.update(TICK_TIME);
                 
-		this.iCurrentRow = tilCurrentType.getSpawnRow();
+		gamEngine.publishFrame();
                 
-		this.iCurrentRotation = 0;
+		iTick++;
                 
-		this.tilNextType = TileType.values()
-                        [iRandom.nextInt(TYPE_COUNT)];
-		
 		/*
-		 * If the spawn point is invalid, we need to pause the game and 
-		 * flag that we've lost because it means that the pieces on
-                 * the board have gotten too high. 
+		 * The game can end during the actions or the update, so the 
+		 * result is recorded once the tick is done, against the tick 
+		 * that follows.
 		 */
-		if(!bplBoardPanel.isValidAndEmpty(tilCurrentType, iCurrentCol, 
-                        iCurrentRow, iCurrentRotation)) {
+		if(logInputs != null && gamEngine.isGameOver() && !wasGameOver) {
                     
-			this.isGameOver = true;
-                        
-			clkLogicTimer.setPaused(true);
-		}		
+			try {
+				logInputs.recordGameOver(iTick, gamEngine);
+			} catch(IOException e) {
+				stopRecording(e);
+			}
+		}
 	}
-
+	
 	/**
-	 * Attempts to set the rotation of the current piece to newRotation.
-	 * @param iNewRotation The rotation of the new peice.
+	 * Performs an action taken by the player. Called by the game loop.
+	 * @param actAction The action.
 	 */
-	private void rotatePiece(int iNewRotation) {
-		/*
-		 * Sometimes pieces will need to be moved when rotated to 
-		 * avoid clipping out of the board (the I piece is a good 
-		 * example of this). Here we store a temporary row and column
-                 * in case we need to move the tile as well.
-		 */
-		int iNewCol = iCurrentCol;
-		int iNewRow = iCurrentRow;
+	private void processInput(InputAction actAction) {
+            
+		switch(actAction) {
 		
 		/*
-		 * Get the insets for each of the sides. These are used to 
-                 * determine how
-		 * many empty rows or columns there are on a given side.
+		 * Save Game - Check to see that we're not in a game over. If 
+		 * we're not, take a snapshot of the game and write it to disk 
+		 * in the background.
 		 */
+		case SAVE:
+			if(!gamEngine.isGameOver() && !gamEngine.isNewGame()) {
+                            
+				svwSaves.save(gamEngine.snapshot());
+			}
+			break;
                 
-		int iLeft = tilCurrentType.getLeftInset(iNewRotation);
-                
-		int iRight = tilCurrentType.getRightInset(iNewRotation);
-                
-		int iTop = tilCurrentType.getTopInset(iNewRotation);
-                
-		int iBottom = tilCurrentType.getBottomInset(iNewRotation);
-		
 		/*
-		 * If the current piece is too far to the left or right, move
-                 * the piece away from the edges
-		 * so that the piece doesn't clip out of the map and
-                 * automatically become invalid.
+		 * Load Game - Check to see that we're not in a game over. If 
+		 * we're not, read the saved game in the background. The game 
+		 * loop restores it once it's been read.
 		 */
-                
-		if(iCurrentCol < -iLeft) {
-                    
-			iNewCol -= iCurrentCol - iLeft;
-                        
-		} else if(iCurrentCol + tilCurrentType.getDimension() - iRight 
-                        >= BoardPanel.COL_COUNT) {
-                    
-			iNewCol -= (iCurrentCol + tilCurrentType.getDimension() 
-                                - iRight) - BoardPanel.COL_COUNT + 1;
-		}
+		case LOAD:
+			if(!gamEngine.isGameOver() && !gamEngine.isNewGame()) {
+                            
+				svwSaves.load();
+			}
+			break;
 		
 		/*
-		 * If the current piece is too far to the top or bottom, move
-                 * the piece away from the edges
-		 * so that the piece doesn't clip out of the map and
-                 * automatically become invalid.
+		 * Pause Game - Toggle the pause state of the game engine and 
+		 * the background music along with it.
 		 */
-                
-		if(iCurrentRow < -iTop) {
-                    
-			iNewRow -= iCurrentRow - iTop;
+		case PAUSE:
+			boolean wasPaused = gamEngine.isPaused();
                         
-		} else if(iCurrentRow + tilCurrentType.getDimension() - iBottom 
-                        >= BoardPanel.ROW_COUNT) {
-                    
-			iNewRow -= (iCurrentRow + tilCurrentType.getDimension() 
-                                - iBottom) - BoardPanel.ROW_COUNT + 1;
-		}
+			gamEngine.handleInput(actAction);
+                        
+			if(gamEngine.isPaused() && !wasPaused) {
+                            
+				auBackMusic.stop();
+			} else if(!gamEngine.isPaused() && wasPaused) {
+                            
+				auBackMusic.play();
+			}
+			break;
 		
 		/*
-		 * Check to see if the new position is acceptable.
-                 * If it is, update the rotation and
-		 * position of the piece.
+		 * Show Timings - Show or hide the timing overlay on the side 
+		 * panel.
 		 */
-		if(bplBoardPanel.isValidAndEmpty(tilCurrentType, iNewCol, 
-                        iNewRow, iNewRotation)) {
-                    
-			iCurrentRotation = iNewRotation;
-                        
-			iCurrentRow = iNewRow;
-                        
-			iCurrentCol = iNewCol;
+		case TOGGLE_METRICS:
+			splSidePanel.setMetricsShown(!splSidePanel.isMetricsShown());
+			break;
+		
+		//Everything else is handled by the game engine.
+		default:
+			gamEngine.handleInput(actAction);
+			break;
 		}
 	}
 	
 	/**
-	 * Checks to see whether or not the game is paused.
-	 * @return Whether or not the game is paused.
-	 */
-	public boolean isPaused() {
-            
-		return isPaused;
-	}
-	
-	/**
-	 * Checks to see whether or not the game is over.
-	 * @return Whether or not the game is over.
+	 * Draws the game onto the canvas when rendering actively. Otherwise, 
+	 * asks the BoardPanel and SidePanel to repaint whatever has changed 
+	 * since the last frame they repainted.
 	 */
-	public boolean isGameOver() {
-            
-		return isGameOver;
-	}
-	
-	/**
-	 * Checks to see whether or not we're on a new game.
-	 * @return Whether or not this is a new game.
-	 */
-	public boolean isNewGame() {
+	private void renderGame() {
             
-		return isNewGame;
-	}
-	
-	/**
-	 * Gets the current iScore.
-	 * @return The iScore.
-	 */
-	public int getScore() {
-		return iScore;
+		//Draw the frame straight away when rendering actively.
+		if(cnvCanvas != null) {
+                    
+			cnvCanvas.render();
+                        
+			return;
+		}
+                
+		GameFrame frmFrame = gamEngine.getFrame();
+                
+		bplBoardPanel.repaintChanges(frmRendered, frmFrame);
+                
+		splSidePanel.repaintChanges(frmRendered, frmFrame);
+                
+		frmRendered = frmFrame;
 	}
 	
 	/**
-	 * Gets the current iLevel.
-	 * @return The iLevel.
+	 * Gets the game engine that holds the state of the game.
+	 * @return The game engine.
 	 */
-	public int getLevel() {
+	public GameEngine getEngine() {
             
-		return iLevel;
+		return gamEngine;
 	}
 	
 	/**
-	 * Gets the current type of piece we're using.
-	 * @return The piece type.
+	 * Gets the queue of actions for the game loop to perform. Actions may
+	 * be added from any thread.
+	 * @return The input queue.
 	 */
-	public TileType getPieceType() {
+	public InputQueue getInputs() {
             
-		return tilCurrentType;
+		return quiInputs;
 	}
 	
 	/**
-	 * Gets the next type of piece we're using.
-	 * @return The next piece.
+	 * Reads the first session of an input log to play back. If it can't 
+	 * be read, the game is played normally.
+	 * @param pthFile The log file.
+	 * @return The session, or null.
 	 */
-	public TileType getNextPieceType() {
+	private static Replay readReplay(Path pthFile) {
             
-		return tilNextType;
+		try {
+			List<Replay> lstSessions = Replay.read(pthFile);
+                        
+			if(!lstSessions.isEmpty()) {
+                            
+				return lstSessions.get(0);
+			}
+		} catch(IOException e) {
+			Logger.getLogger(Tetris.class.getName()).log(Level.SEVERE, 
+                                null, e);
+		}
+		return null;
 	}
 	
 	/**
-	 * Gets the column of the current piece.
-	 * @return The column.
+	 * Starts recording the player's actions to an input log, and makes 
+	 * sure whatever is still buffered is written when the game exits.
+	 * @param pthFile The log file.
+	 * @param lSeed The seed of the piece generator.
 	 */
-	public int getPieceCol() {
+	private void startRecording(Path pthFile, long lSeed) {
             
-		return iCurrentCol;
+		try {
+			final InputLog logFile = new InputLog(pthFile, RANDOMIZER, 
+                                lSeed, GameEngine.LOOKAHEAD, TICK_TIME);
+                        
+			Runtime.getRuntime().addShutdownHook(new Thread(
+                                new Runnable() {
+                            
+				@Override
+				public void run() {
+                                    
+					try {
+						logFile.close();
+					} catch(IOException e) {
+						Logger.getLogger(Tetris.class.getName()).log(
+                                                        Level.SEVERE, null, e);
+					}
+				}
+			}));
+                        
+			this.logInputs = logFile;
+		} catch(IOException e) {
+			Logger.getLogger(Tetris.class.getName()).log(Level.SEVERE, 
+                                null, e);
+		}
 	}
 	
 	/**
-	 * Gets the row of the current piece.
-	 * @return The row.
+	 * Stops recording after the input log couldn't be written. The game 
+	 * carries on.
+	 * @param e The error.
 	 */
-	public int getPieceRow() {
+	private void stopRecording(IOException e) {
             
-		return iCurrentRow;
+		Logger.getLogger(Tetris.class.getName()).log(Level.SEVERE, null, e);
+                
+		try {
+			logInputs.close();
+		} catch(IOException eClose) {
+			//The log is broken already.
+		}
+                
+		this.logInputs = null;
 	}
 	
-	/**
-	 * Gets the rotation of the current piece.
-	 * @return The rotation.
-	 */
-	public int getPieceRotation() {
-            
-		return iCurrentRotation;
-	}
-        
-        /**
-	 * Saves the actual game
-	 */
-        public void saveGame() throws IOException {
-            // Abrir archivo
-            fileOut = new PrintWriter(new FileWriter(sNomDatosGuardado));
-            fileOut.println(Integer.toString(iLevel)); // Guardar nivel
-            fileOut.println(Integer.toString(iScore)); // Guardar score
-            fileOut.println(Float.toString(fGameSpeed)); // Guardar gameSpeed
-            
-            guardaTileActualYEstado(fileOut);
-            
-            // Tile siguiente
-            fileOut.println(Integer.toString(tilNextType.ordinal()));
-            
-            // Board
-            for(int iI = 0; iI < bplBoardPanel.getROW() ; iI++) {
-                for(int iJ = 0; iJ < bplBoardPanel.getCOL(); iJ++) {
-                    if(bplBoardPanel.getTile(iJ, iI) != null) {
-                        fileOut.println(Integer.toString(iI));
-                        fileOut.println(Integer.toString(iJ));
-                        fileOut.println(Integer.toString(
-                                bplBoardPanel.getTile(iJ, iI).ordinal()));
-                    }
-                }
-            }
-            fileOut.close();
-        }
-        
-        public void guardaTileActualYEstado(PrintWriter fileOut) {
-            // Numero del Tile Actual
-            fileOut.println(Integer.toString(tilCurrentType.ordinal()));
-            fileOut.println(Integer.toString(iCurrentCol)); // Guardar ColumnaAc
-            // Guardar Rotacion Actual
-            fileOut.println(Integer.toString(iCurrentRotation));
-            fileOut.println(Integer.toString(iCurrentRow)); // Guardar fila act
-            fileOut.println(Integer.toString(iDropCooldown)); // Guardar cool...
-            
-            // Estado de la partida
-            if(isPaused) {
-                fileOut.println(Integer.toString(1)); // Pausado(1) o no(0)
-            }
-            else {
-                fileOut.println(Integer.toString(0)); // Pausado(1) o no(0)
-            }
-            
-            if(isNewGame) {
-                fileOut.println(Integer.toString(1)); // NewGame(1) o no(0)
-            }
-            else {
-                fileOut.println(Integer.toString(0)); // NewGame(1) o no(0)
-            }
-        }
-        
-        public void loadGame() throws IOException {
-            int iPausaGuardada, iNewGame;
-            String sScan;
-            // Abrimos el archivo en caso de que hubiera uno
-            try {
-                // Abrir el archivo
-                isPaused = true;
-                fileIn = new BufferedReader(new FileReader(sNomDatosGuardado));
-                iLevel = Integer.parseInt(fileIn.readLine());
-                iScore = Integer.parseInt(fileIn.readLine());
-                fGameSpeed = Float.parseFloat(fileIn.readLine());
-                tilCurrentType = TileType.values()
-                        [Integer.parseInt(fileIn.readLine())];
-                iCurrentCol = Integer.parseInt(fileIn.readLine());
-                iCurrentRotation = Integer.parseInt(fileIn.readLine());
-                iCurrentRow = Integer.parseInt(fileIn.readLine());
-                iDropCooldown = Integer.parseInt(fileIn.readLine());
-                iPausaGuardada = Integer.parseInt(fileIn.readLine());
-                iNewGame = Integer.parseInt(fileIn.readLine());
-                tilNextType = TileType.values()
-                        [Integer.parseInt(fileIn.readLine())];
-                for(int iI = 0; iI < bplBoardPanel.getROW() ; iI++) {
-                    for(int iJ = 0; iJ < bplBoardPanel.getCOL(); iJ++) {
-                        bplBoardPanel.nullTile(iJ, iI);
-                    }
-                }
-                sScan = fileIn.readLine();
-                while(sScan != null) {
-                    int iColum = Integer.parseInt(fileIn.readLine());
-                    bplBoardPanel.setTile(iColum,
-                            Integer.parseInt(sScan),
-                            TileType.values()
-                                    [Integer.parseInt(fileIn.readLine())]);
-                    sScan = fileIn.readLine();
-                }
-                if(iNewGame == 1) {
-                    isNewGame = true;
-                }
-                else {
-                    isNewGame = false;
-                }
-                
-                if(iPausaGuardada == 1) {
-                    isPaused = true;
-                }
-                else {
-                    isPaused = false;
-                }
-                fileIn.close();
-            }
-            catch (FileNotFoundException e){
-                // Si no se encuentra archivo guardado no cargar nada
-            }
-        }
-
 	/**
 	 * Entry-point of the game. Responsible for creating and starting a new
 	 * game instance.
@@ -0,0 +1,176 @@
+package org.psnbtech;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+/**
+ * The {@code TileSprites} class is a sprite atlas holding every
+ * {@link TileType}'s tile, and it's ghost, drawn once at a single size. The
+ * shaded bevel of a tile takes a dozen or so drawing calls, so drawing it
+ * once and copying it from then on makes drawing a tile a single call.
+ * <p>
+ * The atlas has a column for each type, with the tiles in the first row
+ * and the ghosts in the second.
+ * @author Brendan Jones
+ *
+ */
+public final class TileSprites {
+
+	/**
+	 * The tile types, indexed by ordinal.
+	 */
+	private static final TileType[] TYPES = TileType.values();
+
+	/**
+	 * The number of pixels that a tile takes up.
+	 */
+	private final int iTileSize;
+
+	/**
+	 * The image holding every sprite.
+	 */
+	private final BufferedImage imgAtlas;
+
+	/**
+	 * Creates a new TileSprites, drawing every sprite.
+	 * @param iTileSize The number of pixels that a tile takes up.
+	 * @param iShadeWidth The width of the shading on the tiles.
+	 * @param gcfConfig The configuration of the screen the sprites are
+	 * drawn on, so that they match it's format, or null if there is none.
+	 */
+	public TileSprites(int iTileSize, int iShadeWidth,
+		GraphicsConfiguration gcfConfig) {
+
+		this.iTileSize = iTileSize;
+
+		/*
+		 * The ghosts are partly transparent, so the atlas has to hold
+		 * an alpha channel.
+		 */
+		int iWidth = TYPES.length * iTileSize;
+		int iHeight = 2 * iTileSize;
+		if(gcfConfig != null) {
+			this.imgAtlas = gcfConfig.createCompatibleImage(iWidth, iHeight,
+				Transparency.TRANSLUCENT);
+		} else {
+			this.imgAtlas = new BufferedImage(iWidth, iHeight,
+				BufferedImage.TYPE_INT_ARGB);
+		}
+
+		Graphics2D graAtlas = imgAtlas.createGraphics();
+		try {
+			for(TileType tilType : TYPES) {
+				int iX = tilType.ordinal() * iTileSize;
+				drawBevel(graAtlas, tilType.getBaseColor(),
+					tilType.getLightColor(), tilType.getDarkColor(), iX, 0,
+					iTileSize, iShadeWidth);
+				drawBevel(graAtlas, tilType.getGhostBaseColor(),
+					tilType.getGhostLightColor(),
+					tilType.getGhostDarkColor(), iX, iTileSize, iTileSize,
+					iShadeWidth);
+			}
+		} finally {
+			graAtlas.dispose();
+		}
+	}
+
+	/**
+	 * Draws a tile.
+	 * @param graGraphics The graphics object.
+	 * @param tilType The type of tile to draw.
+	 * @param iX The x coordinate of the tile.
+	 * @param iY The y coordinate of the tile.
+	 */
+	public void drawTile(Graphics graGraphics, TileType tilType, int iX,
+		int iY) {
+
+		drawSprite(graGraphics, tilType, 0, iX, iY);
+	}
+
+	/**
+	 * Draws the ghost of a tile.
+	 * @param graGraphics The graphics object.
+	 * @param tilType The type of tile to draw.
+	 * @param iX The x coordinate of the tile.
+	 * @param iY The y coordinate of the tile.
+	 */
+	public void drawGhost(Graphics graGraphics, TileType tilType, int iX,
+		int iY) {
+
+		drawSprite(graGraphics, tilType, iTileSize, iX, iY);
+	}
+
+	/**
+	 * Gets the number of pixels that a tile takes up.
+	 * @return The size of a tile.
+	 */
+	public int getTileSize() {
+		return iTileSize;
+	}
+
+	/**
+	 * Copies a sprite out of the atlas.
+	 * @param graGraphics The graphics object.
+	 * @param tilType The type of tile to draw.
+	 * @param iRow The y coordinate of the sprite's row in the atlas.
+	 * @param iX The x coordinate of the tile.
+	 * @param iY The y coordinate of the tile.
+	 */
+	private void drawSprite(Graphics graGraphics, TileType tilType,
+		int iRow, int iX, int iY) {
+
+		int iCol = tilType.ordinal() * iTileSize;
+		graGraphics.drawImage(imgAtlas, iX, iY, iX + iTileSize,
+			iY + iTileSize, iCol, iRow, iCol + iTileSize, iRow + iTileSize,
+			null);
+	}
+
+	/**
+	 * Draws the shaded bevel of a tile.
+	 * @param graGraphics The graphics object.
+	 * @param clrBase The base color of the tile.
+	 * @param clrLight The light color of the tile.
+	 * @param clrDark The dark color of the tile.
+	 * @param iX The x coordinate of the tile.
+	 * @param iY The y coordinate of the tile.
+	 * @param iSize The number of pixels that the tile takes up.
+	 * @param iShadeWidth The width of the shading.
+	 */
+	private static void drawBevel(Graphics graGraphics, Color clrBase,
+		Color clrLight, Color clrDark, int iX, int iY, int iSize,
+		int iShadeWidth) {
+
+		/*
+		 * Fill the entire tile with the base color.
+		 */
+		graGraphics.setColor(clrBase);
+		graGraphics.fillRect(iX, iY, iSize, iSize);
+
+		/*
+		 * Fill the bottom and right edges of the tile with the dark
+		 * shading color.
+		 */
+		graGraphics.setColor(clrDark);
+		graGraphics.fillRect(iX, iY + iSize - iShadeWidth, iSize,
+			iShadeWidth);
+		graGraphics.fillRect(iX + iSize - iShadeWidth, iY, iShadeWidth,
+			iSize);
+
+		/*
+		 * Fill the top and left edges with the light shading. We draw a
+		 * single line for each row or column rather than a rectangle so
+		 * that we can draw a nice looking diagonal where the light and
+		 * dark shading meet.
+		 */
+		graGraphics.setColor(clrLight);
+		for(int iI = 0; iI < iShadeWidth; iI++) {
+			graGraphics.drawLine(iX, iY + iI, iX + iSize - iI - 1, iY + iI);
+			graGraphics.drawLine(iX + iI, iY, iX + iI, iY + iSize - iI - 1);
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.psnbtech;
 
 import java.awt.Color;
+import java.util.Arrays;
 
 /**
  * The {@code PieceType} enum describes the properties of the various pieces 
@@ -221,6 +222,14 @@ public enum TileType {
 	 */
 	private Color clrDarkColor;
 	
+	/**
+	 * The base, light and dark colors of the ghost of this type, which 
+	 * are the tile colors made partly transparent.
+	 */
+	private Color clrGhostBaseColor;
+	private Color clrGhostLightColor;
+	private Color clrGhostDarkColor;
+	
 	/**
 	 * The column that this type spawns in.
 	 */
@@ -258,6 +267,42 @@ public enum TileType {
 	 */
 	private boolean[][] matbTiles;
 	
+	/**
+	 * The left, right, top and bottom insets of each rotation. These 
+	 * never change, so they are found once when the type is created.
+	 */
+	private int[] iLeftInsets;
+	private int[] iRightInsets;
+	private int[] iTopInsets;
+	private int[] iBottomInsets;
+	
+	/**
+	 * The bitmask of every row of each rotation. Bit {@code n} of a row is
+	 * set when column {@code n} of the piece holds a tile.
+	 */
+	private int[][] matiRowMasks;
+	
+	/**
+	 * The column and row offsets of every tile of each rotation, in the 
+	 * order they appear in the tiles array.
+	 */
+	private int[][] matiTileCols;
+	private int[][] matiTileRows;
+	
+	/**
+	 * The row of the lowest tile in every column of each rotation, or -1 
+	 * when the column is empty.
+	 */
+	private int[][] matiColBottoms;
+	
+	/**
+	 * The column and row offsets of the kicks tried, in order, when the 
+	 * piece is turned from one rotation to another, indexed by the old 
+	 * rotation then the new one.
+	 */
+	private int[][][] matiKickCols;
+	private int[][][] matiKickRows;
+	
 	/**
 	 * Creates a new TileType.
 	 * @param clrColor The base color of the tile.
@@ -272,13 +317,66 @@ public enum TileType {
 		this.clrBaseColor = clrColor;
 		this.clrLightColor = clrColor.brighter();
 		this.clrDarkColor = clrColor.darker();
+		this.clrGhostBaseColor = new Color(clrColor.getRed(), 
+                        clrColor.getGreen(), clrColor.getBlue(), 
+                        BoardPanel.GHOST_ALPHA);
+		this.clrGhostLightColor = clrGhostBaseColor.brighter();
+		this.clrGhostDarkColor = clrGhostBaseColor.darker();
 		this.iDimension = iDimension;
 		this.matbTiles = tiles;
 		this.iCols = iCols;
 		this.iRows = iRows;
 		
+		/*
+		 * Find the insets, row masks and tile offsets of every rotation
+		 * up front, so that the collision checks that run every frame
+		 * never have to scan the tiles array.
+		 */
+		int iRotations = tiles.length;
+		this.iLeftInsets = new int[iRotations];
+		this.iRightInsets = new int[iRotations];
+		this.iTopInsets = new int[iRotations];
+		this.iBottomInsets = new int[iRotations];
+		this.matiRowMasks = new int[iRotations][iDimension];
+		this.matiTileCols = new int[iRotations][];
+		this.matiTileRows = new int[iRotations][];
+		this.matiColBottoms = new int[iRotations][iDimension];
+		for(int iRotation = 0; iRotation < iRotations; iRotation++) {
+			iLeftInsets[iRotation] = findLeftInset(iRotation);
+			iRightInsets[iRotation] = findRightInset(iRotation);
+			iTopInsets[iRotation] = findTopInset(iRotation);
+			iBottomInsets[iRotation] = findBottomInset(iRotation);
+			
+			int iCount = 0;
+			Arrays.fill(matiColBottoms[iRotation], -1);
+			for(int iY = 0; iY < iDimension; iY++) {
+				for(int iX = 0; iX < iDimension; iX++) {
+					if(isTile(iX, iY, iRotation)) {
+						matiRowMasks[iRotation][iY] |= 1 << iX;
+						matiColBottoms[iRotation][iX] = iY;
+						iCount++;
+					}
+				}
+			}
+			
+			matiTileCols[iRotation] = new int[iCount];
+			matiTileRows[iRotation] = new int[iCount];
+			iCount = 0;
+			for(int iY = 0; iY < iDimension; iY++) {
+				for(int iX = 0; iX < iDimension; iX++) {
+					if(isTile(iX, iY, iRotation)) {
+						matiTileCols[iRotation][iCount] = iX;
+						matiTileRows[iRotation][iCount] = iY;
+						iCount++;
+					}
+				}
+			}
+		}
+		
+		findKicks();
+		
 		this.iSpawnCol = 5 - (iDimension >> 1);
-		this.iSpawnRow = getTopInset(0);
+		this.iSpawnRow = iTopInsets[0];
 	}
 	
 	/**
@@ -308,6 +406,33 @@ public enum TileType {
 		return clrDarkColor;
 	}
 	
+	/**
+	 * Gets the base color of the ghost of this type.
+	 * @return The ghost's base color.
+	 */
+	public Color getGhostBaseColor() {
+            
+		return clrGhostBaseColor;
+	}
+	
+	/**
+	 * Gets the light shading color of the ghost of this type.
+	 * @return The ghost's light color.
+	 */
+	public Color getGhostLightColor() {
+            
+		return clrGhostLightColor;
+	}
+	
+	/**
+	 * Gets the dark shading color of the ghost of this type.
+	 * @return The ghost's dark color.
+	 */
+	public Color getGhostDarkColor() {
+            
+		return clrGhostDarkColor;
+	}
+	
 	/**
 	 * Gets the iDimension of this type.
 	 * @return The iDimension.
@@ -375,6 +500,199 @@ public enum TileType {
 	 * @return The left inset.
 	 */
 	public int getLeftInset(int iRotation) {
+		return iLeftInsets[iRotation];
+	}
+	
+	/**
+	 * The right inset is represented by the number of empty columns on the 
+	 * right side of the array for the given rotation.
+	 * @param iRotation The rotation.
+	 * @return The right inset.
+	 */
+	public int getRightInset(int iRotation) {
+		return iRightInsets[iRotation];
+	}
+	
+	/**
+	 * The top inset is represented by the number of empty rows on the top
+	 * side of the array for the given rotation.
+	 * @param iRotation The rotation.
+	 * @return The top inset.
+	 */
+	public int getTopInset(int iRotation) {
+		return iTopInsets[iRotation];
+	}
+	
+	/**
+	 * The bottom inset is represented by the number of empty rows on the 
+	 * bottom side of the array for the given rotation.
+	 * @param iRotation The rotation.
+	 * @return The bottom inset.
+	 */
+	public int getBottomInset(int iRotation) {
+		return iBottomInsets[iRotation];
+	}
+	
+	/**
+	 * Gets the bitmask of a row of the piece. Bit {@code n} is set when 
+	 * column {@code n} of the row holds a tile.
+	 * @param iRotation The rotation.
+	 * @param iY The row of the piece.
+	 * @return The row's bitmask.
+	 */
+	public int getRowMask(int iRotation, int iY) {
+		return matiRowMasks[iRotation][iY];
+	}
+	
+	/**
+	 * Gets the number of tiles that make up the piece.
+	 * @return The number of tiles.
+	 */
+	public int getTileCount() {
+		return matiTileCols[0].length;
+	}
+	
+	/**
+	 * Gets the column of one of the piece's tiles.
+	 * @param iRotation The rotation.
+	 * @param iIndex The index of the tile, from 0 to 
+	 * {@code getTileCount() - 1}.
+	 * @return The column of the tile within the piece.
+	 */
+	public int getTileCol(int iRotation, int iIndex) {
+		return matiTileCols[iRotation][iIndex];
+	}
+	
+	/**
+	 * Gets the row of one of the piece's tiles.
+	 * @param iRotation The rotation.
+	 * @param iIndex The index of the tile, from 0 to 
+	 * {@code getTileCount() - 1}.
+	 * @return The row of the tile within the piece.
+	 */
+	public int getTileRow(int iRotation, int iIndex) {
+		return matiTileRows[iRotation][iIndex];
+	}
+	
+	/**
+	 * Gets the row of the lowest tile in a column of the piece.
+	 * @param iRotation The rotation.
+	 * @param iX The column of the piece.
+	 * @return The row of the tile within the piece, or -1 if the column 
+	 * is empty.
+	 */
+	public int getColumnBottom(int iRotation, int iX) {
+		return matiColBottoms[iRotation][iX];
+	}
+	
+	/**
+	 * Gets the number of kicks tried when the piece is turned.
+	 * @param iFrom The rotation the piece is turned from.
+	 * @param iTo The rotation the piece is turned to.
+	 * @return The number of kicks.
+	 */
+	public int getKickCount(int iFrom, int iTo) {
+		return matiKickCols[iFrom][iTo].length;
+	}
+	
+	/**
+	 * Gets how far one of the kicks moves the piece across.
+	 * @param iFrom The rotation the piece is turned from.
+	 * @param iTo The rotation the piece is turned to.
+	 * @param iKick The index of the kick, from 0 to 
+	 * {@code getKickCount(iFrom, iTo) - 1}.
+	 * @return The number of columns, where positive is to the right.
+	 */
+	public int getKickCol(int iFrom, int iTo, int iKick) {
+		return matiKickCols[iFrom][iTo][iKick];
+	}
+	
+	/**
+	 * Gets how far one of the kicks moves the piece down.
+	 * @param iFrom The rotation the piece is turned from.
+	 * @param iTo The rotation the piece is turned to.
+	 * @param iKick The index of the kick, from 0 to 
+	 * {@code getKickCount(iFrom, iTo) - 1}.
+	 * @return The number of rows, where positive is down.
+	 */
+	public int getKickRow(int iFrom, int iTo, int iKick) {
+		return matiKickRows[iFrom][iTo][iKick];
+	}
+	
+	/**
+	 * Builds the kick tables of every turn. Only used when the type is 
+	 * created; see {@code getKickCol} and {@code getKickRow}.
+	 */
+	private void findKicks() {
+		/*
+		 * The kicks of the Super Rotation System for a clockwise turn 
+		 * from each rotation, as column and row pairs. The O piece 
+		 * never kicks and the I piece has a table of it's own. Rows in 
+		 * the system count up, so they're negated here, and the kicks of 
+		 * an anticlockwise turn are the clockwise ones back the other 
+		 * way.
+		 */
+		int[][] matiClockwise;
+		if(iDimension == 4) {
+			matiClockwise = new int[][] {
+				{0, 0,	-2, 0,	1, 0,	-2, -1,	1, 2},
+				{0, 0,	-1, 0,	2, 0,	-1, 2,	2, -1},
+				{0, 0,	2, 0,	-1, 0,	2, 1,	-1, -2},
+				{0, 0,	1, 0,	-2, 0,	1, -2,	-2, 1},
+			};
+		} else if(iDimension == 3) {
+			matiClockwise = new int[][] {
+				{0, 0,	-1, 0,	-1, 1,	0, -2,	-1, -2},
+				{0, 0,	1, 0,	1, -1,	0, 2,	1, 2},
+				{0, 0,	1, 0,	1, 1,	0, -2,	1, -2},
+				{0, 0,	-1, 0,	-1, -1,	0, 2,	-1, 2},
+			};
+		} else {
+			matiClockwise = new int[][] {
+				{0, 0}, {0, 0}, {0, 0}, {0, 0}
+			};
+		}
+		
+		int iRotations = matbTiles.length;
+		this.matiKickCols = new int[iRotations][iRotations][];
+		this.matiKickRows = new int[iRotations][iRotations][];
+		for(int iFrom = 0; iFrom < iRotations; iFrom++) {
+			for(int iTo = 0; iTo < iRotations; iTo++) {
+				//Half turns and staying put only try where the piece is.
+				matiKickCols[iFrom][iTo] = new int[] {0};
+				matiKickRows[iFrom][iTo] = new int[] {0};
+			}
+		}
+		for(int iFrom = 0; iFrom < iRotations; iFrom++) {
+			int iTo = (iFrom + 1) % iRotations;
+			int iKicks = matiClockwise[iFrom].length / 2;
+			int[] iCols = new int[iKicks];
+			int[] iRows = new int[iKicks];
+			for(int iKick = 0; iKick < iKicks; iKick++) {
+				iCols[iKick] = matiClockwise[iFrom][iKick * 2];
+				iRows[iKick] = -matiClockwise[iFrom][iKick * 2 + 1];
+			}
+			matiKickCols[iFrom][iTo] = iCols;
+			matiKickRows[iFrom][iTo] = iRows;
+			
+			int[] iBackCols = new int[iKicks];
+			int[] iBackRows = new int[iKicks];
+			for(int iKick = 0; iKick < iKicks; iKick++) {
+				iBackCols[iKick] = -iCols[iKick];
+				iBackRows[iKick] = -iRows[iKick];
+			}
+			matiKickCols[iTo][iFrom] = iBackCols;
+			matiKickRows[iTo][iFrom] = iBackRows;
+		}
+	}
+	
+	/**
+	 * Scans the tiles array for the left inset of the given rotation. Only
+	 * used when the type is created; see {@code getLeftInset}.
+	 * @param iRotation The rotation.
+	 * @return The left inset.
+	 */
+	private int findLeftInset(int iRotation) {
 		/*
 		 * Loop through from left to right until we find a tile then 
                  * return
@@ -391,12 +709,12 @@ public enum TileType {
 	}
 	
 	/**
-	 * The right inset is represented by the number of empty columns on the 
-	 * left side of the array for the given rotation.
+	 * Scans the tiles array for the right inset of the given rotation. Only
+	 * used when the type is created; see {@code getRightInset}.
 	 * @param iRotation The rotation.
 	 * @return The right inset.
 	 */
-	public int getRightInset(int iRotation) {
+	private int findRightInset(int iRotation) {
 		/*
 		 * Loop through from right to left until we find a tile then 
                  * return
@@ -413,12 +731,12 @@ public enum TileType {
 	}
 	
 	/**
-	 * The left inset is represented by the number of empty iRows on the top
-            side of the array for the given rotation.
+	 * Scans the tiles array for the top inset of the given rotation. Only
+	 * used when the type is created; see {@code getTopInset}.
 	 * @param iRotation The rotation.
 	 * @return The top inset.
 	 */
-	public int getTopInset(int iRotation) {
+	private int findTopInset(int iRotation) {
 		/*
 		 * Loop through from top to bottom until we find a tile then 
                  * return
@@ -435,13 +753,12 @@ public enum TileType {
 	}
 	
 	/**
-	 * The botom inset is represented by the number of empty iRows on the 
-         * bottom
-            side of the array for the given rotation.
+	 * Scans the tiles array for the bottom inset of the given rotation. Only
+	 * used when the type is created; see {@code getBottomInset}.
 	 * @param iRotation The rotation.
 	 * @return The bottom inset.
 	 */
-	public int getBottomInset(int iRotation) {
+	private int findBottomInset(int iRotation) {
 		/*
 		 * Loop through from bottom to top until we find a tile then 
                  * return
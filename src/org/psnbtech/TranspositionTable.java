@@ -0,0 +1,132 @@
+package org.psnbtech;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code TranspositionTable} class caches the values a search has
+ * found, keyed by the Zobrist hash of the position they were found for, so
+ * a position that's reached again by a different placement, such as
+ * another rotation that fills the same tiles, isn't searched twice.
+ * <p>
+ * The table is a fixed size array of keys and values. Each key can only go
+ * in one slot, and a new value always replaces the old one, so the table
+ * never allocates and never needs clearing; the values it forgets are just
+ * searched again.
+ * <p>
+ * Any number of threads can share a table without locking. Each slot holds
+ * the value's bits and the key exclusive or'd with them, and a lookup only
+ * accepts a slot whose two halves agree. If two threads write the same slot
+ * at once and the halves get mixed up, the slot reads as empty.
+ * @author Brendan Jones
+ *
+ */
+public final class TranspositionTable {
+
+	/**
+	 * The key of a slot that holds nothing.
+	 */
+	private static final long EMPTY = 0L;
+
+	/**
+	 * The key of every slot, exclusive or'd with it's value's bits.
+	 */
+	private final long[] lChecks;
+
+	/**
+	 * The bits of the value of every slot.
+	 */
+	private final long[] lValues;
+
+	/**
+	 * The mask that turns a key into a slot.
+	 */
+	private final int iMask;
+
+	/**
+	 * The number of lookups that found a value.
+	 */
+	private final LongAdder ladHits;
+
+	/**
+	 * The number of lookups that didn't find a value.
+	 */
+	private final LongAdder ladMisses;
+
+	/**
+	 * Creates a new, empty TranspositionTable.
+	 * @param iSizeBits The base 2 logarithm of the number of slots.
+	 */
+	public TranspositionTable(int iSizeBits) {
+		this.lChecks = new long[1 << iSizeBits];
+		this.lValues = new long[1 << iSizeBits];
+		this.iMask = (1 << iSizeBits) - 1;
+		this.ladHits = new LongAdder();
+		this.ladMisses = new LongAdder();
+	}
+
+	/**
+	 * Looks up the value of a position.
+	 * @param lKey The key of the position.
+	 * @return The value, or {@code Double.NaN} if it isn't in the table.
+	 */
+	public double get(long lKey) {
+		lKey = toKey(lKey);
+		int iSlot = toSlot(lKey);
+		long lValue = lValues[iSlot];
+		if((lChecks[iSlot] ^ lValue) == lKey) {
+			ladHits.increment();
+			return Double.longBitsToDouble(lValue);
+		}
+		ladMisses.increment();
+		return Double.NaN;
+	}
+
+	/**
+	 * Stores the value of a position, replacing whatever was in it's slot.
+	 * @param lKey The key of the position.
+	 * @param dValue The value.
+	 */
+	public void put(long lKey, double dValue) {
+		lKey = toKey(lKey);
+		int iSlot = toSlot(lKey);
+		long lValue = Double.doubleToRawLongBits(dValue);
+		lValues[iSlot] = lValue;
+		lChecks[iSlot] = lKey ^ lValue;
+	}
+
+	/**
+	 * Gets the number of lookups that found a value.
+	 * @return The number of hits.
+	 */
+	public long getHits() {
+		return ladHits.sum();
+	}
+
+	/**
+	 * Gets the number of lookups that didn't find a value.
+	 * @return The number of misses.
+	 */
+	public long getMisses() {
+		return ladMisses.sum();
+	}
+
+	/**
+	 * Moves the one key that means an empty slot out of the way.
+	 * @param lKey The key.
+	 * @return The key as it's stored.
+	 */
+	private static long toKey(long lKey) {
+		return (lKey == EMPTY) ? 1L : lKey;
+	}
+
+	/**
+	 * Finds the slot of a key, folding the high half of the key into the
+	 * low half so that every bit of it counts.
+	 * @param lKey The key.
+	 * @return The slot.
+	 */
+	private int toSlot(long lKey) {
+		return (int)(lKey ^ (lKey >>> 32)) & iMask;
+	}
+
+}
@@ -0,0 +1,26 @@
+package org.psnbtech;
+
+/**
+ * The {@code UniformGenerator} class picks every piece at random, with
+ * every type equally likely every time. This is how the game has always
+ * dealt pieces, and it can deal long runs without a particular type.
+ * @author Brendan Jones
+ *
+ */
+public class UniformGenerator extends PieceGenerator {
+
+	/**
+	 * Creates a new UniformGenerator.
+	 * @param lSeed The seed of the random number generator.
+	 * @param iLookahead The number of upcoming pieces that can be looked at.
+	 */
+	public UniformGenerator(long lSeed, int iLookahead) {
+		super(lSeed, iLookahead);
+	}
+
+	@Override
+	protected TileType pick() {
+		return TYPES[rndRandom.nextInt(TYPES.length)];
+	}
+
+}
@@ -0,0 +1,748 @@
+package org.psnbtech;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code WeightTuner} class evolves the weights of a {@link Heuristic}
+ * with a genetic search. Every generation, each set of weights in the
+ * population plays the same seeded games headless with a
+ * {@link SearchPlayer}, and is judged by it's mean score, which the engine
+ * keeps exactly as it does for an interactive game. The games are shared
+ * out over a fixed pool of threads, each taking the next game as soon as
+ * it's done with the last, so that a set of weights that dies early
+ * doesn't leave a thread idle.
+ * <p>
+ * Breeding follows the search the default weights came from. Each child is
+ * the score weighted average of the best two of a random tenth of the
+ * population, now and then nudged in one weight, and the children replace
+ * the worst three tenths. Weights are kept at unit length, as only their
+ * ratios change which placement the player picks.
+ * <p>
+ * After every generation the population is written to a checkpoint, which
+ * a later run picks up from. Everything random is derived from the master
+ * seed and the generation, so a resumed run carries on exactly as if it
+ * had never been stopped. The checkpoint is laid out as follows, big
+ * endian:
+ * <pre>
+ *   int      magic ("TGEN")
+ *   short    version
+ *   long     master seed
+ *   int      generation
+ *   int      population, games per set of weights, piece limit, depth
+ *   short    length of the piece generator's name, then it's UTF-8 bytes
+ *   double[] the weights and mean score of every set of weights
+ *   int      CRC32 of everything above
+ * </pre>
+ * @author Brendan Jones
+ *
+ */
+public final class WeightTuner {
+
+	/**
+	 * The magic number every checkpoint starts with.
+	 */
+	private static final int MAGIC = 0x5447454E;
+
+	/**
+	 * The version of the checkpoint format.
+	 */
+	private static final short VERSION = 1;
+
+	/**
+	 * The number of weights in a set.
+	 */
+	private static final int WEIGHT_COUNT =
+		Heuristic.DEFAULT.getWeights().length;
+
+	/**
+	 * The largest population a checkpoint is trusted to hold.
+	 */
+	private static final int MAX_POPULATION = 1 << 16;
+
+	/**
+	 * The number of generations to run when none is given on the command
+	 * line.
+	 */
+	private static final int DEFAULT_GENERATIONS = 50;
+
+	/**
+	 * The population size when none is given on the command line.
+	 */
+	private static final int DEFAULT_POPULATION = 100;
+
+	/**
+	 * The number of games each set of weights plays per generation when
+	 * none is given on the command line.
+	 */
+	private static final int DEFAULT_GAMES = 5;
+
+	/**
+	 * The maximum number of pieces to play per game when none is given on
+	 * the command line.
+	 */
+	private static final int DEFAULT_MAX_PIECES = 500;
+
+	/**
+	 * The number of pieces the player searches when none is given on the
+	 * command line.
+	 */
+	private static final int DEFAULT_DEPTH = 1;
+
+	/**
+	 * The share of the population that takes part in each tournament.
+	 */
+	private static final double TOURNAMENT_SHARE = 0.1;
+
+	/**
+	 * The share of the population replaced by children every generation.
+	 */
+	private static final double OFFSPRING_SHARE = 0.3;
+
+	/**
+	 * The chance that a child has one of it's weights nudged.
+	 */
+	private static final double MUTATION_CHANCE = 0.05;
+
+	/**
+	 * The most a nudged weight is moved by, either way.
+	 */
+	private static final double MUTATION_SIZE = 0.2;
+
+	/**
+	 * The odd constant the generation is spread over the seed with.
+	 */
+	private static final long GENERATION_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * The master seed that everything random is derived from.
+	 */
+	private final long lSeed;
+
+	/**
+	 * The number of sets of weights in the population.
+	 */
+	private final int iPopulation;
+
+	/**
+	 * The number of games each set of weights plays per generation.
+	 */
+	private final int iGames;
+
+	/**
+	 * The number of pieces after which a game is stopped, even if it's
+	 * not over yet.
+	 */
+	private final int iMaxPieces;
+
+	/**
+	 * The number of pieces the player searches.
+	 */
+	private final int iDepth;
+
+	/**
+	 * The name of the strategy the games' pieces are dealt with.
+	 */
+	private final String sGenerator;
+
+	/**
+	 * The current generation, counting from 0.
+	 */
+	private int iGeneration;
+
+	/**
+	 * The weights of every set in the population.
+	 */
+	private final double[][] dWeights;
+
+	/**
+	 * The mean score of every set of weights this generation, or NaN if
+	 * the generation hasn't been played yet.
+	 */
+	private final double[] dScores;
+
+	/**
+	 * Creates a new WeightTuner with a random population.
+	 * @param lSeed The master seed that everything random is derived from.
+	 * @param iPopulation The number of sets of weights, at least 4.
+	 * @param iGames The number of games each set of weights plays per
+	 * generation.
+	 * @param iMaxPieces The number of pieces after which a game is stopped.
+	 * @param iDepth The number of pieces the player searches, from 1 to
+	 * {@code SearchPlayer.MAX_DEPTH}.
+	 * @param sGenerator The name of the piece generator strategy, as
+	 * taken by {@code PieceGenerator.create}.
+	 */
+	public WeightTuner(long lSeed, int iPopulation, int iGames,
+		int iMaxPieces, int iDepth, String sGenerator) {
+
+		this(lSeed, iPopulation, iGames, iMaxPieces, iDepth, sGenerator, 0);
+		SplittableRandom rndWeights = new SplittableRandom(lSeed);
+		for(int iI = 0; iI < iPopulation; iI++) {
+			do {
+				for(int iW = 0; iW < WEIGHT_COUNT; iW++) {
+					dWeights[iI][iW] = rndWeights.nextDouble(-1.0, 1.0);
+				}
+			} while(!normalize(dWeights[iI]));
+		}
+	}
+
+	/**
+	 * Creates a new WeightTuner with every weight zero.
+	 * @param lSeed The master seed.
+	 * @param iPopulation The number of sets of weights.
+	 * @param iGames The number of games each set of weights plays.
+	 * @param iMaxPieces The number of pieces after which a game is stopped.
+	 * @param iDepth The number of pieces the player searches.
+	 * @param sGenerator The name of the piece generator strategy.
+	 * @param iGeneration The current generation.
+	 */
+	private WeightTuner(long lSeed, int iPopulation, int iGames,
+		int iMaxPieces, int iDepth, String sGenerator, int iGeneration) {
+
+		if(iPopulation < 4 || iPopulation > MAX_POPULATION) {
+			throw new IllegalArgumentException("Population must be from 4 to "
+				+ MAX_POPULATION + ": " + iPopulation);
+		}
+		if(iGames < 1) {
+			throw new IllegalArgumentException("Games must be at least 1: "
+				+ iGames);
+		}
+		if(iDepth < 1 || iDepth > SearchPlayer.MAX_DEPTH) {
+			throw new IllegalArgumentException("Depth must be from 1 to "
+				+ SearchPlayer.MAX_DEPTH + ": " + iDepth);
+		}
+
+		//Fail now, rather than on every thread.
+		PieceGenerator.create(sGenerator, 0L, 1);
+
+		this.lSeed = lSeed;
+		this.iPopulation = iPopulation;
+		this.iGames = iGames;
+		this.iMaxPieces = iMaxPieces;
+		this.iDepth = iDepth;
+		this.sGenerator = sGenerator;
+		this.iGeneration = iGeneration;
+		this.dWeights = new double[iPopulation][WEIGHT_COUNT];
+		this.dScores = new double[iPopulation];
+		Arrays.fill(dScores, Double.NaN);
+	}
+
+	/**
+	 * Plays this generation's games with every set of weights, and waits
+	 * for them to finish.
+	 * @param iThreads The number of threads to play the games on.
+	 * @return The combined results of the games.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public SimulationStats evaluate(int iThreads) throws InterruptedException {
+		/*
+		 * Every set of weights plays the same games, so that none is
+		 * judged on luckier pieces than the others.
+		 */
+		final long[] lGameSeeds = new long[iGames];
+		SplittableRandom rndSeeds = new SplittableRandom(getGenerationSeed());
+		for(int iI = 0; iI < iGames; iI++) {
+			lGameSeeds[iI] = rndSeeds.nextLong();
+		}
+		final Heuristic[] heuSets = new Heuristic[iPopulation];
+		for(int iI = 0; iI < iPopulation; iI++) {
+			heuSets[iI] = toHeuristic(dWeights[iI]);
+		}
+
+		/*
+		 * Each thread takes the next game until there are none left, and
+		 * keeps it's own totals. A game's score goes in it's own slot, so
+		 * the scores don't depend on which thread played which game.
+		 */
+		final int[] iScores = new int[iPopulation * iGames];
+		final AtomicInteger aitNext = new AtomicInteger();
+		int iWorkers = Math.max(1, Math.min(iThreads, iScores.length));
+		ExecutorService excPool = Executors.newFixedThreadPool(iWorkers);
+		long lStart = System.nanoTime();
+		SimulationStats staTotal = new SimulationStats();
+		try {
+			List<Future<SimulationStats>> lstResults =
+				new ArrayList<Future<SimulationStats>>(iWorkers);
+			for(int iT = 0; iT < iWorkers; iT++) {
+				lstResults.add(excPool.submit(
+					new Callable<SimulationStats>() {
+
+					@Override
+					public SimulationStats call() {
+						SimulationStats staStats =
+							new SimulationStats();
+						for(int iI = aitNext.getAndIncrement();
+							iI < iScores.length;
+							iI = aitNext.getAndIncrement()) {
+
+							GameEngine gamEngine = BatchSimulation.playGame(
+								sGenerator, lGameSeeds[iI % iGames],
+								new SearchPlayer(heuSets[iI / iGames],
+									iDepth, SearchPlayer.DEFAULT_TABLE_BITS,
+									null), iMaxPieces);
+							iScores[iI] = gamEngine.getScore();
+							staStats.add(gamEngine);
+						}
+						return staStats;
+					}
+				}));
+			}
+			for(Future<SimulationStats> futResult : lstResults) {
+				staTotal.merge(futResult.get());
+			}
+		} catch(ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			excPool.shutdownNow();
+		}
+		staTotal.setElapsedNanos(System.nanoTime() - lStart);
+
+		for(int iI = 0; iI < iPopulation; iI++) {
+			long lTotal = 0L;
+			for(int iG = 0; iG < iGames; iG++) {
+				lTotal += iScores[iI * iGames + iG];
+			}
+			dScores[iI] = (double)lTotal / iGames;
+		}
+		return staTotal;
+	}
+
+	/**
+	 * Replaces the worst of this generation with children of the best,
+	 * and moves on to the next generation.
+	 * @throws IllegalStateException If this generation hasn't been played.
+	 */
+	public void breed() {
+		if(!isEvaluated()) {
+			throw new IllegalStateException("Generation " + iGeneration
+				+ " hasn't been played");
+		}
+
+		//A stream of it's own, so breeding never shifts the games' seeds.
+		SplittableRandom rndBreed = new SplittableRandom(~getGenerationSeed());
+		int iTournament = Math.max(2, (int)(iPopulation * TOURNAMENT_SHARE));
+		int iOffspring = Math.max(1, (int)(iPopulation * OFFSPRING_SHARE));
+		int[] iOrder = new int[iPopulation];
+		for(int iI = 0; iI < iPopulation; iI++) {
+			iOrder[iI] = iI;
+		}
+
+		double[][] dChildren = new double[iOffspring][];
+		for(int iC = 0; iC < iOffspring; iC++) {
+			/*
+			 * Shuffle just enough of the population to the front to fill
+			 * the tournament, and keep the best two of it.
+			 */
+			int iFirst = -1;
+			int iSecond = -1;
+			for(int iI = 0; iI < iTournament; iI++) {
+				int iJ = iI + rndBreed.nextInt(iPopulation - iI);
+				int iEntrant = iOrder[iJ];
+				iOrder[iJ] = iOrder[iI];
+				iOrder[iI] = iEntrant;
+				if(iFirst < 0 || dScores[iEntrant] > dScores[iFirst]) {
+					iSecond = iFirst;
+					iFirst = iEntrant;
+				} else if(iSecond < 0
+					|| dScores[iEntrant] > dScores[iSecond]) {
+					iSecond = iEntrant;
+				}
+			}
+
+			double[] dChild = crossover(iFirst, iSecond);
+			if(rndBreed.nextDouble() < MUTATION_CHANCE) {
+				dChild[rndBreed.nextInt(WEIGHT_COUNT)] +=
+					rndBreed.nextDouble(-MUTATION_SIZE, MUTATION_SIZE);
+			}
+			if(!normalize(dChild)) {
+				dChild = dWeights[iFirst].clone();
+			}
+			dChildren[iC] = dChild;
+		}
+
+		//A stable sort, so ties are always broken the same way.
+		Integer[] iRanks = new Integer[iPopulation];
+		for(int iI = 0; iI < iPopulation; iI++) {
+			iRanks[iI] = iI;
+		}
+		Arrays.sort(iRanks, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer iA, Integer iB) {
+				return Double.compare(dScores[iA], dScores[iB]);
+			}
+		});
+		for(int iC = 0; iC < iOffspring; iC++) {
+			dWeights[iRanks[iC]] = dChildren[iC];
+		}
+
+		iGeneration++;
+		Arrays.fill(dScores, Double.NaN);
+	}
+
+	/**
+	 * Averages the weights of two parents, each weighted by it's score.
+	 * @param iFirst The index of the first parent.
+	 * @param iSecond The index of the second parent.
+	 * @return The child's weights, not yet normalized.
+	 */
+	private double[] crossover(int iFirst, int iSecond) {
+		double dFirst = dScores[iFirst];
+		double dSecond = dScores[iSecond];
+		if(dFirst + dSecond <= 0.0) {
+			//Neither scored anything, so neither counts for more.
+			dFirst = 1.0;
+			dSecond = 1.0;
+		}
+		double[] dChild = new double[WEIGHT_COUNT];
+		for(int iW = 0; iW < WEIGHT_COUNT; iW++) {
+			dChild[iW] = dWeights[iFirst][iW] * dFirst
+				+ dWeights[iSecond][iW] * dSecond;
+		}
+		return dChild;
+	}
+
+	/**
+	 * Scales a set of weights to unit length.
+	 * @param dSet The weights.
+	 * @return Whether the weights could be scaled, which they can't if
+	 * they are all zero.
+	 */
+	private static boolean normalize(double[] dSet) {
+		double dLength = 0.0;
+		for(double dWeight : dSet) {
+			dLength += dWeight * dWeight;
+		}
+		dLength = Math.sqrt(dLength);
+		if(!(dLength > 0.0)) {
+			return false;
+		}
+		for(int iW = 0; iW < dSet.length; iW++) {
+			dSet[iW] /= dLength;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the heuristic of a set of weights.
+	 * @param dSet The weights.
+	 * @return The heuristic.
+	 */
+	private static Heuristic toHeuristic(double[] dSet) {
+		return new Heuristic(dSet[0], dSet[1], dSet[2], dSet[3]);
+	}
+
+	/**
+	 * Gets the seed this generation's games are derived from.
+	 * @return The seed.
+	 */
+	private long getGenerationSeed() {
+		return lSeed ^ ((iGeneration + 1L) * GENERATION_GAMMA);
+	}
+
+	/**
+	 * Gets whether this generation's games have been played.
+	 * @return Whether every set of weights has a score.
+	 */
+	public boolean isEvaluated() {
+		return !Double.isNaN(dScores[0]);
+	}
+
+	/**
+	 * Gets the current generation.
+	 * @return The generation, counting from 0.
+	 */
+	public int getGeneration() {
+		return iGeneration;
+	}
+
+	/**
+	 * Gets the index of the best scoring set of weights, keeping the first
+	 * of any ties.
+	 * @return The index.
+	 */
+	private int getBestIndex() {
+		int iBest = 0;
+		for(int iI = 1; iI < iPopulation; iI++) {
+			if(dScores[iI] > dScores[iBest]) {
+				iBest = iI;
+			}
+		}
+		return iBest;
+	}
+
+	/**
+	 * Gets the best scoring set of weights of this generation.
+	 * @return The heuristic.
+	 */
+	public Heuristic getBest() {
+		return toHeuristic(dWeights[getBestIndex()]);
+	}
+
+	/**
+	 * Gets the mean score of the best set of weights this generation.
+	 * @return The score.
+	 */
+	public double getBestScore() {
+		return dScores[getBestIndex()];
+	}
+
+	/**
+	 * Gets the mean score of the whole population this generation.
+	 * @return The score.
+	 */
+	public double getMeanScore() {
+		double dTotal = 0.0;
+		for(double dScore : dScores) {
+			dTotal += dScore;
+		}
+		return dTotal / iPopulation;
+	}
+
+	/**
+	 * Gets how far the sets of weights are, on average, from their mean,
+	 * which shrinks towards 0 as the population converges.
+	 * @return The spread.
+	 */
+	public double getSpread() {
+		double[] dMean = new double[WEIGHT_COUNT];
+		for(double[] dSet : dWeights) {
+			for(int iW = 0; iW < WEIGHT_COUNT; iW++) {
+				dMean[iW] += dSet[iW] / iPopulation;
+			}
+		}
+		double dTotal = 0.0;
+		for(double[] dSet : dWeights) {
+			double dDistance = 0.0;
+			for(int iW = 0; iW < WEIGHT_COUNT; iW++) {
+				double dDelta = dSet[iW] - dMean[iW];
+				dDistance += dDelta * dDelta;
+			}
+			dTotal += Math.sqrt(dDistance);
+		}
+		return dTotal / iPopulation;
+	}
+
+	/**
+	 * Prints a line on this generation's games and how far the population
+	 * has converged.
+	 * @param staGeneration The results of this generation's games.
+	 * @param psOut The stream to print to.
+	 */
+	public void print(SimulationStats staGeneration, PrintStream psOut) {
+		psOut.printf("Generation %d: %d games, %.1f games/s, "
+			+ "%.0f pieces/s, best %.1f, mean %.1f, spread %.4f%n",
+			iGeneration, staGeneration.getGames(),
+			staGeneration.getGamesPerSecond(),
+			staGeneration.getPiecesPerSecond(), getBestScore(),
+			getMeanScore(), getSpread());
+		psOut.printf("  best: %s%n", getBest());
+	}
+
+	/**
+	 * Writes the population to a checkpoint, replacing the file if it
+	 * exists.
+	 * @param pthFile The file.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void write(Path pthFile) throws IOException {
+		ByteBuffer bufCheckpoint = encode();
+		Path pthTemp = pthFile.resolveSibling(pthFile.getFileName() + ".tmp");
+		FileChannel chnFile = FileChannel.open(pthTemp,
+			StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while(bufCheckpoint.hasRemaining()) {
+				chnFile.write(bufCheckpoint);
+			}
+			chnFile.force(true);
+		} finally {
+			chnFile.close();
+		}
+
+		try {
+			Files.move(pthTemp, pthFile, StandardCopyOption.ATOMIC_MOVE);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(pthTemp, pthFile,
+				StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Encodes the population.
+	 * @return The encoded population, ready to be read.
+	 */
+	private ByteBuffer encode() {
+		byte[] bName = sGenerator.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer bufCheckpoint = ByteBuffer.allocate(4 + 2 + 8 + 4 * 5
+			+ 2 + bName.length + iPopulation * (WEIGHT_COUNT + 1) * 8 + 4);
+		bufCheckpoint.putInt(MAGIC);
+		bufCheckpoint.putShort(VERSION);
+		bufCheckpoint.putLong(lSeed);
+		bufCheckpoint.putInt(iGeneration);
+		bufCheckpoint.putInt(iPopulation);
+		bufCheckpoint.putInt(iGames);
+		bufCheckpoint.putInt(iMaxPieces);
+		bufCheckpoint.putInt(iDepth);
+		bufCheckpoint.putShort((short)bName.length);
+		bufCheckpoint.put(bName);
+		for(int iI = 0; iI < iPopulation; iI++) {
+			for(int iW = 0; iW < WEIGHT_COUNT; iW++) {
+				bufCheckpoint.putDouble(dWeights[iI][iW]);
+			}
+			bufCheckpoint.putDouble(dScores[iI]);
+		}
+
+		CRC32 crcCheck = new CRC32();
+		crcCheck.update(bufCheckpoint.array(), 0, bufCheckpoint.position());
+		bufCheckpoint.putInt((int)crcCheck.getValue());
+		bufCheckpoint.flip();
+		return bufCheckpoint;
+	}
+
+	/**
+	 * Reads a population from a checkpoint.
+	 * @param pthFile The file.
+	 * @return The tuner, at the generation it was written in.
+	 * @throws java.nio.file.NoSuchFileException If there is no checkpoint.
+	 * @throws IOException If the file can't be read, or isn't a valid
+	 * checkpoint.
+	 */
+	public static WeightTuner read(Path pthFile) throws IOException {
+		ByteBuffer bufCheckpoint = ByteBuffer.wrap(Files.readAllBytes(pthFile));
+		try {
+			if(bufCheckpoint.getInt() != MAGIC) {
+				throw new IOException("Not a checkpoint");
+			}
+			short sVersion = bufCheckpoint.getShort();
+			if(sVersion != VERSION) {
+				throw new IOException("Unsupported checkpoint version: "
+					+ sVersion);
+			}
+
+			CRC32 crcCheck = new CRC32();
+			int iEnd = bufCheckpoint.limit() - 4;
+			crcCheck.update(bufCheckpoint.array(), 0, iEnd);
+			if(bufCheckpoint.getInt(iEnd) != (int)crcCheck.getValue()) {
+				throw new IOException("Checkpoint is corrupt");
+			}
+
+			long lSeed = bufCheckpoint.getLong();
+			int iGeneration = bufCheckpoint.getInt();
+			int iPopulation = bufCheckpoint.getInt();
+			int iGames = bufCheckpoint.getInt();
+			int iMaxPieces = bufCheckpoint.getInt();
+			int iDepth = bufCheckpoint.getInt();
+			byte[] bName = new byte[bufCheckpoint.getShort() & 0xFFFF];
+			bufCheckpoint.get(bName);
+			String sGenerator = new String(bName, StandardCharsets.UTF_8);
+
+			WeightTuner wtnTuner;
+			try {
+				wtnTuner = new WeightTuner(lSeed, iPopulation, iGames,
+					iMaxPieces, iDepth, sGenerator, iGeneration);
+			} catch(IllegalArgumentException e) {
+				throw new IOException("Invalid checkpoint: "
+					+ e.getMessage());
+			}
+			for(int iI = 0; iI < iPopulation; iI++) {
+				for(int iW = 0; iW < WEIGHT_COUNT; iW++) {
+					wtnTuner.dWeights[iI][iW] = bufCheckpoint.getDouble();
+				}
+				wtnTuner.dScores[iI] = bufCheckpoint.getDouble();
+			}
+			if(bufCheckpoint.position() != iEnd) {
+				throw new IOException("Checkpoint has trailing data");
+			}
+			return wtnTuner;
+		} catch(BufferUnderflowException e) {
+			throw new IOException("Checkpoint is truncated");
+		}
+	}
+
+	/**
+	 * Runs the tuner, picking up from the checkpoint if there is one, and
+	 * prints the results of every generation.
+	 * @param args The checkpoint file, then the number of generations,
+	 * the number of threads, the population, the games per set of
+	 * weights, the master seed, the piece limit per game, the search depth
+	 * and the piece generator strategy, all optional. Everything after the
+	 * number of threads is ignored when resuming.
+	 * @throws IOException If the checkpoint can't be read or written.
+	 * @throws InterruptedException If interrupted while waiting.
+	 */
+	public static void main(String[] args)
+		throws IOException, InterruptedException {
+
+		Path pthCheckpoint = Paths.get((args.length > 0) ? args[0]
+			: "tuner.ckpt");
+		int iGenerations = (args.length > 1) ? Integer.parseInt(args[1])
+			: DEFAULT_GENERATIONS;
+		int iThreads = (args.length > 2) ? Integer.parseInt(args[2])
+			: Runtime.getRuntime().availableProcessors();
+
+		WeightTuner wtnTuner;
+		if(Files.exists(pthCheckpoint)) {
+			wtnTuner = read(pthCheckpoint);
+			System.out.printf("Resuming after generation %d from %s%n",
+				wtnTuner.getGeneration(), pthCheckpoint);
+			if(wtnTuner.getGeneration() + 1 >= iGenerations) {
+				System.out.printf("Best: %s%n", wtnTuner.getBest());
+				return;
+			}
+			wtnTuner.breed();
+		} else {
+			int iPopulation = (args.length > 3) ? Integer.parseInt(args[3])
+				: DEFAULT_POPULATION;
+			int iGames = (args.length > 4) ? Integer.parseInt(args[4])
+				: DEFAULT_GAMES;
+			long lSeed = (args.length > 5) ? Long.parseLong(args[5])
+				: System.nanoTime();
+			int iMaxPieces = (args.length > 6) ? Integer.parseInt(args[6])
+				: DEFAULT_MAX_PIECES;
+			int iDepth = (args.length > 7) ? Integer.parseInt(args[7])
+				: DEFAULT_DEPTH;
+			String sGenerator = (args.length > 8) ? args[8] : "uniform";
+			wtnTuner = new WeightTuner(lSeed, iPopulation, iGames,
+				iMaxPieces, iDepth, sGenerator);
+			System.out.printf("Tuning %d sets of weights on %d games each, "
+				+ "%d threads (seed %d, depth %d, %s)%n", iPopulation,
+				iGames, iThreads, lSeed, iDepth, sGenerator);
+		}
+
+		while(true) {
+			SimulationStats staGeneration = wtnTuner.evaluate(iThreads);
+			wtnTuner.write(pthCheckpoint);
+			wtnTuner.print(staGeneration, System.out);
+			if(wtnTuner.getGeneration() + 1 >= iGenerations) {
+				break;
+			}
+			wtnTuner.breed();
+		}
+		System.out.printf("Best: %s%n", wtnTuner.getBest());
+	}
+
+}